@@ -0,0 +1,48 @@
+package com.claudiu.macovei.benchmark;
+
+import com.claudiu.macovei.security.SecurityUtils;
+import com.claudiu.macovei.security.oauth2.JwtGrantedAuthorityConverter;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+/**
+ * Extracting the authorities of an access token, done for every authenticated request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AuthorityExtractionBenchmark {
+
+    private final JwtGrantedAuthorityConverter jwtGrantedAuthorityConverter = new JwtGrantedAuthorityConverter();
+
+    private Map<String, Object> claims;
+
+    private Jwt jwt;
+
+    @Setup
+    public void setUp() {
+        claims = Fixtures.claims("8f1c2d3e-4b5a-6978-8a9b-0c1d2e3f4a5b");
+        jwt = Jwt.withTokenValue("token").header("alg", "RS256").claims(c -> c.putAll(claims)).build();
+    }
+
+    @Benchmark
+    public List<GrantedAuthority> extractAuthorityFromClaims() {
+        return SecurityUtils.extractAuthorityFromClaims(claims);
+    }
+
+    @Benchmark
+    public Collection<GrantedAuthority> jwtGrantedAuthorityConverter() {
+        return jwtGrantedAuthorityConverter.convert(jwt);
+    }
+}
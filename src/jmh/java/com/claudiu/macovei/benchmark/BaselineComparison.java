@@ -0,0 +1,84 @@
+package com.claudiu.macovei.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares the JSON results of a JMH run with a stored baseline, and fails when a benchmark got slower by more than
+ * the tolerance.
+ * <p>
+ * Arguments: the results file, the baseline file, and the tolerance in percent. The comparison is skipped when there
+ * is no baseline: copy a results file of a reference run over it to create one. Only the benchmarks measuring time
+ * per operation are compared; the secondary results of the GC profiler are reported as they are.
+ */
+public final class BaselineComparison {
+
+    private static final String GC_ALLOCATION_RATE = "·gc.alloc.rate.norm";
+
+    private BaselineComparison() {}
+
+    public static void main(String[] args) throws IOException {
+        File results = new File(args[0]);
+        File baseline = new File(args[1]);
+        double tolerance = Double.parseDouble(args[2]);
+        if (!baseline.isFile()) {
+            System.out.println("No baseline at " + baseline + ", skipping the comparison");
+            return;
+        }
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, JsonNode> baselineScores = scores(objectMapper.readTree(baseline));
+        List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, JsonNode> entry : scores(objectMapper.readTree(results)).entrySet()) {
+            JsonNode reference = baselineScores.get(entry.getKey());
+            if (reference == null) {
+                System.out.println(entry.getKey() + ": no baseline");
+                continue;
+            }
+            JsonNode current = entry.getValue();
+            double score = current.path("primaryMetric").path("score").asDouble();
+            double referenceScore = reference.path("primaryMetric").path("score").asDouble();
+            double change = (score - referenceScore) / referenceScore * 100;
+            System.out.printf(
+                "%s: %.3f %s (baseline %.3f, %+.1f%%), %s B/op (baseline %s B/op)%n",
+                entry.getKey(),
+                score,
+                current.path("primaryMetric").path("scoreUnit").asText(),
+                referenceScore,
+                change,
+                allocation(current),
+                allocation(reference)
+            );
+            if (change > tolerance) {
+                regressions.add(entry.getKey());
+            }
+        }
+        if (!regressions.isEmpty()) {
+            throw new IllegalStateException("Slower than the baseline by more than " + tolerance + "%: " + regressions);
+        }
+    }
+
+    /**
+     * @return the results of the time per operation benchmarks, by benchmark and parameters.
+     */
+    private static Map<String, JsonNode> scores(JsonNode results) {
+        Map<String, JsonNode> scores = new HashMap<>();
+        for (JsonNode result : results) {
+            if (!"avgt".equals(result.path("mode").asText()) && !"sample".equals(result.path("mode").asText())) {
+                continue;
+            }
+            scores.put(result.path("benchmark").asText() + result.path("params").toString(), result);
+        }
+        return scores;
+    }
+
+    private static String allocation(JsonNode result) {
+        JsonNode allocation = result.path("secondaryMetrics").path(GC_ALLOCATION_RATE).path("score");
+        return allocation.isMissingNode() ? "-" : String.format("%.0f", allocation.asDouble());
+    }
+}
@@ -0,0 +1,98 @@
+package com.claudiu.macovei.benchmark;
+
+import com.claudiu.macovei.security.oauth2.CustomClaimConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Converting the claims of an access token, with the userinfo already cached, and straight from the token.
+ * <p>
+ * The userinfo endpoint is stubbed in memory: the cost of the round trip itself is left to the load tests.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CustomClaimConverterBenchmark {
+
+    private static final String SUB = "8f1c2d3e-4b5a-6978-8a9b-0c1d2e3f4a5b";
+
+    private CustomClaimConverter cachedConverter;
+
+    private CustomClaimConverter tokenClaimsFirstConverter;
+
+    private Map<String, Object> claims;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ClientRegistration registration = ClientRegistration
+            .withRegistrationId("oidc")
+            .clientId("web_app")
+            .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+            .redirectUri("{baseUrl}/login/oauth2/code/{registrationId}")
+            .authorizationUri("https://idp.example.com/auth")
+            .tokenUri("https://idp.example.com/token")
+            .userInfoUri("https://idp.example.com/userinfo")
+            .build();
+        claims = Fixtures.claims(SUB);
+        ObjectNode userInfo = new ObjectMapper().valueToTree(claims);
+        RestTemplate userInfoEndpoint = new RestTemplate() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> ResponseEntity<T> exchange(
+                String url,
+                HttpMethod method,
+                HttpEntity<?> requestEntity,
+                Class<T> responseType,
+                Object... uriVariables
+            ) {
+                return (ResponseEntity<T>) ResponseEntity.ok(userInfo.deepCopy());
+            }
+        };
+        cachedConverter = new CustomClaimConverter(registration, userInfoEndpoint);
+        tokenClaimsFirstConverter = new CustomClaimConverter(registration, userInfoEndpoint);
+        tokenClaimsFirstConverter.setTokenClaimsFirst(true, Set.of("preferred_username"));
+
+        // the converter reads the bearer token of the current request
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/account");
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer token");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        cachedConverter.convert(claims);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public Map<String, Object> convertCachedUser() {
+        return cachedConverter.convert(claims);
+    }
+
+    @Benchmark
+    public Map<String, Object> convertTokenClaimsFirst() {
+        return tokenClaimsFirstConverter.convert(claims);
+    }
+}
@@ -0,0 +1,116 @@
+package com.claudiu.macovei.benchmark;
+
+import com.claudiu.macovei.domain.Authority;
+import com.claudiu.macovei.domain.Credential;
+import com.claudiu.macovei.domain.IdentityProvider;
+import com.claudiu.macovei.domain.ServiceProvider;
+import com.claudiu.macovei.domain.User;
+import com.claudiu.macovei.security.AuthoritiesConstants;
+import com.claudiu.macovei.security.SecurityUtils;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fixtures shaped like the production data: users with a few authorities, credentials linked to an identity
+ * provider and a handful of service providers, and tokens carrying a dozen roles and groups.
+ */
+final class Fixtures {
+
+    static final int SERVICE_PROVIDERS_PER_CREDENTIAL = 5;
+
+    static final int ROLES_PER_TOKEN = 12;
+
+    private Fixtures() {}
+
+    static List<User> users(int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            users.add(user(i));
+        }
+        return users;
+    }
+
+    static User user(int i) {
+        User user = new User();
+        user.setId("00000000-0000-0000-0000-" + String.format("%012d", i));
+        user.setLogin("user" + i);
+        user.setFirstName("First" + i);
+        user.setLastName("Last" + i);
+        user.setEmail("user" + i + "@example.com");
+        user.setActivated(true);
+        user.setLangKey("en");
+        user.setImageUrl("https://example.com/avatars/" + i + ".png");
+        user.setCreatedBy("system");
+        user.setCreatedDate(Instant.parse("2022-01-01T00:00:00Z"));
+        user.setLastModifiedBy("system");
+        user.setLastModifiedDate(Instant.parse("2022-02-01T00:00:00Z"));
+        user.setAuthorities(Set.of(authority(AuthoritiesConstants.USER), authority(AuthoritiesConstants.ADMIN)));
+        return user;
+    }
+
+    static Authority authority(String name) {
+        Authority authority = new Authority();
+        authority.setName(name);
+        return authority;
+    }
+
+    static List<Credential> credentials(int count) {
+        List<ServiceProvider> serviceProviders = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            ServiceProvider serviceProvider = new ServiceProvider();
+            serviceProvider.setId((long) i);
+            serviceProvider.setName("service-provider-" + i);
+            serviceProviders.add(serviceProvider);
+        }
+        List<IdentityProvider> identityProviders = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            IdentityProvider identityProvider = new IdentityProvider();
+            identityProvider.setId((long) i);
+            identityProvider.setName("identity-provider-" + i);
+            identityProviders.add(identityProvider);
+        }
+        List<Credential> credentials = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Credential credential = new Credential()
+                .id((long) i)
+                .profile("profile-" + (i % 7))
+                .enabled(i % 3 != 0)
+                .username("username" + i)
+                .password("p4ssw0rd-" + i)
+                .identityProvider(identityProviders.get(i % identityProviders.size()));
+            // only the owning side, as the lazy credentials of a service provider are not serialized
+            for (int j = 0; j < SERVICE_PROVIDERS_PER_CREDENTIAL; j++) {
+                credential.getServiceProviders().add(serviceProviders.get((i + j * 7) % serviceProviders.size()));
+            }
+            credentials.add(credential);
+        }
+        return credentials;
+    }
+
+    /**
+     * The claims of an access token, with its roles in the namespaced claim.
+     */
+    static Map<String, Object> claims(String sub) {
+        List<String> roles = new ArrayList<>();
+        for (int i = 0; i < ROLES_PER_TOKEN; i++) {
+            roles.add(i % 2 == 0 ? "ROLE_GROUP_" + i : "group-" + i);
+        }
+        roles.add(AuthoritiesConstants.USER);
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("sub", sub);
+        claims.put("iss", "https://idp.example.com/realms/jhipster");
+        claims.put("aud", List.of("web_app", "account"));
+        claims.put("iat", Instant.now());
+        claims.put("exp", Instant.now().plusSeconds(300));
+        claims.put("preferred_username", "user-" + sub);
+        claims.put("email", sub + "@example.com");
+        claims.put("given_name", "First");
+        claims.put("family_name", "Last");
+        claims.put(SecurityUtils.CLAIMS_NAMESPACE + "roles", roles);
+        return claims;
+    }
+}
@@ -0,0 +1,39 @@
+package com.claudiu.macovei.benchmark;
+
+import com.claudiu.macovei.repository.search.SortToFieldSortBuilderConverter;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Converting the sort of a search request, done for every search.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SortConversionBenchmark {
+
+    private final SortToFieldSortBuilderConverter converter = new SortToFieldSortBuilderConverter(Set.of("id", "enabled"));
+
+    private final Sort singleSort = Sort.by(Sort.Direction.ASC, "username");
+
+    private final Sort multipleSort = Sort.by(Sort.Order.desc("enabled"), Sort.Order.asc("profile"), Sort.Order.asc("username"));
+
+    @Benchmark
+    public List<FieldSortBuilder> convertSingleSort() {
+        return converter.convert(singleSort);
+    }
+
+    @Benchmark
+    public List<FieldSortBuilder> convertMultipleSort() {
+        return converter.convert(multipleSort);
+    }
+}
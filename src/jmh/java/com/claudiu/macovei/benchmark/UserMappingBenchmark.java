@@ -0,0 +1,60 @@
+package com.claudiu.macovei.benchmark;
+
+import com.claudiu.macovei.domain.User;
+import com.claudiu.macovei.service.dto.AdminUserDTO;
+import com.claudiu.macovei.service.dto.UserDTO;
+import com.claudiu.macovei.service.mapper.UserMapper;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Mapping a page of users to the DTOs of the user endpoints.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserMappingBenchmark {
+
+    @Param({ "20", "1000" })
+    public int pageSize;
+
+    private final UserMapper userMapper = new UserMapper();
+
+    private List<User> users;
+
+    private List<AdminUserDTO> adminUserDTOs;
+
+    @Setup
+    public void setUp() {
+        users = Fixtures.users(pageSize);
+        adminUserDTOs = userMapper.usersToAdminUserDTOs(users);
+    }
+
+    @Benchmark
+    public List<UserDTO> usersToUserDTOs() {
+        return userMapper.usersToUserDTOs(users);
+    }
+
+    @Benchmark
+    public List<AdminUserDTO> usersToAdminUserDTOs() {
+        return userMapper.usersToAdminUserDTOs(users);
+    }
+
+    @Benchmark
+    public List<User> adminUserDTOsToUsers() {
+        return userMapper.userDTOsToUsers(adminUserDTOs);
+    }
+
+    @Benchmark
+    public AdminUserDTO adminUserDTO() {
+        return new AdminUserDTO(users.get(0));
+    }
+}
@@ -0,0 +1,100 @@
+package com.claudiu.macovei.load;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+import com.claudiu.macovei.RedisTestContainerExtension;
+import com.claudiu.macovei.SimplecredentialsmanagerApp;
+import com.claudiu.macovei.config.TestSecurityConfiguration;
+import com.claudiu.macovei.domain.Credential;
+import com.claudiu.macovei.load.LoadTestSettings.Operation;
+import com.claudiu.macovei.repository.CredentialRepository;
+import com.claudiu.macovei.repository.search.CredentialSearchRepository;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * Load test of the credential REST API, gating on the latency, throughput and error budgets of the {@code load.*}
+ * system properties.
+ * <p>
+ * The application runs on H2, or on MySQL with the {@code testcontainers} Spring profile, behind the
+ * {@link StubIdentityProvider}, with {@link InMemoryCredentialSearch} standing in for Elasticsearch.
+ */
+@SpringBootTest(
+    classes = { SimplecredentialsmanagerApp.class, TestSecurityConfiguration.class, LoadTestConfiguration.class },
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT
+)
+@ExtendWith(RedisTestContainerExtension.class)
+class CredentialApiLoadTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private StubIdentityProvider identityProvider;
+
+    @Autowired
+    private CredentialRepository credentialRepository;
+
+    /**
+     * This repository is mocked in the com.claudiu.macovei.repository.search test package.
+     *
+     * @see com.claudiu.macovei.repository.search.CredentialSearchRepositoryMockConfiguration
+     */
+    @Autowired
+    private CredentialSearchRepository mockCredentialSearchRepository;
+
+    @Test
+    void credentialApiMeetsItsBudgets() throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        List<Credential> credentials = credentialRepository.saveAll(seed(settings.getSeedCredentials()));
+        InMemoryCredentialSearch search = new InMemoryCredentialSearch();
+        search.index(credentials);
+        when(mockCredentialSearchRepository.search(anyString(), any(Pageable.class)))
+            .thenAnswer(invocation -> search.search(invocation.getArgument(0), invocation.getArgument(1)));
+
+        LoadGenerator loadGenerator = new LoadGenerator(
+            "http://localhost:" + port,
+            identityProvider,
+            credentials.stream().map(Credential::getId).collect(Collectors.toList()),
+            settings
+        );
+        LoadReport report = loadGenerator.run();
+        report.print(System.out);
+        report.write(settings.getReportDirectory());
+
+        SoftAssertions budgets = new SoftAssertions();
+        budgets.assertThat(report.getErrorRate()).as("error rate").isLessThanOrEqualTo(settings.getMaxErrorRate());
+        budgets.assertThat(report.getThroughput()).as("throughput").isGreaterThanOrEqualTo(settings.getMinThroughput());
+        for (Operation operation : settings.getMix().keySet()) {
+            if (report.getCount(operation) > 0) {
+                budgets
+                    .assertThat(report.getLatencyMillis(operation, 99))
+                    .as("p99 of %s in ms", operation)
+                    .isLessThanOrEqualTo((double) settings.getP99BudgetMs());
+            }
+        }
+        budgets.assertAll();
+        assertThat(report.getTotalCount()).as("operations").isPositive();
+    }
+
+    private static List<Credential> seed(int count) {
+        List<Credential> credentials = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            credentials.add(
+                new Credential().profile("profile" + (i % 7)).enabled(i % 3 != 0).username("username" + i).password("secret" + i)
+            );
+        }
+        return credentials;
+    }
+}
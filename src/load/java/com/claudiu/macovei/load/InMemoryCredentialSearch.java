@@ -0,0 +1,36 @@
+package com.claudiu.macovei.load;
+
+import com.claudiu.macovei.domain.Credential;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * Stands in for Elasticsearch in the load tests: a case-insensitive substring match on the usernames of the
+ * credentials it was given, ignoring the wildcards of the query.
+ * <p>
+ * It measures the cost of the application around the search, not the cost of the search itself.
+ */
+public class InMemoryCredentialSearch {
+
+    private final List<Credential> credentials = new CopyOnWriteArrayList<>();
+
+    public void index(List<Credential> credentials) {
+        this.credentials.addAll(credentials);
+    }
+
+    public Page<Credential> search(String query, Pageable pageable) {
+        String term = query.replace("*", "").replace("?", "").toLowerCase(Locale.ROOT);
+        List<Credential> hits = credentials
+            .stream()
+            .filter(credential -> credential.getUsername() != null && credential.getUsername().toLowerCase(Locale.ROOT).contains(term))
+            .collect(Collectors.toList());
+        int from = (int) Math.min(pageable.getOffset(), hits.size());
+        int to = Math.min(from + pageable.getPageSize(), hits.size());
+        return new PageImpl<>(hits.subList(from, to), pageable, hits.size());
+    }
+}
@@ -0,0 +1,197 @@
+package com.claudiu.macovei.load;
+
+import com.claudiu.macovei.load.LoadTestSettings.Operation;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Drives the REST API with virtual users, each one a thread with its own access token, calling the operations of the
+ * mix one after another for the warmup then for the measured duration.
+ * <p>
+ * The virtual users run a closed loop: a slow response delays the next request of its user, so the latencies are
+ * those of the requests actually sent, at the throughput the application sustained.
+ */
+public class LoadGenerator {
+
+    private static final Duration TOKEN_VALIDITY = Duration.ofHours(2);
+
+    private static final int PAGE_SIZE = 20;
+
+    private static final String CSRF_TOKEN = UUID.randomUUID().toString();
+
+    private final Logger log = LoggerFactory.getLogger(LoadGenerator.class);
+
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    private final String baseUrl;
+
+    private final StubIdentityProvider identityProvider;
+
+    private final List<Long> credentialIds;
+
+    private final LoadTestSettings settings;
+
+    private final Operation[] operations;
+
+    private final int[] cumulativeWeights;
+
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+
+    private volatile boolean running;
+
+    /**
+     * @param baseUrl the URL of the application.
+     * @param identityProvider the issuer of the tokens of the virtual users.
+     * @param credentialIds the ids of the credentials to read.
+     * @param settings the settings of the run.
+     */
+    public LoadGenerator(String baseUrl, StubIdentityProvider identityProvider, List<Long> credentialIds, LoadTestSettings settings) {
+        this.baseUrl = baseUrl;
+        this.identityProvider = identityProvider;
+        this.credentialIds = credentialIds;
+        this.settings = settings;
+        this.operations = settings.getMix().keySet().toArray(new Operation[0]);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += settings.getMix().get(operations[i]);
+            cumulativeWeights[i] = total;
+            recorders.put(operations[i], new Recorder(3));
+            errors.put(operations[i], new LongAdder());
+        }
+    }
+
+    public LoadReport run() throws InterruptedException {
+        log.info("Starting a load test: {}", settings);
+        ExecutorService virtualUsers = Executors.newFixedThreadPool(settings.getVirtualUsers());
+        running = true;
+        List<Future<?>> users = new ArrayList<>();
+        for (int i = 0; i < settings.getVirtualUsers(); i++) {
+            String token = identityProvider.issueToken("user-" + i, TOKEN_VALIDITY);
+            int user = i;
+            users.add(virtualUsers.submit(() -> runVirtualUser(user, token)));
+        }
+        try {
+            Thread.sleep(settings.getWarmup().toMillis());
+            // drop the warmup measures
+            recorders.values().forEach(Recorder::getIntervalHistogram);
+            errors.values().forEach(LongAdder::reset);
+            long start = System.nanoTime();
+            Thread.sleep(settings.getDuration().toMillis());
+            Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+            recorders.forEach((operation, recorder) -> latencies.put(operation, recorder.getIntervalHistogram()));
+            Map<Operation, Long> errorCounts = new EnumMap<>(Operation.class);
+            errors.forEach((operation, count) -> errorCounts.put(operation, count.sum()));
+            return new LoadReport(latencies, errorCounts, Duration.ofNanos(System.nanoTime() - start));
+        } finally {
+            running = false;
+            users.forEach(user -> user.cancel(true));
+            virtualUsers.shutdownNow();
+        }
+    }
+
+    private void runVirtualUser(int user, String token) {
+        int writes = 0;
+        while (running && !Thread.currentThread().isInterrupted()) {
+            Operation operation = nextOperation();
+            HttpRequest request = request(operation, user, writes, token);
+            if (operation == Operation.WRITE) {
+                writes++;
+            }
+            long start = System.nanoTime();
+            try {
+                HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                long latencyMicros = (System.nanoTime() - start) / 1000;
+                if (response.statusCode() / 100 == 2) {
+                    recorders.get(operation).recordValue(latencyMicros);
+                } else {
+                    errors.get(operation).increment();
+                    log.debug("{} {} returned {}", request.method(), request.uri(), response.statusCode());
+                }
+            } catch (IOException e) {
+                errors.get(operation).increment();
+                log.debug("{} {} failed: {}", request.method(), request.uri(), e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private Operation nextOperation() {
+        int draw = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (draw < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    private HttpRequest request(Operation operation, int user, int writes, String token) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        HttpRequest.Builder request;
+        switch (operation) {
+            case READ:
+                if (random.nextBoolean()) {
+                    int pages = Math.max(1, credentialIds.size() / PAGE_SIZE);
+                    request = HttpRequest.newBuilder(uri("/api/credentials?page=" + random.nextInt(pages) + "&size=" + PAGE_SIZE));
+                } else {
+                    request = HttpRequest.newBuilder(uri("/api/credentials/" + credentialIds.get(random.nextInt(credentialIds.size()))));
+                }
+                break;
+            case SEARCH:
+                String query = "username" + random.nextInt(100) + "*";
+                request = HttpRequest.newBuilder(uri("/api/_search/credentials?query=" + query + "&size=" + PAGE_SIZE));
+                break;
+            case WRITE:
+                String credential = String.format(
+                    "{\"profile\":\"load\",\"enabled\":true,\"username\":\"load-%d-%d\",\"password\":\"secret\"}",
+                    user,
+                    writes
+                );
+                request =
+                    HttpRequest
+                        .newBuilder(uri("/api/credentials"))
+                        .POST(HttpRequest.BodyPublishers.ofString(credential))
+                        .header("Content-Type", "application/json")
+                        // the double submit cookie of the CSRF protection
+                        .header("Cookie", "XSRF-TOKEN=" + CSRF_TOKEN)
+                        .header("X-XSRF-TOKEN", CSRF_TOKEN);
+                break;
+            case ACCOUNT:
+                request = HttpRequest.newBuilder(uri("/api/account"));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown operation " + operation);
+        }
+        return request
+            .header("Authorization", "Bearer " + token)
+            .header("Accept", "application/json")
+            .timeout(Duration.ofSeconds(30))
+            .build();
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + path);
+    }
+}
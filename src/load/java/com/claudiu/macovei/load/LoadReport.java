@@ -0,0 +1,136 @@
+package com.claudiu.macovei.load;
+
+import com.claudiu.macovei.load.LoadTestSettings.Operation;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import org.HdrHistogram.Histogram;
+
+/**
+ * The latencies, in microseconds, and the errors of each operation over the measured part of a load test run.
+ */
+public class LoadReport {
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+    private final Map<Operation, Histogram> latencies;
+
+    private final Map<Operation, Long> errors;
+
+    private final Duration elapsed;
+
+    public LoadReport(Map<Operation, Histogram> latencies, Map<Operation, Long> errors, Duration elapsed) {
+        this.latencies = latencies;
+        this.errors = errors;
+        this.elapsed = elapsed;
+    }
+
+    public long getCount(Operation operation) {
+        return latencies.get(operation).getTotalCount() + errors.get(operation);
+    }
+
+    public long getTotalCount() {
+        return latencies.keySet().stream().mapToLong(this::getCount).sum();
+    }
+
+    /**
+     * @return the operations per second, errors included.
+     */
+    public double getThroughput() {
+        return getTotalCount() / seconds();
+    }
+
+    private double seconds() {
+        return elapsed.toNanos() / 1e9;
+    }
+
+    public double getErrorRate() {
+        long total = getTotalCount();
+        return total == 0 ? 0 : (double) errors.values().stream().mapToLong(Long::longValue).sum() / total;
+    }
+
+    /**
+     * @return the latency of the successful calls at the given percentile, in milliseconds.
+     */
+    public double getLatencyMillis(Operation operation, double percentile) {
+        return latencies.get(operation).getValueAtPercentile(percentile) / MICROS_PER_MILLI;
+    }
+
+    public void print(PrintStream out) {
+        out.printf(
+            Locale.ROOT,
+            "%-8s %10s %10s %10s %10s %10s %10s %10s %8s%n",
+            "",
+            "count",
+            "ops/s",
+            "p50 ms",
+            "p90 ms",
+            "p99 ms",
+            "p99.9 ms",
+            "max ms",
+            "errors"
+        );
+        for (Map.Entry<Operation, Histogram> entry : latencies.entrySet()) {
+            Operation operation = entry.getKey();
+            out.printf(
+                Locale.ROOT,
+                "%-8s %10d %10.1f %10.2f %10.2f %10.2f %10.2f %10.2f %8d%n",
+                operation,
+                getCount(operation),
+                getCount(operation) / seconds(),
+                getLatencyMillis(operation, 50),
+                getLatencyMillis(operation, 90),
+                getLatencyMillis(operation, 99),
+                getLatencyMillis(operation, 99.9),
+                entry.getValue().getMaxValue() / MICROS_PER_MILLI,
+                errors.get(operation)
+            );
+        }
+        out.printf(
+            Locale.ROOT,
+            "%d operations in %s: %.1f ops/s, %.2f%% errors%n",
+            getTotalCount(),
+            elapsed,
+            getThroughput(),
+            getErrorRate() * 100
+        );
+    }
+
+    /**
+     * Write the summary as {@code report.json}, and the full latency distribution of each operation as an
+     * {@code .hgrm} file, in milliseconds.
+     */
+    public void write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        ObjectNode report = objectMapper.createObjectNode();
+        report.put("elapsedMs", elapsed.toMillis());
+        report.put("throughput", getThroughput());
+        report.put("errorRate", getErrorRate());
+        ObjectNode operations = report.putObject("operations");
+        for (Map.Entry<Operation, Histogram> entry : latencies.entrySet()) {
+            Operation operation = entry.getKey();
+            ObjectNode summary = operations.putObject(operation.name().toLowerCase(Locale.ROOT));
+            summary.put("count", getCount(operation));
+            summary.put("errors", errors.get(operation));
+            for (double percentile : PERCENTILES) {
+                summary.put("p" + String.valueOf(percentile).replace(".0", "") + "Ms", getLatencyMillis(operation, percentile));
+            }
+            summary.put("maxMs", entry.getValue().getMaxValue() / MICROS_PER_MILLI);
+            Path distribution = directory.resolve(operation.name().toLowerCase(Locale.ROOT) + ".hgrm");
+            try (PrintStream out = new PrintStream(Files.newOutputStream(distribution))) {
+                entry.getValue().outputPercentileDistribution(out, MICROS_PER_MILLI);
+            }
+        }
+        objectMapper.writeValue(directory.resolve("report.json").toFile(), report);
+    }
+}
@@ -0,0 +1,53 @@
+package com.claudiu.macovei.load;
+
+import com.claudiu.macovei.security.oauth2.AudienceValidator;
+import com.claudiu.macovei.security.oauth2.CustomClaimConverter;
+import java.util.List;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Authenticates the load test requests against the {@link StubIdentityProvider}, like the production
+ * {@code SecurityConfiguration} does against the real issuer: the tokens are verified with the JWK set of the issuer,
+ * and the userinfo endpoint is called to convert their claims.
+ */
+@TestConfiguration
+public class LoadTestConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public StubIdentityProvider stubIdentityProvider() throws Exception {
+        return new StubIdentityProvider();
+    }
+
+    @Bean
+    @Primary
+    public JwtDecoder loadTestJwtDecoder(StubIdentityProvider identityProvider) {
+        ClientRegistration registration = ClientRegistration
+            .withRegistrationId("oidc")
+            .clientId(identityProvider.getClientId())
+            .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+            .redirectUri("{baseUrl}/login/oauth2/code/{registrationId}")
+            .authorizationUri(identityProvider.getIssuer() + "/auth")
+            .tokenUri(identityProvider.getIssuer() + "/token")
+            .jwkSetUri(identityProvider.getJwkSetUri())
+            .userInfoUri(identityProvider.getUserInfoUri())
+            .build();
+        NimbusJwtDecoder jwtDecoder = NimbusJwtDecoder.withJwkSetUri(identityProvider.getJwkSetUri()).build();
+        jwtDecoder.setJwtValidator(
+            new DelegatingOAuth2TokenValidator<>(
+                JwtValidators.createDefaultWithIssuer(identityProvider.getIssuer()),
+                new AudienceValidator(List.of(identityProvider.getClientId()))
+            )
+        );
+        jwtDecoder.setClaimSetConverter(new CustomClaimConverter(registration, new RestTemplate()));
+        return jwtDecoder;
+    }
+}
@@ -0,0 +1,152 @@
+package com.claudiu.macovei.load;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The settings of a load test run, read from the {@code load.*} system properties.
+ */
+public class LoadTestSettings {
+
+    /**
+     * The operations of the virtual users.
+     */
+    public enum Operation {
+        /** Read a page of credentials, or a single credential. */
+        READ,
+        /** Search the credentials. */
+        SEARCH,
+        /** Create a credential. */
+        WRITE,
+        /** Get the account of the user. */
+        ACCOUNT,
+    }
+
+    private final int virtualUsers;
+
+    private final Duration warmup;
+
+    private final Duration duration;
+
+    private final Map<Operation, Integer> mix;
+
+    private final int seedCredentials;
+
+    private final long p99BudgetMs;
+
+    private final double minThroughput;
+
+    private final double maxErrorRate;
+
+    private final Path reportDirectory;
+
+    private LoadTestSettings(
+        int virtualUsers,
+        Duration warmup,
+        Duration duration,
+        Map<Operation, Integer> mix,
+        int seedCredentials,
+        long p99BudgetMs,
+        double minThroughput,
+        double maxErrorRate,
+        Path reportDirectory
+    ) {
+        this.virtualUsers = virtualUsers;
+        this.warmup = warmup;
+        this.duration = duration;
+        this.mix = mix;
+        this.seedCredentials = seedCredentials;
+        this.p99BudgetMs = p99BudgetMs;
+        this.minThroughput = minThroughput;
+        this.maxErrorRate = maxErrorRate;
+        this.reportDirectory = reportDirectory;
+    }
+
+    public static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings(
+            Integer.getInteger("load.users", 32),
+            Duration.ofSeconds(Long.getLong("load.warmup-seconds", 10)),
+            Duration.ofSeconds(Long.getLong("load.duration-seconds", 60)),
+            parseMix(System.getProperty("load.mix", "read:60,search:25,write:10,account:5")),
+            Integer.getInteger("load.seed-credentials", 1000),
+            Long.getLong("load.budget.p99-ms", 250),
+            Double.parseDouble(System.getProperty("load.budget.throughput", "0")),
+            Double.parseDouble(System.getProperty("load.budget.error-rate", "0.01")),
+            Path.of(System.getProperty("load.report-dir", "target/load-test"))
+        );
+    }
+
+    /**
+     * Parse a mix such as {@code read:60,search:25,write:10,account:5}, the weights of the operations.
+     */
+    static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] weight = entry.trim().split(":");
+            if (weight.length != 2) {
+                throw new IllegalArgumentException("Invalid load.mix entry: " + entry);
+            }
+            weights.put(Operation.valueOf(weight[0].trim().toUpperCase(Locale.ROOT)), Integer.parseInt(weight[1].trim()));
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("The load.mix has no weight: " + mix);
+        }
+        return weights;
+    }
+
+    public int getVirtualUsers() {
+        return virtualUsers;
+    }
+
+    public Duration getWarmup() {
+        return warmup;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public Map<Operation, Integer> getMix() {
+        return mix;
+    }
+
+    public int getSeedCredentials() {
+        return seedCredentials;
+    }
+
+    public long getP99BudgetMs() {
+        return p99BudgetMs;
+    }
+
+    public double getMinThroughput() {
+        return minThroughput;
+    }
+
+    public double getMaxErrorRate() {
+        return maxErrorRate;
+    }
+
+    public Path getReportDirectory() {
+        return reportDirectory;
+    }
+
+    @Override
+    public String toString() {
+        return (
+            "LoadTestSettings{virtualUsers=" +
+            virtualUsers +
+            ", warmup=" +
+            warmup +
+            ", duration=" +
+            duration +
+            ", mix=" +
+            mix +
+            ", seedCredentials=" +
+            seedCredentials +
+            "}"
+        );
+    }
+}
@@ -0,0 +1,158 @@
+package com.claudiu.macovei.load;
+
+import com.claudiu.macovei.security.AuthoritiesConstants;
+import com.claudiu.macovei.security.SecurityUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A local OpenID Connect issuer: it signs access tokens with its own RSA key, and serves its discovery document,
+ * its JWK set and the userinfo of the tokens it issued.
+ */
+public class StubIdentityProvider implements AutoCloseable {
+
+    private static final String CLIENT_ID = "web_app";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final RSAKey key;
+
+    private final JWSSigner signer;
+
+    private final HttpServer server;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    public StubIdentityProvider() throws IOException, JOSEException {
+        key = new RSAKeyGenerator(2048).keyID("load-test").generate();
+        signer = new RSASSASigner(key);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/.well-known/openid-configuration", exchange -> respond(exchange, 200, discovery()));
+        server.createContext("/jwks", exchange -> respond(exchange, 200, new JWKSet(key.toPublicJWK()).toString()));
+        server.createContext("/userinfo", this::userInfo);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String getIssuer() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public String getJwkSetUri() {
+        return getIssuer() + "/jwks";
+    }
+
+    public String getUserInfoUri() {
+        return getIssuer() + "/userinfo";
+    }
+
+    public String getClientId() {
+        return CLIENT_ID;
+    }
+
+    /**
+     * Issue a signed access token.
+     *
+     * @param sub the subject of the token.
+     * @param validity how long the token is valid.
+     * @return the serialized token.
+     */
+    public String issueToken(String sub, Duration validity) {
+        Instant now = Instant.now();
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+            .issuer(getIssuer())
+            .subject(sub)
+            .audience(List.of(CLIENT_ID, "account"))
+            .issueTime(Date.from(now))
+            .expirationTime(Date.from(now.plus(validity)))
+            .claim("preferred_username", username(sub))
+            .claim("email", username(sub) + "@example.com")
+            .claim(SecurityUtils.CLAIMS_NAMESPACE + "roles", List.of(AuthoritiesConstants.USER))
+            .build();
+        SignedJWT token = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(), claims);
+        try {
+            token.sign(signer);
+        } catch (JOSEException e) {
+            throw new IllegalStateException("Could not sign the token of " + sub, e);
+        }
+        return token.serialize();
+    }
+
+    private static String username(String sub) {
+        return "load-" + sub;
+    }
+
+    private String discovery() {
+        ObjectNode discovery = objectMapper.createObjectNode();
+        discovery.put("issuer", getIssuer());
+        discovery.put("jwks_uri", getJwkSetUri());
+        discovery.put("userinfo_endpoint", getUserInfoUri());
+        discovery.put("authorization_endpoint", getIssuer() + "/auth");
+        discovery.put("token_endpoint", getIssuer() + "/token");
+        discovery.putArray("subject_types_supported").add("public");
+        discovery.putArray("id_token_signing_alg_values_supported").add("RS256");
+        return discovery.toString();
+    }
+
+    private void userInfo(HttpExchange exchange) throws IOException {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            respond(exchange, 401, "{}");
+            return;
+        }
+        String sub;
+        try {
+            sub = SignedJWT.parse(authorization.substring("Bearer ".length())).getJWTClaimsSet().getSubject();
+        } catch (ParseException e) {
+            respond(exchange, 401, "{}");
+            return;
+        }
+        ObjectNode user = objectMapper.createObjectNode();
+        user.put("sub", sub);
+        user.put("preferred_username", username(sub));
+        user.put("given_name", "Load");
+        user.put("family_name", "User " + sub);
+        user.put("email", username(sub) + "@example.com");
+        user.putArray(SecurityUtils.CLAIMS_NAMESPACE + "roles").add(AuthoritiesConstants.USER);
+        respond(exchange, 200, user.toString());
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -1,5 +1,9 @@
 package com.claudiu.macovei.config;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
@@ -9,4 +13,478 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
  * See {@link tech.jhipster.config.JHipsterProperties} for a good example.
  */
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
-public class ApplicationProperties {}
+public class ApplicationProperties {
+
+    private final Search search = new Search();
+
+    private final Cache cache = new Cache();
+
+    private final Oauth2 oauth2 = new Oauth2();
+
+    private final UserSync userSync = new UserSync();
+
+    private final CredentialFeed credentialFeed = new CredentialFeed();
+
+    public Search getSearch() {
+        return search;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public Oauth2 getOauth2() {
+        return oauth2;
+    }
+
+    public UserSync getUserSync() {
+        return userSync;
+    }
+
+    public CredentialFeed getCredentialFeed() {
+        return credentialFeed;
+    }
+
+    public static class Search {
+
+        private int trackTotalHitsUpTo = 10000;
+
+        private final Indexer indexer = new Indexer();
+
+        private final Reindex reindex = new Reindex();
+
+        public int getTrackTotalHitsUpTo() {
+            return trackTotalHitsUpTo;
+        }
+
+        public void setTrackTotalHitsUpTo(int trackTotalHitsUpTo) {
+            this.trackTotalHitsUpTo = trackTotalHitsUpTo;
+        }
+
+        public Indexer getIndexer() {
+            return indexer;
+        }
+
+        public Reindex getReindex() {
+            return reindex;
+        }
+
+        public static class Indexer {
+
+            private boolean async = true;
+
+            private int bulkSize = 500;
+
+            private long flushIntervalMs = 1000;
+
+            private int queueCapacity = 10000;
+
+            private long offerTimeoutMs = 50;
+
+            private int maxAttempts = 3;
+
+            private long retryBackoffMs = 200;
+
+            public boolean isAsync() {
+                return async;
+            }
+
+            public void setAsync(boolean async) {
+                this.async = async;
+            }
+
+            public int getBulkSize() {
+                return bulkSize;
+            }
+
+            public void setBulkSize(int bulkSize) {
+                this.bulkSize = bulkSize;
+            }
+
+            public long getFlushIntervalMs() {
+                return flushIntervalMs;
+            }
+
+            public void setFlushIntervalMs(long flushIntervalMs) {
+                this.flushIntervalMs = flushIntervalMs;
+            }
+
+            public int getQueueCapacity() {
+                return queueCapacity;
+            }
+
+            public void setQueueCapacity(int queueCapacity) {
+                this.queueCapacity = queueCapacity;
+            }
+
+            public long getOfferTimeoutMs() {
+                return offerTimeoutMs;
+            }
+
+            public void setOfferTimeoutMs(long offerTimeoutMs) {
+                this.offerTimeoutMs = offerTimeoutMs;
+            }
+
+            public int getMaxAttempts() {
+                return maxAttempts;
+            }
+
+            public void setMaxAttempts(int maxAttempts) {
+                this.maxAttempts = maxAttempts;
+            }
+
+            public long getRetryBackoffMs() {
+                return retryBackoffMs;
+            }
+
+            public void setRetryBackoffMs(long retryBackoffMs) {
+                this.retryBackoffMs = retryBackoffMs;
+            }
+        }
+
+        public static class Reindex {
+
+            private int parallelism = 4;
+
+            private int chunkSize = 1000;
+
+            public int getParallelism() {
+                return parallelism;
+            }
+
+            public void setParallelism(int parallelism) {
+                this.parallelism = parallelism;
+            }
+
+            public int getChunkSize() {
+                return chunkSize;
+            }
+
+            public void setChunkSize(int chunkSize) {
+                this.chunkSize = chunkSize;
+            }
+        }
+    }
+
+    public static class Cache {
+
+        private String codec;
+
+        private Map<String, Region> regions = new HashMap<>();
+
+        private final NearCache nearCache = new NearCache();
+
+        public String getCodec() {
+            return codec;
+        }
+
+        public void setCodec(String codec) {
+            this.codec = codec;
+        }
+
+        public Map<String, Region> getRegions() {
+            return regions;
+        }
+
+        public void setRegions(Map<String, Region> regions) {
+            this.regions = regions;
+        }
+
+        public NearCache getNearCache() {
+            return nearCache;
+        }
+
+        public static class Region {
+
+            private Long timeToLiveSeconds;
+
+            private boolean accessExpiry = false;
+
+            private Long maxEntries;
+
+            private boolean statisticsEnabled = true;
+
+            public Long getTimeToLiveSeconds() {
+                return timeToLiveSeconds;
+            }
+
+            public void setTimeToLiveSeconds(Long timeToLiveSeconds) {
+                this.timeToLiveSeconds = timeToLiveSeconds;
+            }
+
+            public boolean isAccessExpiry() {
+                return accessExpiry;
+            }
+
+            public void setAccessExpiry(boolean accessExpiry) {
+                this.accessExpiry = accessExpiry;
+            }
+
+            public Long getMaxEntries() {
+                return maxEntries;
+            }
+
+            public void setMaxEntries(Long maxEntries) {
+                this.maxEntries = maxEntries;
+            }
+
+            public boolean isStatisticsEnabled() {
+                return statisticsEnabled;
+            }
+
+            public void setStatisticsEnabled(boolean statisticsEnabled) {
+                this.statisticsEnabled = statisticsEnabled;
+            }
+        }
+
+        public static class NearCache {
+
+            private boolean enabled = false;
+
+            private long maxEntries = 10000;
+
+            private long timeToLiveSeconds = 300;
+
+            private List<String> regions = new ArrayList<>();
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public long getMaxEntries() {
+                return maxEntries;
+            }
+
+            public void setMaxEntries(long maxEntries) {
+                this.maxEntries = maxEntries;
+            }
+
+            public long getTimeToLiveSeconds() {
+                return timeToLiveSeconds;
+            }
+
+            public void setTimeToLiveSeconds(long timeToLiveSeconds) {
+                this.timeToLiveSeconds = timeToLiveSeconds;
+            }
+
+            public List<String> getRegions() {
+                return regions;
+            }
+
+            public void setRegions(List<String> regions) {
+                this.regions = regions;
+            }
+        }
+    }
+
+    public static class Oauth2 {
+
+        private final Userinfo userinfo = new Userinfo();
+
+        private final Refresh refresh = new Refresh();
+
+        public Userinfo getUserinfo() {
+            return userinfo;
+        }
+
+        public Refresh getRefresh() {
+            return refresh;
+        }
+
+        public static class Userinfo {
+
+            private long maxEntries = 10000;
+
+            private long timeToLiveSeconds = 300;
+
+            private boolean sharedCache = false;
+
+            private long connectTimeoutMs = 1000;
+
+            private long readTimeoutMs = 2000;
+
+            private long awaitTimeoutMs = 3000;
+
+            private int failureThreshold = 5;
+
+            private long openDurationSeconds = 30;
+
+            private boolean tokenClaimsFirst = false;
+
+            private List<String> requiredClaims = new ArrayList<>(List.of("preferred_username"));
+
+            public long getMaxEntries() {
+                return maxEntries;
+            }
+
+            public void setMaxEntries(long maxEntries) {
+                this.maxEntries = maxEntries;
+            }
+
+            public long getTimeToLiveSeconds() {
+                return timeToLiveSeconds;
+            }
+
+            public void setTimeToLiveSeconds(long timeToLiveSeconds) {
+                this.timeToLiveSeconds = timeToLiveSeconds;
+            }
+
+            public boolean isSharedCache() {
+                return sharedCache;
+            }
+
+            public void setSharedCache(boolean sharedCache) {
+                this.sharedCache = sharedCache;
+            }
+
+            public long getConnectTimeoutMs() {
+                return connectTimeoutMs;
+            }
+
+            public void setConnectTimeoutMs(long connectTimeoutMs) {
+                this.connectTimeoutMs = connectTimeoutMs;
+            }
+
+            public long getReadTimeoutMs() {
+                return readTimeoutMs;
+            }
+
+            public void setReadTimeoutMs(long readTimeoutMs) {
+                this.readTimeoutMs = readTimeoutMs;
+            }
+
+            public long getAwaitTimeoutMs() {
+                return awaitTimeoutMs;
+            }
+
+            public void setAwaitTimeoutMs(long awaitTimeoutMs) {
+                this.awaitTimeoutMs = awaitTimeoutMs;
+            }
+
+            public int getFailureThreshold() {
+                return failureThreshold;
+            }
+
+            public void setFailureThreshold(int failureThreshold) {
+                this.failureThreshold = failureThreshold;
+            }
+
+            public long getOpenDurationSeconds() {
+                return openDurationSeconds;
+            }
+
+            public void setOpenDurationSeconds(long openDurationSeconds) {
+                this.openDurationSeconds = openDurationSeconds;
+            }
+
+            public boolean isTokenClaimsFirst() {
+                return tokenClaimsFirst;
+            }
+
+            public void setTokenClaimsFirst(boolean tokenClaimsFirst) {
+                this.tokenClaimsFirst = tokenClaimsFirst;
+            }
+
+            public List<String> getRequiredClaims() {
+                return requiredClaims;
+            }
+
+            public void setRequiredClaims(List<String> requiredClaims) {
+                this.requiredClaims = requiredClaims;
+            }
+        }
+
+        public static class Refresh {
+
+            private long clockSkewSeconds = 60;
+
+            private long awaitTimeoutMs = 5000;
+
+            public long getClockSkewSeconds() {
+                return clockSkewSeconds;
+            }
+
+            public void setClockSkewSeconds(long clockSkewSeconds) {
+                this.clockSkewSeconds = clockSkewSeconds;
+            }
+
+            public long getAwaitTimeoutMs() {
+                return awaitTimeoutMs;
+            }
+
+            public void setAwaitTimeoutMs(long awaitTimeoutMs) {
+                this.awaitTimeoutMs = awaitTimeoutMs;
+            }
+        }
+    }
+
+    public static class UserSync {
+
+        private long maxEntries = 10000;
+
+        private long timeToLiveSeconds = 300;
+
+        public long getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(long maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public long getTimeToLiveSeconds() {
+            return timeToLiveSeconds;
+        }
+
+        public void setTimeToLiveSeconds(long timeToLiveSeconds) {
+            this.timeToLiveSeconds = timeToLiveSeconds;
+        }
+    }
+
+    public static class CredentialFeed {
+
+        private int historySize = 10000;
+
+        private long gapTimeoutMs = 1000;
+
+        private int subscriberQueueSize = 1000;
+
+        private long watchTimeoutMs = 300000;
+
+        public int getHistorySize() {
+            return historySize;
+        }
+
+        public void setHistorySize(int historySize) {
+            this.historySize = historySize;
+        }
+
+        public long getGapTimeoutMs() {
+            return gapTimeoutMs;
+        }
+
+        public void setGapTimeoutMs(long gapTimeoutMs) {
+            this.gapTimeoutMs = gapTimeoutMs;
+        }
+
+        public int getSubscriberQueueSize() {
+            return subscriberQueueSize;
+        }
+
+        public void setSubscriberQueueSize(int subscriberQueueSize) {
+            this.subscriberQueueSize = subscriberQueueSize;
+        }
+
+        public long getWatchTimeoutMs() {
+            return watchTimeoutMs;
+        }
+
+        public void setWatchTimeoutMs(long watchTimeoutMs) {
+            this.watchTimeoutMs = watchTimeoutMs;
+        }
+    }
+}
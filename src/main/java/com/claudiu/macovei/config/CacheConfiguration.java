@@ -1,12 +1,22 @@
 package com.claudiu.macovei.config;
 
+import com.claudiu.macovei.config.cache.CacheRegionMetrics;
+import com.claudiu.macovei.config.cache.InstrumentedCacheManager;
+import com.claudiu.macovei.config.cache.NearCacheManager;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import javax.cache.configuration.MutableConfiguration;
 import javax.cache.expiry.CreatedExpiryPolicy;
 import javax.cache.expiry.Duration;
+import javax.cache.expiry.TouchedExpiryPolicy;
 import org.hibernate.cache.jcache.ConfigSettings;
 import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
 import org.redisson.config.ClusterServersConfig;
 import org.redisson.config.Config;
 import org.redisson.config.SingleServerConfig;
@@ -31,10 +41,8 @@ public class CacheConfiguration {
     private GitProperties gitProperties;
     private BuildProperties buildProperties;
 
-    @Bean
-    public javax.cache.configuration.Configuration<Object, Object> jcacheConfiguration(JHipsterProperties jHipsterProperties) {
-        MutableConfiguration<Object, Object> jcacheConfig = new MutableConfiguration<>();
-
+    @Bean(destroyMethod = "shutdown")
+    public RedissonClient redissonClient(JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties) {
         URI redisUri = URI.create(jHipsterProperties.getCache().getRedis().getServer()[0]);
 
         Config config = new Config();
@@ -61,20 +69,90 @@ public class CacheConfiguration {
                 singleServerConfig.setPassword(redisUri.getUserInfo().substring(redisUri.getUserInfo().indexOf(':') + 1));
             }
         }
+        if (applicationProperties.getCache().getCodec() != null) {
+            config.setCodec(createCodec(applicationProperties.getCache().getCodec()));
+        }
+        return Redisson.create(config);
+    }
+
+    /**
+     * The codec is shared by every region, as Redisson's JCache serializes with the codec of its client.
+     */
+    private Codec createCodec(String codecClassName) {
+        try {
+            return (Codec) Class.forName(codecClassName).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalStateException("Invalid cache codec " + codecClassName, e);
+        }
+    }
+
+    @Bean
+    public javax.cache.configuration.Configuration<Object, Object> jcacheConfiguration(
+        JHipsterProperties jHipsterProperties,
+        RedissonClient redissonClient
+    ) {
+        MutableConfiguration<Object, Object> jcacheConfig = new MutableConfiguration<>();
         jcacheConfig.setStatisticsEnabled(true);
         jcacheConfig.setExpiryPolicyFactory(
             CreatedExpiryPolicy.factoryOf(new Duration(TimeUnit.SECONDS, jHipsterProperties.getCache().getRedis().getExpiration()))
         );
-        return RedissonConfiguration.fromInstance(Redisson.create(config), jcacheConfig);
+        return RedissonConfiguration.fromInstance(redissonClient, jcacheConfig);
+    }
+
+    /**
+     * Hibernate reads the second-level cache regions through a cache manager timing every call to Redis. With
+     * {@code application.cache.near-cache.enabled}, hot entities are also served from memory instead of costing a
+     * Redis round trip on every hit.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer hibernatePropertiesCustomizer(
+        javax.cache.CacheManager cm,
+        RedissonClient redissonClient,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        ApplicationProperties.Cache.NearCache nearCache = applicationProperties.getCache().getNearCache();
+        javax.cache.CacheManager hibernateCacheManager = new InstrumentedCacheManager(cm, meterRegistry);
+        if (nearCache.isEnabled()) {
+            Map<String, Long> maxEntriesByCache = new HashMap<>();
+            for (String cacheName : nearCache.getRegions()) {
+                ApplicationProperties.Cache.Region region = applicationProperties.getCache().getRegions().get(cacheName);
+                boolean regionMaxEntries = region != null && region.getMaxEntries() != null;
+                maxEntriesByCache.put(cacheName, regionMaxEntries ? region.getMaxEntries() : nearCache.getMaxEntries());
+            }
+            hibernateCacheManager =
+                new NearCacheManager(
+                    hibernateCacheManager,
+                    redissonClient,
+                    NearCacheManager.NearCacheSettings.of(
+                        maxEntriesByCache,
+                        java.time.Duration.ofSeconds(nearCache.getTimeToLiveSeconds())
+                    ),
+                    meterRegistry
+                );
+        }
+        javax.cache.CacheManager regionCacheManager = hibernateCacheManager;
+        return hibernateProperties -> hibernateProperties.put(ConfigSettings.CACHE_MANAGER, regionCacheManager);
     }
 
     @Bean
-    public HibernatePropertiesCustomizer hibernatePropertiesCustomizer(javax.cache.CacheManager cm) {
-        return hibernateProperties -> hibernateProperties.put(ConfigSettings.CACHE_MANAGER, cm);
+    public CacheRegionMetrics cacheRegionMetrics(
+        javax.cache.CacheManager cm,
+        RedissonClient redissonClient,
+        JHipsterProperties jHipsterProperties
+    ) {
+        return new CacheRegionMetrics(cm.getCacheNames(), redissonClient, jHipsterProperties.getCache().getRedis().getConnectionPoolSize());
     }
 
     @Bean
-    public JCacheManagerCustomizer cacheManagerCustomizer(javax.cache.configuration.Configuration<Object, Object> jcacheConfiguration) {
+    public JCacheManagerCustomizer cacheManagerCustomizer(
+        javax.cache.configuration.Configuration<Object, Object> defaultJcacheConfiguration,
+        RedissonClient redissonClient,
+        JHipsterProperties jHipsterProperties,
+        ApplicationProperties applicationProperties
+    ) {
+        Function<String, javax.cache.configuration.Configuration<Object, Object>> jcacheConfiguration = cacheName ->
+            regionConfiguration(cacheName, defaultJcacheConfiguration, redissonClient, jHipsterProperties, applicationProperties);
         return cm -> {
             createCache(cm, com.claudiu.macovei.repository.UserRepository.USERS_BY_LOGIN_CACHE, jcacheConfiguration);
             createCache(cm, com.claudiu.macovei.repository.UserRepository.USERS_BY_EMAIL_CACHE, jcacheConfiguration);
@@ -90,16 +168,43 @@ public class CacheConfiguration {
         };
     }
 
+    /**
+     * The configuration of a region: the default one, unless {@code application.cache.regions} overrides its expiry
+     * or statistics.
+     */
+    private javax.cache.configuration.Configuration<Object, Object> regionConfiguration(
+        String cacheName,
+        javax.cache.configuration.Configuration<Object, Object> defaultJcacheConfiguration,
+        RedissonClient redissonClient,
+        JHipsterProperties jHipsterProperties,
+        ApplicationProperties applicationProperties
+    ) {
+        ApplicationProperties.Cache.Region region = applicationProperties.getCache().getRegions().get(cacheName);
+        if (region == null) {
+            return defaultJcacheConfiguration;
+        }
+        MutableConfiguration<Object, Object> jcacheConfig = new MutableConfiguration<>();
+        jcacheConfig.setStatisticsEnabled(region.isStatisticsEnabled());
+        long timeToLiveSeconds = region.getTimeToLiveSeconds() != null
+            ? region.getTimeToLiveSeconds()
+            : jHipsterProperties.getCache().getRedis().getExpiration();
+        Duration expiry = new Duration(TimeUnit.SECONDS, timeToLiveSeconds);
+        jcacheConfig.setExpiryPolicyFactory(
+            region.isAccessExpiry() ? TouchedExpiryPolicy.factoryOf(expiry) : CreatedExpiryPolicy.factoryOf(expiry)
+        );
+        return RedissonConfiguration.fromInstance(redissonClient, jcacheConfig);
+    }
+
     private void createCache(
         javax.cache.CacheManager cm,
         String cacheName,
-        javax.cache.configuration.Configuration<Object, Object> jcacheConfiguration
+        Function<String, javax.cache.configuration.Configuration<Object, Object>> jcacheConfiguration
     ) {
         javax.cache.Cache<Object, Object> cache = cm.getCache(cacheName);
         if (cache != null) {
             cache.clear();
         } else {
-            cm.createCache(cacheName, jcacheConfiguration);
+            cm.createCache(cacheName, jcacheConfiguration.apply(cacheName));
         }
     }
 
@@ -0,0 +1,28 @@
+package com.claudiu.macovei.config;
+
+import com.claudiu.macovei.repository.RevisionRepository;
+import com.claudiu.macovei.service.CredentialChangeFeed;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.redisson.api.RedissonClient;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class CredentialFeedConfiguration {
+
+    @Bean
+    public CredentialChangeFeed credentialChangeFeed(
+        RevisionRepository revisionRepository,
+        ObjectMapper objectMapper,
+        RedissonClient redissonClient,
+        ApplicationProperties applicationProperties
+    ) {
+        ApplicationProperties.CredentialFeed properties = applicationProperties.getCredentialFeed();
+        CredentialChangeFeed credentialChangeFeed = new CredentialChangeFeed(revisionRepository, objectMapper, redissonClient);
+        credentialChangeFeed.setHistorySize(properties.getHistorySize());
+        credentialChangeFeed.setGapTimeoutMs(properties.getGapTimeoutMs());
+        credentialChangeFeed.setSubscriberQueueSize(properties.getSubscriberQueueSize());
+        credentialChangeFeed.setWatchTimeoutMs(properties.getWatchTimeoutMs());
+        return credentialChangeFeed;
+    }
+}
@@ -1,10 +1,24 @@
 package com.claudiu.macovei.config;
 
+import com.claudiu.macovei.repository.CredentialRepository;
+import com.claudiu.macovei.repository.EntityIdRangeRepository;
+import com.claudiu.macovei.repository.IdentityProviderRepository;
+import com.claudiu.macovei.repository.ServiceProviderRepository;
+import com.claudiu.macovei.repository.UserRepository;
+import com.claudiu.macovei.repository.search.CredentialSearchRepository;
+import com.claudiu.macovei.repository.search.SearchIndexAdminRepository;
+import com.claudiu.macovei.repository.search.SearchQuerySettings;
+import com.claudiu.macovei.service.CredentialSearchIndexer;
+import com.claudiu.macovei.service.SearchIndexRecorder;
+import com.claudiu.macovei.service.SearchReindexService;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.Arrays;
+import java.util.concurrent.Executor;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.convert.converter.Converter;
@@ -12,6 +26,8 @@ import org.springframework.data.convert.ReadingConverter;
 import org.springframework.data.convert.WritingConverter;
 import org.springframework.data.elasticsearch.config.ElasticsearchConfigurationSupport;
 import org.springframework.data.elasticsearch.core.convert.ElasticsearchCustomConversions;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Configuration
 public class ElasticsearchConfiguration extends ElasticsearchConfigurationSupport {
@@ -31,6 +47,71 @@ public class ElasticsearchConfiguration extends ElasticsearchConfigurationSuppor
         );
     }
 
+    @Bean
+    public SearchQuerySettings searchQuerySettings(ApplicationProperties applicationProperties) {
+        return new SearchQuerySettings(applicationProperties.getSearch().getTrackTotalHitsUpTo());
+    }
+
+    @Bean
+    public CredentialSearchIndexer credentialSearchIndexer(
+        CredentialRepository credentialRepository,
+        CredentialSearchRepository credentialSearchRepository,
+        @Qualifier("taskExecutor") Executor taskExecutor,
+        MeterRegistry meterRegistry,
+        ApplicationProperties applicationProperties
+    ) {
+        ApplicationProperties.Search.Indexer properties = applicationProperties.getSearch().getIndexer();
+        CredentialSearchIndexer indexer = new CredentialSearchIndexer(
+            credentialRepository,
+            credentialSearchRepository,
+            taskExecutor,
+            meterRegistry,
+            properties.getQueueCapacity()
+        );
+        indexer.setAsync(properties.isAsync());
+        indexer.setBulkSize(properties.getBulkSize());
+        indexer.setOfferTimeoutMs(properties.getOfferTimeoutMs());
+        indexer.setMaxAttempts(properties.getMaxAttempts());
+        indexer.setRetryBackoffMs(properties.getRetryBackoffMs());
+        return indexer;
+    }
+
+    @Bean
+    public SearchReindexService searchReindexService(
+        EntityIdRangeRepository entityIdRangeRepository,
+        CredentialRepository credentialRepository,
+        ServiceProviderRepository serviceProviderRepository,
+        IdentityProviderRepository identityProviderRepository,
+        UserRepository userRepository,
+        SearchIndexAdminRepository searchIndexAdminRepository,
+        CredentialSearchIndexer credentialSearchIndexer,
+        SearchIndexRecorder searchIndexRecorder,
+        PlatformTransactionManager transactionManager,
+        @Qualifier("taskExecutor") Executor taskExecutor,
+        MeterRegistry meterRegistry,
+        ApplicationProperties applicationProperties
+    ) {
+        TransactionTemplate readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        readOnlyTransactionTemplate.setReadOnly(true);
+        SearchReindexService searchReindexService = new SearchReindexService(
+            entityIdRangeRepository,
+            credentialRepository,
+            serviceProviderRepository,
+            identityProviderRepository,
+            userRepository,
+            searchIndexAdminRepository,
+            credentialSearchIndexer,
+            searchIndexRecorder,
+            readOnlyTransactionTemplate,
+            taskExecutor,
+            meterRegistry
+        );
+        ApplicationProperties.Search.Reindex properties = applicationProperties.getSearch().getReindex();
+        searchReindexService.setParallelism(properties.getParallelism());
+        searchReindexService.setChunkSize(properties.getChunkSize());
+        return searchReindexService;
+    }
+
     @WritingConverter
     static class ZonedDateTimeWritingConverter implements Converter<ZonedDateTime, String> {
 
@@ -1,5 +1,6 @@
 package com.claudiu.macovei.config;
 
+import com.claudiu.macovei.web.filter.OAuth2RefreshTokensWebFilter;
 import java.time.Duration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -15,8 +16,11 @@ public class OAuth2Configuration {
     @Bean
     public OAuth2AuthorizedClientManager authorizedClientManager(
         ClientRegistrationRepository clientRegistrationRepository,
-        OAuth2AuthorizedClientRepository authorizedClientRepository
+        OAuth2AuthorizedClientRepository authorizedClientRepository,
+        ApplicationProperties applicationProperties
     ) {
+        // the same skew as OAuth2RefreshTokensWebFilter, so that the tokens it hands over are refreshed
+        Duration clockSkew = Duration.ofSeconds(applicationProperties.getOauth2().getRefresh().getClockSkewSeconds());
         DefaultOAuth2AuthorizedClientManager authorizedClientManager = new DefaultOAuth2AuthorizedClientManager(
             clientRegistrationRepository,
             authorizedClientRepository
@@ -26,7 +30,7 @@ public class OAuth2Configuration {
             OAuth2AuthorizedClientProviderBuilder
                 .builder()
                 .authorizationCode()
-                .refreshToken(builder -> builder.clockSkew(Duration.ofMinutes(1)))
+                .refreshToken(builder -> builder.clockSkew(clockSkew))
                 .clientCredentials()
                 .password()
                 .build()
@@ -34,4 +38,21 @@ public class OAuth2Configuration {
 
         return authorizedClientManager;
     }
+
+    @Bean
+    public OAuth2RefreshTokensWebFilter oauth2RefreshTokensWebFilter(
+        OAuth2AuthorizedClientManager authorizedClientManager,
+        OAuth2AuthorizedClientRepository authorizedClientRepository,
+        ClientRegistrationRepository clientRegistrationRepository,
+        ApplicationProperties applicationProperties
+    ) {
+        ApplicationProperties.Oauth2.Refresh refresh = applicationProperties.getOauth2().getRefresh();
+        return new OAuth2RefreshTokensWebFilter(
+            authorizedClientManager,
+            authorizedClientRepository,
+            clientRegistrationRepository,
+            Duration.ofSeconds(refresh.getClockSkewSeconds()),
+            Duration.ofMillis(refresh.getAwaitTimeoutMs())
+        );
+    }
 }
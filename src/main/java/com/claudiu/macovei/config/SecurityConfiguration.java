@@ -5,7 +5,12 @@ import com.claudiu.macovei.security.SecurityUtils;
 import com.claudiu.macovei.security.oauth2.AudienceValidator;
 import com.claudiu.macovei.security.oauth2.CustomClaimConverter;
 import com.claudiu.macovei.security.oauth2.JwtGrantedAuthorityConverter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
 import java.util.*;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
@@ -40,6 +45,8 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
 
     private final JHipsterProperties jHipsterProperties;
 
+    private final ApplicationProperties applicationProperties;
+
     private final CorsFilter corsFilter;
 
     @Value("${spring.security.oauth2.client.provider.oidc.issuer-uri}")
@@ -47,10 +54,16 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
 
     private final SecurityProblemSupport problemSupport;
 
-    public SecurityConfiguration(CorsFilter corsFilter, JHipsterProperties jHipsterProperties, SecurityProblemSupport problemSupport) {
+    public SecurityConfiguration(
+        CorsFilter corsFilter,
+        JHipsterProperties jHipsterProperties,
+        ApplicationProperties applicationProperties,
+        SecurityProblemSupport problemSupport
+    ) {
         this.corsFilter = corsFilter;
         this.problemSupport = problemSupport;
         this.jHipsterProperties = jHipsterProperties;
+        this.applicationProperties = applicationProperties;
     }
 
     @Override
@@ -140,7 +153,12 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
     }
 
     @Bean
-    JwtDecoder jwtDecoder(ClientRegistrationRepository clientRegistrationRepository, RestTemplateBuilder restTemplateBuilder) {
+    JwtDecoder jwtDecoder(
+        ClientRegistrationRepository clientRegistrationRepository,
+        RestTemplateBuilder restTemplateBuilder,
+        ObjectProvider<RedissonClient> redissonClient,
+        MeterRegistry meterRegistry
+    ) {
         NimbusJwtDecoder jwtDecoder = JwtDecoders.fromOidcIssuerLocation(issuerUri);
 
         OAuth2TokenValidator<Jwt> audienceValidator = new AudienceValidator(jHipsterProperties.getSecurity().getOauth2().getAudience());
@@ -148,9 +166,22 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
         OAuth2TokenValidator<Jwt> withAudience = new DelegatingOAuth2TokenValidator<>(withIssuer, audienceValidator);
 
         jwtDecoder.setJwtValidator(withAudience);
-        jwtDecoder.setClaimSetConverter(
-            new CustomClaimConverter(clientRegistrationRepository.findByRegistrationId("oidc"), restTemplateBuilder.build())
+        ApplicationProperties.Oauth2.Userinfo userinfo = applicationProperties.getOauth2().getUserinfo();
+        CustomClaimConverter customClaimConverter = new CustomClaimConverter(
+            clientRegistrationRepository.findByRegistrationId("oidc"),
+            restTemplateBuilder
+                .setConnectTimeout(Duration.ofMillis(userinfo.getConnectTimeoutMs()))
+                .setReadTimeout(Duration.ofMillis(userinfo.getReadTimeoutMs()))
+                .build(),
+            userinfo.getMaxEntries(),
+            Duration.ofSeconds(userinfo.getTimeToLiveSeconds()),
+            userinfo.isSharedCache() ? redissonClient.getObject().getMapCache("userinfo", StringCodec.INSTANCE) : null
         );
+        customClaimConverter.setMeterRegistry(meterRegistry);
+        customClaimConverter.setCircuitBreaker(userinfo.getFailureThreshold(), Duration.ofSeconds(userinfo.getOpenDurationSeconds()));
+        customClaimConverter.setAwaitTimeout(Duration.ofMillis(userinfo.getAwaitTimeoutMs()));
+        customClaimConverter.setTokenClaimsFirst(userinfo.isTokenClaimsFirst(), new HashSet<>(userinfo.getRequiredClaims()));
+        jwtDecoder.setClaimSetConverter(customClaimConverter);
 
         return jwtDecoder;
     }
@@ -0,0 +1,36 @@
+package com.claudiu.macovei.config;
+
+import com.claudiu.macovei.repository.UserRepository;
+import com.claudiu.macovei.repository.search.UserSearchRepository;
+import com.claudiu.macovei.service.AuthorityRegistry;
+import com.claudiu.macovei.service.SearchIndexRecorder;
+import com.claudiu.macovei.service.UserService;
+import java.time.Duration;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class UserConfiguration {
+
+    @Bean
+    public UserService userService(
+        UserRepository userRepository,
+        UserSearchRepository userSearchRepository,
+        SearchIndexRecorder searchIndexRecorder,
+        AuthorityRegistry authorityRegistry,
+        CacheManager cacheManager,
+        ApplicationProperties applicationProperties
+    ) {
+        ApplicationProperties.UserSync properties = applicationProperties.getUserSync();
+        return new UserService(
+            userRepository,
+            userSearchRepository,
+            searchIndexRecorder,
+            authorityRegistry,
+            cacheManager,
+            properties.getMaxEntries(),
+            Duration.ofSeconds(properties.getTimeToLiveSeconds())
+        );
+    }
+}
@@ -0,0 +1,171 @@
+package com.claudiu.macovei.config.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Stream;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.redisson.Redisson;
+import org.redisson.api.NodeType;
+import org.redisson.api.RedissonClient;
+import org.redisson.connection.ClientConnectionsEntry;
+import org.redisson.connection.MasterSlaveEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Publishes the JCache statistics of every cache region, and the use of the Redisson connection pools.
+ * <p>
+ * The statistics are read from the {@code javax.cache:type=CacheStatistics} MBeans that Redisson registers for the
+ * caches with statistics enabled. They are the counts of the Redis tier: the near cache has its own
+ * {@code cache.near.*} meters.
+ */
+public class CacheRegionMetrics implements MeterBinder {
+
+    private final Logger log = LoggerFactory.getLogger(CacheRegionMetrics.class);
+
+    private final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+
+    private final Iterable<String> cacheNames;
+
+    private final RedissonClient redissonClient;
+
+    private final int connectionPoolSize;
+
+    /**
+     * @param cacheNames the names of the cache regions.
+     * @param redissonClient the client whose connection pools are published.
+     * @param connectionPoolSize the size of the connection pool of each master node.
+     */
+    public CacheRegionMetrics(Iterable<String> cacheNames, RedissonClient redissonClient, int connectionPoolSize) {
+        this.cacheNames = cacheNames;
+        this.redissonClient = redissonClient;
+        this.connectionPoolSize = connectionPoolSize;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (String cacheName : cacheNames) {
+            bindRegion(registry, cacheName);
+        }
+        bindConnectionPools(registry);
+    }
+
+    private void bindRegion(MeterRegistry registry, String cacheName) {
+        RegionStatistics statistics = new RegionStatistics(cacheName);
+        counter(registry, "cache.region.gets", cacheName, statistics, s -> s.read("CacheHits"), "result", "hit");
+        counter(registry, "cache.region.gets", cacheName, statistics, s -> s.read("CacheMisses"), "result", "miss");
+        counter(registry, "cache.region.puts", cacheName, statistics, s -> s.read("CachePuts"));
+        counter(registry, "cache.region.removals", cacheName, statistics, s -> s.read("CacheRemovals"));
+        counter(registry, "cache.region.evictions", cacheName, statistics, s -> s.read("CacheEvictions"));
+        // the averages are in microseconds
+        Gauge
+            .builder("cache.region.average.latency", statistics, s -> s.read("AverageGetTime") / TimeUnit.SECONDS.toMicros(1))
+            .tags("region", cacheName, "operation", "get")
+            .baseUnit("seconds")
+            .register(registry);
+        Gauge
+            .builder("cache.region.average.latency", statistics, s -> s.read("AveragePutTime") / TimeUnit.SECONDS.toMicros(1))
+            .tags("region", cacheName, "operation", "put")
+            .baseUnit("seconds")
+            .register(registry);
+    }
+
+    private void counter(
+        MeterRegistry registry,
+        String name,
+        String cacheName,
+        RegionStatistics statistics,
+        ToDoubleFunction<RegionStatistics> count,
+        String... tags
+    ) {
+        FunctionCounter.builder(name, statistics, count).tags("region", cacheName).tags(tags).register(registry);
+    }
+
+    private void bindConnectionPools(MeterRegistry registry) {
+        if (!(redissonClient instanceof Redisson)) {
+            return;
+        }
+        Redisson redisson = (Redisson) redissonClient;
+        Gauge
+            .builder("redisson.pool.connections", redisson, r -> masterEntries(r).mapToInt(ClientConnectionsEntry::getFreeAmount).sum())
+            .tags("state", "idle")
+            .description("The free connections of the pools of the master nodes")
+            .register(registry);
+        Gauge
+            .builder("redisson.pool.connections", redisson, r -> (double) masterEntries(r).count() * connectionPoolSize)
+            .tags("state", "max")
+            .description("The size of the pools of the master nodes")
+            .register(registry);
+        Gauge
+            .builder("redisson.pool.usage", redisson, this::usage)
+            .description("The share of the connections of the master nodes in use")
+            .register(registry);
+    }
+
+    private double usage(Redisson redisson) {
+        long masters = masterEntries(redisson).count();
+        if (masters == 0 || connectionPoolSize == 0) {
+            return Double.NaN;
+        }
+        int free = masterEntries(redisson).mapToInt(ClientConnectionsEntry::getFreeAmount).sum();
+        return 1 - (double) free / (masters * connectionPoolSize);
+    }
+
+    private static Stream<ClientConnectionsEntry> masterEntries(Redisson redisson) {
+        return redisson
+            .getConnectionManager()
+            .getEntrySet()
+            .stream()
+            .map(MasterSlaveEntry::getAllEntries)
+            .flatMap(Collection::stream)
+            .filter(entry -> entry.getNodeType() == NodeType.MASTER);
+    }
+
+    /**
+     * Reads the statistics MBean of a region, looked up lazily as it may be registered after the binding.
+     */
+    private class RegionStatistics {
+
+        private final String cacheName;
+
+        private ObjectName objectName;
+
+        RegionStatistics(String cacheName) {
+            this.cacheName = cacheName;
+        }
+
+        double read(String attribute) {
+            try {
+                ObjectName name = objectName();
+                if (name == null) {
+                    return Double.NaN;
+                }
+                return ((Number) mBeanServer.getAttribute(name, attribute)).doubleValue();
+            } catch (JMException e) {
+                log.debug("Could not read {} of the cache {}: {}", attribute, cacheName, e.getMessage());
+                objectName = null;
+                return Double.NaN;
+            }
+        }
+
+        private ObjectName objectName() throws JMException {
+            if (objectName == null) {
+                Set<ObjectName> names = mBeanServer.queryNames(
+                    new ObjectName("javax.cache:type=CacheStatistics,Cache=" + cacheName.replaceAll("[,:=\n]", ".") + ",*"),
+                    null
+                );
+                objectName = names.isEmpty() ? null : names.iterator().next();
+            }
+            return objectName;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.claudiu.macovei.config.cache;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.configuration.Configuration;
+import javax.cache.spi.CachingProvider;
+
+/**
+ * A {@link CacheManager} forwarding every call to another cache manager, and decorating the caches it returns.
+ * <p>
+ * Each cache is decorated once: the same decorated instance is returned until the cache is destroyed.
+ */
+public abstract class ForwardingCacheManager implements CacheManager {
+
+    private final CacheManager delegate;
+
+    private final Map<String, Cache<?, ?>> caches = new ConcurrentHashMap<>();
+
+    protected ForwardingCacheManager(CacheManager delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Decorate a cache of the delegate.
+     *
+     * @param cacheName the name of the cache.
+     * @param cache the cache of the delegate.
+     * @return the decorated cache, or the cache itself if it is not decorated.
+     */
+    protected abstract <K, V> Cache<K, V> decorate(String cacheName, Cache<K, V> cache);
+
+    /**
+     * Called when a cache is destroyed, to release what its decorator holds.
+     */
+    protected void destroyed(String cacheName) {}
+
+    @SuppressWarnings("unchecked")
+    private <K, V> Cache<K, V> decorated(String cacheName, Cache<K, V> cache) {
+        if (cache == null) {
+            return null;
+        }
+        return (Cache<K, V>) caches.computeIfAbsent(cacheName, name -> decorate(name, cache));
+    }
+
+    @Override
+    public CachingProvider getCachingProvider() {
+        return delegate.getCachingProvider();
+    }
+
+    @Override
+    public URI getURI() {
+        return delegate.getURI();
+    }
+
+    @Override
+    public ClassLoader getClassLoader() {
+        return delegate.getClassLoader();
+    }
+
+    @Override
+    public Properties getProperties() {
+        return delegate.getProperties();
+    }
+
+    @Override
+    public <K, V, C extends Configuration<K, V>> Cache<K, V> createCache(String cacheName, C configuration) {
+        return decorated(cacheName, delegate.createCache(cacheName, configuration));
+    }
+
+    @Override
+    public <K, V> Cache<K, V> getCache(String cacheName, Class<K> keyType, Class<V> valueType) {
+        return decorated(cacheName, delegate.getCache(cacheName, keyType, valueType));
+    }
+
+    @Override
+    public <K, V> Cache<K, V> getCache(String cacheName) {
+        return decorated(cacheName, delegate.getCache(cacheName));
+    }
+
+    @Override
+    public Iterable<String> getCacheNames() {
+        return delegate.getCacheNames();
+    }
+
+    @Override
+    public void destroyCache(String cacheName) {
+        caches.remove(cacheName);
+        destroyed(cacheName);
+        delegate.destroyCache(cacheName);
+    }
+
+    @Override
+    public void enableManagement(String cacheName, boolean enabled) {
+        delegate.enableManagement(cacheName, enabled);
+    }
+
+    @Override
+    public void enableStatistics(String cacheName, boolean enabled) {
+        delegate.enableStatistics(cacheName, enabled);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return delegate.isClosed();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> clazz) {
+        if (clazz.isInstance(this)) {
+            return clazz.cast(this);
+        }
+        return delegate.unwrap(clazz);
+    }
+}
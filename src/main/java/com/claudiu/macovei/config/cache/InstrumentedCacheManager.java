@@ -0,0 +1,117 @@
+package com.claudiu.macovei.config.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Map;
+import java.util.Set;
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+
+/**
+ * A {@link CacheManager} timing the calls made to the caches of another cache manager, as {@code cache.region.latency}
+ * histograms tagged with the region and the operation.
+ */
+public class InstrumentedCacheManager extends ForwardingCacheManager {
+
+    private final MeterRegistry meterRegistry;
+
+    public InstrumentedCacheManager(CacheManager delegate, MeterRegistry meterRegistry) {
+        super(delegate);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected <K, V> Cache<K, V> decorate(String cacheName, Cache<K, V> cache) {
+        return new InstrumentedCache<>(cache, this, timer(cacheName, "get"), timer(cacheName, "put"), timer(cacheName, "remove"));
+    }
+
+    private Timer timer(String cacheName, String operation) {
+        return Timer
+            .builder("cache.region.latency")
+            .tags("region", cacheName, "operation", operation)
+            .description("The latency of the calls to the remote cache")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+
+    static class InstrumentedCache<K, V> extends ForwardingCache<K, V> {
+
+        private final Timer getTimer;
+
+        private final Timer putTimer;
+
+        private final Timer removeTimer;
+
+        InstrumentedCache(Cache<K, V> delegate, CacheManager cacheManager, Timer getTimer, Timer putTimer, Timer removeTimer) {
+            super(delegate, cacheManager);
+            this.getTimer = getTimer;
+            this.putTimer = putTimer;
+            this.removeTimer = removeTimer;
+        }
+
+        @Override
+        public V get(K key) {
+            return getTimer.record(() -> super.get(key));
+        }
+
+        @Override
+        public Map<K, V> getAll(Set<? extends K> keys) {
+            return getTimer.record(() -> super.getAll(keys));
+        }
+
+        @Override
+        public boolean containsKey(K key) {
+            return getTimer.record(() -> super.containsKey(key));
+        }
+
+        @Override
+        public void put(K key, V value) {
+            putTimer.record(() -> super.put(key, value));
+        }
+
+        @Override
+        public V getAndPut(K key, V value) {
+            return putTimer.record(() -> super.getAndPut(key, value));
+        }
+
+        @Override
+        public void putAll(Map<? extends K, ? extends V> map) {
+            putTimer.record(() -> super.putAll(map));
+        }
+
+        @Override
+        public boolean putIfAbsent(K key, V value) {
+            return putTimer.record(() -> super.putIfAbsent(key, value));
+        }
+
+        @Override
+        public boolean replace(K key, V value) {
+            return putTimer.record(() -> super.replace(key, value));
+        }
+
+        @Override
+        public boolean replace(K key, V oldValue, V newValue) {
+            return putTimer.record(() -> super.replace(key, oldValue, newValue));
+        }
+
+        @Override
+        public boolean remove(K key) {
+            return removeTimer.record(() -> super.remove(key));
+        }
+
+        @Override
+        public boolean remove(K key, V oldValue) {
+            return removeTimer.record(() -> super.remove(key, oldValue));
+        }
+
+        @Override
+        public V getAndRemove(K key) {
+            return removeTimer.record(() -> super.getAndRemove(key));
+        }
+
+        @Override
+        public void removeAll(Set<? extends K> keys) {
+            removeTimer.record(() -> super.removeAll(keys));
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.claudiu.macovei.config.cache;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.integration.CompletionListener;
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.EntryProcessorException;
+import javax.cache.processor.EntryProcessorResult;
+
+/**
+ * A {@link Cache} keeping a bounded in-process copy of the entries read from a remote cache.
+ * <p>
+ * Reads are served from the local copy when possible. Every write goes to the remote cache first, then drops the
+ * local entry and publishes an invalidation, so that the other nodes drop their copy too. A read only fills the local
+ * copy if no invalidation happened while it was reading the remote cache, so that a stale value read concurrently with
+ * a write is never kept.
+ */
+public class NearCache<K, V> extends ForwardingCache<K, V> {
+
+    private final com.github.benmanes.caffeine.cache.Cache<K, V> local;
+
+    private final BiConsumer<String, K> invalidationPublisher;
+
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * @param delegate the remote cache.
+     * @param cacheManager the cache manager exposing this cache.
+     * @param local the bounded local copy.
+     * @param invalidationPublisher publishes the invalidation of a key of the named cache, or of all its keys when the key is {@code null}.
+     */
+    public NearCache(
+        Cache<K, V> delegate,
+        CacheManager cacheManager,
+        com.github.benmanes.caffeine.cache.Cache<K, V> local,
+        BiConsumer<String, K> invalidationPublisher
+    ) {
+        super(delegate, cacheManager);
+        this.local = local;
+        this.invalidationPublisher = invalidationPublisher;
+    }
+
+    /**
+     * @return the local copy, for the metrics.
+     */
+    public com.github.benmanes.caffeine.cache.Cache<K, V> getLocal() {
+        return local;
+    }
+
+    /**
+     * Drop the local entry of a key written by another node.
+     */
+    void evictLocal(K key) {
+        invalidations.incrementAndGet();
+        local.invalidate(key);
+    }
+
+    /**
+     * Drop all the local entries, when another node cleared the cache or invalidations may have been missed.
+     */
+    void evictAllLocal() {
+        invalidations.incrementAndGet();
+        local.invalidateAll();
+    }
+
+    private void invalidate(K key) {
+        evictLocal(key);
+        invalidationPublisher.accept(getName(), key);
+    }
+
+    private void invalidateAll(Set<? extends K> keys) {
+        invalidations.incrementAndGet();
+        local.invalidateAll(keys);
+        keys.forEach(key -> invalidationPublisher.accept(getName(), key));
+    }
+
+    private void invalidateAll() {
+        evictAllLocal();
+        invalidationPublisher.accept(getName(), null);
+    }
+
+    @Override
+    public V get(K key) {
+        V value = local.getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        long before = invalidations.get();
+        value = delegate().get(key);
+        if (value != null && invalidations.get() == before) {
+            local.put(key, value);
+        }
+        return value;
+    }
+
+    @Override
+    public Map<K, V> getAll(Set<? extends K> keys) {
+        Map<K, V> values = new HashMap<>(local.getAllPresent(keys));
+        if (values.size() == keys.size()) {
+            return values;
+        }
+        Set<K> missing = new HashSet<>(keys);
+        missing.removeAll(values.keySet());
+        long before = invalidations.get();
+        Map<K, V> remote = delegate().getAll(missing);
+        if (invalidations.get() == before) {
+            local.putAll(remote);
+        }
+        values.putAll(remote);
+        return values;
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return local.getIfPresent(key) != null || delegate().containsKey(key);
+    }
+
+    @Override
+    public void loadAll(Set<? extends K> keys, boolean replaceExistingValues, CompletionListener completionListener) {
+        delegate().loadAll(keys, replaceExistingValues, completionListener);
+        if (replaceExistingValues) {
+            invalidateAll(keys);
+        }
+    }
+
+    @Override
+    public void put(K key, V value) {
+        delegate().put(key, value);
+        invalidate(key);
+    }
+
+    @Override
+    public V getAndPut(K key, V value) {
+        V previous = delegate().getAndPut(key, value);
+        invalidate(key);
+        return previous;
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        delegate().putAll(map);
+        invalidateAll(map.keySet());
+    }
+
+    @Override
+    public boolean putIfAbsent(K key, V value) {
+        boolean put = delegate().putIfAbsent(key, value);
+        if (put) {
+            invalidate(key);
+        }
+        return put;
+    }
+
+    @Override
+    public boolean remove(K key) {
+        boolean removed = delegate().remove(key);
+        invalidate(key);
+        return removed;
+    }
+
+    @Override
+    public boolean remove(K key, V oldValue) {
+        boolean removed = delegate().remove(key, oldValue);
+        if (removed) {
+            invalidate(key);
+        }
+        return removed;
+    }
+
+    @Override
+    public V getAndRemove(K key) {
+        V previous = delegate().getAndRemove(key);
+        invalidate(key);
+        return previous;
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        boolean replaced = delegate().replace(key, oldValue, newValue);
+        if (replaced) {
+            invalidate(key);
+        }
+        return replaced;
+    }
+
+    @Override
+    public boolean replace(K key, V value) {
+        boolean replaced = delegate().replace(key, value);
+        if (replaced) {
+            invalidate(key);
+        }
+        return replaced;
+    }
+
+    @Override
+    public V getAndReplace(K key, V value) {
+        V previous = delegate().getAndReplace(key, value);
+        if (previous != null) {
+            invalidate(key);
+        }
+        return previous;
+    }
+
+    @Override
+    public void removeAll(Set<? extends K> keys) {
+        delegate().removeAll(keys);
+        invalidateAll(keys);
+    }
+
+    @Override
+    public void removeAll() {
+        delegate().removeAll();
+        invalidateAll();
+    }
+
+    @Override
+    public void clear() {
+        delegate().clear();
+        invalidateAll();
+    }
+
+    @Override
+    public <T> T invoke(K key, EntryProcessor<K, V, T> entryProcessor, Object... arguments) throws EntryProcessorException {
+        try {
+            return delegate().invoke(key, entryProcessor, arguments);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public <T> Map<K, EntryProcessorResult<T>> invokeAll(
+        Set<? extends K> keys,
+        EntryProcessor<K, V, T> entryProcessor,
+        Object... arguments
+    ) {
+        try {
+            return delegate().invokeAll(keys, entryProcessor, arguments);
+        } finally {
+            invalidateAll(keys);
+        }
+    }
+
+    @Override
+    public void close() {
+        local.invalidateAll();
+        super.close();
+    }
+
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+        Iterator<Entry<K, V>> iterator = delegate().iterator();
+        return new Iterator<>() {
+            private Entry<K, V> current;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Entry<K, V> next() {
+                current = iterator.next();
+                return current;
+            }
+
+            @Override
+            public void remove() {
+                iterator.remove();
+                invalidate(current.getKey());
+            }
+        };
+    }
+}
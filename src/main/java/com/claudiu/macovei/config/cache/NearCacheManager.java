@@ -0,0 +1,193 @@
+package com.claudiu.macovei.config.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.listener.BaseStatusListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link CacheManager} wrapping the caches of the configured regions in a {@link NearCache}.
+ * <p>
+ * The invalidations are sent over a Redis topic. Pub/sub delivery is at most once, so the local entries also expire
+ * after a while, and all of them are dropped whenever the topic is (re)subscribed, as messages may have been missed
+ * while disconnected.
+ */
+public class NearCacheManager extends ForwardingCacheManager {
+
+    static final String INVALIDATION_TOPIC = "near-cache:invalidations";
+
+    private final Logger log = LoggerFactory.getLogger(NearCacheManager.class);
+
+    private final RTopic topic;
+
+    private final NearCacheSettings settings;
+
+    private final MeterRegistry meterRegistry;
+
+    private final String origin = UUID.randomUUID().toString();
+
+    private final Map<String, NearCache<Object, Object>> nearCaches = new ConcurrentHashMap<>();
+
+    /**
+     * @param delegate the cache manager of the remote caches.
+     * @param redissonClient the client of the invalidation topic.
+     * @param settings the near cache settings of the regions.
+     * @param meterRegistry the registry of the near cache metrics, or {@code null} not to publish any.
+     */
+    public NearCacheManager(CacheManager delegate, RedissonClient redissonClient, NearCacheSettings settings, MeterRegistry meterRegistry) {
+        super(delegate);
+        this.settings = settings;
+        this.meterRegistry = meterRegistry;
+        this.topic = redissonClient.getTopic(INVALIDATION_TOPIC);
+        this.topic.addListener(Invalidation.class, (channel, invalidation) -> onInvalidation(invalidation));
+        this.topic.addListener(
+                new BaseStatusListener() {
+                    @Override
+                    public void onSubscribe(String channel) {
+                        log.debug("Subscribed to the near cache invalidations, dropping the local entries");
+                        nearCaches.values().forEach(NearCache::evictAllLocal);
+                    }
+                }
+            );
+    }
+
+    /**
+     * The near cache settings of the regions.
+     */
+    @FunctionalInterface
+    public interface NearCacheSettings {
+        /**
+         * @param cacheName the name of the cache.
+         * @return the builder of the local copy of the cache, or {@code null} if the cache has no near cache.
+         */
+        Caffeine<Object, Object> localCacheBuilder(String cacheName);
+
+        /**
+         * Settings near-caching the given regions, each with its own maximum number of entries.
+         */
+        static NearCacheSettings of(Map<String, Long> maxEntriesByCache, Duration timeToLive) {
+            return cacheName -> {
+                Long maxEntries = maxEntriesByCache.get(cacheName);
+                return maxEntries != null ? Caffeine.newBuilder().maximumSize(maxEntries).expireAfterWrite(timeToLive) : null;
+            };
+        }
+    }
+
+    /**
+     * @return the near caches created so far, by name.
+     */
+    public Map<String, NearCache<Object, Object>> getNearCaches() {
+        return nearCaches;
+    }
+
+    private void onInvalidation(Invalidation invalidation) {
+        if (origin.equals(invalidation.origin)) {
+            return;
+        }
+        NearCache<Object, Object> nearCache = nearCaches.get(invalidation.cacheName);
+        if (nearCache == null) {
+            return;
+        }
+        if (invalidation.key == null) {
+            nearCache.evictAllLocal();
+        } else {
+            nearCache.evictLocal(invalidation.key);
+        }
+    }
+
+    private void publish(String cacheName, Object key) {
+        try {
+            topic.publishAsync(new Invalidation(origin, cacheName, key));
+        } catch (RuntimeException e) {
+            log.warn("Could not publish the invalidation of the near cache {}: {}", cacheName, e.getMessage());
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected <K, V> Cache<K, V> decorate(String cacheName, Cache<K, V> cache) {
+        Caffeine<Object, Object> builder = settings.localCacheBuilder(cacheName);
+        if (builder == null) {
+            return cache;
+        }
+        NearCache<Object, Object> nearCache = new NearCache<>(
+            (Cache<Object, Object>) cache,
+            this,
+            builder.recordStats().build(),
+            this::publish
+        );
+        nearCaches.put(cacheName, nearCache);
+        if (meterRegistry != null) {
+            bindMetrics(cacheName, nearCache);
+        }
+        return (Cache<K, V>) nearCache;
+    }
+
+    private void bindMetrics(String cacheName, NearCache<Object, Object> nearCache) {
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> local = nearCache.getLocal();
+        FunctionCounter
+            .builder("cache.near.gets", local, c -> c.stats().hitCount())
+            .tags("region", cacheName, "result", "hit")
+            .description("The number of reads served by the near cache")
+            .register(meterRegistry);
+        FunctionCounter
+            .builder("cache.near.gets", local, c -> c.stats().missCount())
+            .tags("region", cacheName, "result", "miss")
+            .description("The number of reads going through to Redis")
+            .register(meterRegistry);
+        FunctionCounter
+            .builder("cache.near.evictions", local, c -> c.stats().evictionCount())
+            .tags("region", cacheName)
+            .description("The number of entries evicted from the near cache by its size bound or its expiry")
+            .register(meterRegistry);
+        Gauge.builder("cache.near.size", local, c -> c.estimatedSize()).tags("region", cacheName).register(meterRegistry);
+    }
+
+    @Override
+    protected void destroyed(String cacheName) {
+        NearCache<Object, Object> nearCache = nearCaches.remove(cacheName);
+        if (nearCache != null) {
+            nearCache.evictAllLocal();
+        }
+    }
+
+    @Override
+    public void close() {
+        nearCaches.values().forEach(NearCache::evictAllLocal);
+        super.close();
+    }
+
+    /**
+     * The invalidation of a key of a cache, or of all its keys when the key is {@code null}.
+     */
+    static class Invalidation implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private String origin;
+
+        private String cacheName;
+
+        private Object key;
+
+        Invalidation() {}
+
+        Invalidation(String origin, String cacheName, Object key) {
+            this.origin = origin;
+            this.cacheName = cacheName;
+            this.key = key;
+        }
+    }
+}
@@ -36,6 +36,12 @@ public class Credential implements Serializable {
     @Column(name = "password")
     private String password;
 
+    /**
+     * The revision of the last write of the row, increasing with every write of any revisioned entity.
+     */
+    @Column(name = "revision")
+    private Long revision;
+
     @OneToOne
     @JoinColumn(unique = true)
     private IdentityProvider identityProvider;
@@ -155,6 +161,19 @@ public class Credential implements Serializable {
         return this;
     }
 
+    public Long getRevision() {
+        return this.revision;
+    }
+
+    public Credential revision(Long revision) {
+        this.setRevision(revision);
+        return this;
+    }
+
+    public void setRevision(Long revision) {
+        this.revision = revision;
+    }
+
     // jhipster-needle-entity-add-getters-setters - JHipster will add getters and setters here
 
     @Override
@@ -183,6 +202,7 @@ public class Credential implements Serializable {
             ", enabled='" + getEnabled() + "'" +
             ", username='" + getUsername() + "'" +
             ", password='" + getPassword() + "'" +
+            ", revision=" + getRevision() +
             "}";
     }
 }
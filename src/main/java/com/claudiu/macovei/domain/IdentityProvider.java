@@ -24,6 +24,12 @@ public class IdentityProvider implements Serializable {
     @Column(name = "name")
     private String name;
 
+    /**
+     * The revision of the last write of the row, increasing with every write of any revisioned entity.
+     */
+    @Column(name = "revision")
+    private Long revision;
+
     // jhipster-needle-entity-add-field - JHipster will add fields here
 
     public Long getId() {
@@ -52,6 +58,19 @@ public class IdentityProvider implements Serializable {
         this.name = name;
     }
 
+    public Long getRevision() {
+        return this.revision;
+    }
+
+    public IdentityProvider revision(Long revision) {
+        this.setRevision(revision);
+        return this;
+    }
+
+    public void setRevision(Long revision) {
+        this.revision = revision;
+    }
+
     // jhipster-needle-entity-add-getters-setters - JHipster will add getters and setters here
 
     @Override
@@ -77,6 +96,7 @@ public class IdentityProvider implements Serializable {
         return "IdentityProvider{" +
             "id=" + getId() +
             ", name='" + getName() + "'" +
+            ", revision=" + getRevision() +
             "}";
     }
 }
@@ -32,6 +32,12 @@ public class ServiceProvider implements Serializable {
     @JsonIgnoreProperties(value = { "identityProvider", "serviceProviders" }, allowSetters = true)
     private Set<Credential> credentials = new HashSet<>();
 
+    /**
+     * The revision of the last write of the row, increasing with every write of any revisioned entity.
+     */
+    @Column(name = "revision")
+    private Long revision;
+
     // jhipster-needle-entity-add-field - JHipster will add fields here
 
     public Long getId() {
@@ -91,6 +97,19 @@ public class ServiceProvider implements Serializable {
         return this;
     }
 
+    public Long getRevision() {
+        return this.revision;
+    }
+
+    public ServiceProvider revision(Long revision) {
+        this.setRevision(revision);
+        return this;
+    }
+
+    public void setRevision(Long revision) {
+        this.revision = revision;
+    }
+
     // jhipster-needle-entity-add-getters-setters - JHipster will add getters and setters here
 
     @Override
@@ -116,6 +135,7 @@ public class ServiceProvider implements Serializable {
         return "ServiceProvider{" +
             "id=" + getId() +
             ", name='" + getName() + "'" +
+            ", revision=" + getRevision() +
             "}";
     }
 }
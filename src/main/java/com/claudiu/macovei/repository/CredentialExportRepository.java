@@ -0,0 +1,109 @@
+package com.claudiu.macovei.repository;
+
+import com.claudiu.macovei.domain.Credential;
+import com.claudiu.macovei.domain.IdentityProvider;
+import com.claudiu.macovei.domain.ServiceProvider;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import javax.sql.DataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Plain JDBC repository reading every {@link Credential} over a forward-only cursor.
+ * <p>
+ * Credentials are read in id order and handed out in fixed-size batches; the service providers of a batch
+ * are then read from {@code rel_credential__service_provider} with one ordered range query. Memory usage only
+ * depends on the batch size, not on the size of the table.
+ * <p>
+ * This must not run inside a transaction: the service provider queries need their own connection while the
+ * credential cursor is still open. With MySQL, the JDBC URL needs {@code useCursorFetch=true} for the fetch
+ * size to be honoured.
+ */
+@Repository
+public class CredentialExportRepository {
+
+    public static final int BATCH_SIZE = 500;
+
+    private static final String CREDENTIAL_QUERY =
+        "select c.id, c.profile, c.enabled, c.username, c.password, c.revision, " +
+        "ip.id as identity_provider_id, ip.name as identity_provider_name " +
+        "from credential c left join identity_provider ip on ip.id = c.identity_provider_id " +
+        "order by c.id";
+
+    private static final String SERVICE_PROVIDER_QUERY =
+        "select r.credential_id, sp.id as service_provider_id, sp.name as service_provider_name " +
+        "from rel_credential__service_provider r join service_provider sp on sp.id = r.service_provider_id " +
+        "where r.credential_id between ? and ? " +
+        "order by r.credential_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CredentialExportRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(BATCH_SIZE);
+    }
+
+    /**
+     * Read all the credentials, with their identity provider and service providers.
+     *
+     * @param batchConsumer called with each batch of at most {@link #BATCH_SIZE} credentials, in id order;
+     * the list is reused once the consumer returns.
+     */
+    public void streamAll(Consumer<List<Credential>> batchConsumer) {
+        List<Credential> batch = new ArrayList<>(BATCH_SIZE);
+        jdbcTemplate.query(
+            CREDENTIAL_QUERY,
+            (RowCallbackHandler) rs -> {
+                batch.add(mapCredential(rs));
+                if (batch.size() >= BATCH_SIZE) {
+                    publish(batch, batchConsumer);
+                }
+            }
+        );
+        if (!batch.isEmpty()) {
+            publish(batch, batchConsumer);
+        }
+    }
+
+    private void publish(List<Credential> batch, Consumer<List<Credential>> batchConsumer) {
+        Map<Long, Credential> credentialsById = new HashMap<>(batch.size() * 2);
+        batch.forEach(credential -> credentialsById.put(credential.getId(), credential));
+        jdbcTemplate.query(
+            SERVICE_PROVIDER_QUERY,
+            (RowCallbackHandler) rs -> {
+                Credential credential = credentialsById.get(rs.getLong("credential_id"));
+                if (credential != null) {
+                    credential
+                        .getServiceProviders()
+                        .add(new ServiceProvider().id(rs.getLong("service_provider_id")).name(rs.getString("service_provider_name")));
+                }
+            },
+            batch.get(0).getId(),
+            batch.get(batch.size() - 1).getId()
+        );
+        batchConsumer.accept(batch);
+        batch.clear();
+    }
+
+    private static Credential mapCredential(ResultSet rs) throws SQLException {
+        Credential credential = new Credential()
+            .id(rs.getLong("id"))
+            .profile(rs.getString("profile"))
+            .enabled(rs.getObject("enabled", Boolean.class))
+            .username(rs.getString("username"))
+            .password(rs.getString("password"))
+            .revision(rs.getObject("revision", Long.class));
+        long identityProviderId = rs.getLong("identity_provider_id");
+        if (!rs.wasNull()) {
+            credential.setIdentityProvider(new IdentityProvider().id(identityProviderId).name(rs.getString("identity_provider_name")));
+        }
+        return credential;
+    }
+}
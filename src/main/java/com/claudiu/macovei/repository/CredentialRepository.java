@@ -1,6 +1,7 @@
 package com.claudiu.macovei.repository;
 
 import com.claudiu.macovei.domain.Credential;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.domain.Page;
@@ -14,15 +15,37 @@ import org.springframework.stereotype.Repository;
  */
 @Repository
 public interface CredentialRepository extends JpaRepository<Credential, Long> {
-    @Query(
-        value = "select distinct credential from Credential credential left join fetch credential.serviceProviders",
-        countQuery = "select count(distinct credential) from Credential credential"
-    )
-    Page<Credential> findAllWithEagerRelationships(Pageable pageable);
+    @Query(value = "select credential.id from Credential credential", countQuery = "select count(credential) from Credential credential")
+    Page<Long> findAllIds(Pageable pageable);
+
+    @Query("select credential.id from Credential credential where credential.id > :id order by credential.id")
+    List<Long> findAllIdsAfter(@Param("id") Long id, Pageable pageable);
+
+    @Query("select distinct credential from Credential credential left join fetch credential.serviceProviders where credential.id in :ids")
+    List<Credential> findAllWithEagerRelationshipsByIdIn(@Param("ids") Collection<Long> ids);
 
     @Query("select distinct credential from Credential credential left join fetch credential.serviceProviders")
     List<Credential> findAllWithEagerRelationships();
 
+    @Query(
+        "select distinct credential from Credential credential left join fetch credential.identityProvider " +
+        "left join fetch credential.serviceProviders where credential.enabled = true"
+    )
+    List<Credential> findAllEnabledWithEagerRelationships();
+
     @Query("select credential from Credential credential left join fetch credential.serviceProviders where credential.id =:id")
     Optional<Credential> findOneWithEagerRelationships(@Param("id") Long id);
+
+    @Query("select credential.revision from Credential credential where credential.id = :id")
+    Optional<Long> findRevisionById(@Param("id") Long id);
+
+    List<Credential> findAllByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @Query("select credential.id from Credential credential where credential.revision > :revision order by credential.revision")
+    List<Long> findAllIdsChangedAfter(@Param("revision") Long revision, Pageable pageable);
+
+    @Query("select credential from Credential credential join credential.serviceProviders serviceProvider where serviceProvider.id = :id")
+    List<Credential> findAllByServiceProviderId(@Param("id") Long id);
+
+    List<Credential> findAllByIdentityProviderId(Long id);
 }
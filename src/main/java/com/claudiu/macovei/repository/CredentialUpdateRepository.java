@@ -0,0 +1,171 @@
+package com.claudiu.macovei.repository;
+
+import com.claudiu.macovei.domain.Credential;
+import com.claudiu.macovei.domain.ServiceProvider;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Plain JDBC repository updating a {@link Credential} without reading it first.
+ * <p>
+ * The revision the client read acts as the optimistic lock: {@code update credential set ..., revision = ? where id = ?
+ * and revision = ?} updates no row once the credential was changed or deleted since. Only the given columns are
+ * written, along with the new revision.
+ * <p>
+ * As the statements bypass Hibernate, the credential is detached from the persistence context and evicted from the
+ * second-level cache, again once the transaction commits, so that its stale state is never read afterwards. So are
+ * the credential collections of the service providers added to or removed from it, and only those.
+ * Must be called in a transaction.
+ */
+@Repository
+public class CredentialUpdateRepository {
+
+    public static final String PROFILE = "profile";
+
+    public static final String ENABLED = "enabled";
+
+    public static final String USERNAME = "username";
+
+    public static final String PASSWORD = "password";
+
+    public static final String IDENTITY_PROVIDER_ID = "identity_provider_id";
+
+    private static final Set<String> COLUMNS = Set.of(PROFILE, ENABLED, USERNAME, PASSWORD, IDENTITY_PROVIDER_ID);
+
+    private static final String SERVICE_PROVIDERS_ROLE = Credential.class.getName() + ".serviceProviders";
+
+    private static final String CREDENTIALS_ROLE = ServiceProvider.class.getName() + ".credentials";
+
+    private static final String SERVICE_PROVIDERS_QUERY =
+        "select service_provider_id from rel_credential__service_provider where credential_id = ?";
+
+    private static final String DELETE_SERVICE_PROVIDER_QUERY =
+        "delete from rel_credential__service_provider where credential_id = ? and service_provider_id = ?";
+
+    private static final String INSERT_SERVICE_PROVIDER_QUERY =
+        "insert into rel_credential__service_provider (credential_id, service_provider_id) values (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final EntityManager entityManager;
+
+    private final Cache cache;
+
+    public CredentialUpdateRepository(DataSource dataSource, EntityManager entityManager) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.entityManager = entityManager;
+        this.cache = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getCache();
+    }
+
+    /**
+     * Update columns of a credential, and its revision, with a single statement.
+     *
+     * @param id the id of the credential.
+     * @param expectedRevision the revision the update is based on; {@code null} to update any revision.
+     * @param revision the new revision.
+     * @param columns the new values by column, among the column constants of this class.
+     * @return {@code true} if the credential was updated, {@code false} if it doesn't exist or has another revision.
+     */
+    public boolean update(Long id, Long expectedRevision, long revision, Map<String, Object> columns) {
+        List<String> assignments = new ArrayList<>(columns.size() + 1);
+        List<Object> args = new ArrayList<>(columns.size() + 3);
+        columns.forEach((column, value) -> {
+            if (!COLUMNS.contains(column)) {
+                throw new IllegalArgumentException("Not an updatable Credential column: " + column);
+            }
+            assignments.add(column + " = ?");
+            args.add(value);
+        });
+        assignments.add("revision = ?");
+        args.add(revision);
+        StringBuilder sql = new StringBuilder("update credential set ").append(String.join(", ", assignments)).append(" where id = ?");
+        args.add(id);
+        if (expectedRevision != null) {
+            sql.append(" and revision = ?");
+            args.add(expectedRevision);
+        }
+        // write the pending changes first, as the managed credential is detached below
+        entityManager.flush();
+        int updated = jdbcTemplate.update(sql.toString(), args.toArray());
+        if (updated > 0) {
+            forget(id, Collections.emptySet());
+        }
+        return updated > 0;
+    }
+
+    /**
+     * Replace the service providers of a credential. Only the rows of the service providers added or removed are
+     * written, and none when they are the same.
+     *
+     * @param id the id of the credential.
+     * @param serviceProviderIds the ids of the new service providers.
+     */
+    public void replaceServiceProviders(Long id, Set<Long> serviceProviderIds) {
+        Set<Long> previousIds = new HashSet<>(jdbcTemplate.queryForList(SERVICE_PROVIDERS_QUERY, Long.class, id));
+        if (previousIds.equals(serviceProviderIds)) {
+            return;
+        }
+        Set<Long> removedIds = previousIds
+            .stream()
+            .filter(serviceProviderId -> !serviceProviderIds.contains(serviceProviderId))
+            .collect(Collectors.toSet());
+        Set<Long> addedIds = serviceProviderIds
+            .stream()
+            .filter(serviceProviderId -> !previousIds.contains(serviceProviderId))
+            .collect(Collectors.toSet());
+        if (!removedIds.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_SERVICE_PROVIDER_QUERY, rows(id, removedIds));
+        }
+        if (!addedIds.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SERVICE_PROVIDER_QUERY, rows(id, addedIds));
+        }
+        Set<Long> changedIds = new HashSet<>(removedIds);
+        changedIds.addAll(addedIds);
+        forget(id, changedIds);
+    }
+
+    private static List<Object[]> rows(Long id, Set<Long> serviceProviderIds) {
+        return serviceProviderIds.stream().map(serviceProviderId -> new Object[] { id, serviceProviderId }).collect(Collectors.toList());
+    }
+
+    /**
+     * Detach a credential and evict it from the second-level cache, along with the credential collections of the
+     * service providers added to or removed from it.
+     */
+    private void forget(Long id, Set<Long> changedServiceProviderIds) {
+        entityManager.detach(entityManager.getReference(Credential.class, id));
+        evict(id, changedServiceProviderIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        // a concurrent transaction may have cached the previous state in the meantime
+                        evict(id, changedServiceProviderIds);
+                    }
+                }
+            );
+        }
+    }
+
+    private void evict(Long id, Set<Long> changedServiceProviderIds) {
+        cache.evictEntityData(Credential.class, id);
+        if (!changedServiceProviderIds.isEmpty()) {
+            cache.evictCollectionData(SERVICE_PROVIDERS_ROLE, id);
+            changedServiceProviderIds.forEach(serviceProviderId -> cache.evictCollectionData(CREDENTIALS_ROLE, serviceProviderId));
+        }
+    }
+}
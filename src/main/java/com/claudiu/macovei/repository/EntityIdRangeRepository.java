@@ -0,0 +1,72 @@
+package com.claudiu.macovei.repository;
+
+import java.util.List;
+import java.util.Optional;
+import javax.persistence.EntityManager;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Repository reading the numeric id space of an entity, to split full scans into ranges that can be read in parallel.
+ */
+@Repository
+@Transactional(readOnly = true)
+public class EntityIdRangeRepository {
+
+    private final EntityManager entityManager;
+
+    public EntityIdRangeRepository(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Get the lowest and highest ids of an entity.
+     *
+     * @param entityClass the entity class.
+     * @return the {@code [min, max]} ids, or empty if there is no entity.
+     */
+    public Optional<long[]> findIdBounds(Class<?> entityClass) {
+        Object[] bounds = entityManager
+            .createQuery("select min(e.id), max(e.id) from " + entityName(entityClass) + " e", Object[].class)
+            .getSingleResult();
+        if (bounds[0] == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new long[] { ((Number) bounds[0]).longValue(), ((Number) bounds[1]).longValue() });
+    }
+
+    /**
+     * Count the entities.
+     *
+     * @param entityClass the entity class.
+     * @return the number of entities.
+     */
+    public long count(Class<?> entityClass) {
+        return entityManager.createQuery("select count(e) from " + entityName(entityClass) + " e", Long.class).getSingleResult();
+    }
+
+    /**
+     * Get the ids of a range, in id order.
+     *
+     * @param entityClass the entity class.
+     * @param from the id after which the range starts (exclusive).
+     * @param to the id at which the range ends (inclusive).
+     * @param limit the maximum number of ids to return.
+     * @return the ids.
+     */
+    public List<Long> findIdsInRange(Class<?> entityClass, long from, long to, int limit) {
+        return entityManager
+            .createQuery(
+                "select e.id from " + entityName(entityClass) + " e where e.id > :from and e.id <= :to order by e.id",
+                Long.class
+            )
+            .setParameter("from", from)
+            .setParameter("to", to)
+            .setMaxResults(limit)
+            .getResultList();
+    }
+
+    private String entityName(Class<?> entityClass) {
+        return entityManager.getMetamodel().entity(entityClass).getName();
+    }
+}
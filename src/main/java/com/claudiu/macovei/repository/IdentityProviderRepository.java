@@ -1,6 +1,8 @@
 package com.claudiu.macovei.repository;
 
 import com.claudiu.macovei.domain.IdentityProvider;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.stereotype.Repository;
 
@@ -9,4 +11,6 @@ import org.springframework.stereotype.Repository;
  */
 @SuppressWarnings("unused")
 @Repository
-public interface IdentityProviderRepository extends JpaRepository<IdentityProvider, Long> {}
+public interface IdentityProviderRepository extends JpaRepository<IdentityProvider, Long> {
+    List<IdentityProvider> findAllByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+}
@@ -0,0 +1,98 @@
+package com.claudiu.macovei.repository;
+
+import java.sql.PreparedStatement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Plain JDBC repository of the row revisions, and of the tombstones of the deleted credentials.
+ * <p>
+ * Revisions are reserved from the single row of {@code revision_counter}, on the connection of the current transaction.
+ * The row stays locked until that transaction ends, so revisions are committed in increasing order: a client which
+ * read the changes up to a revision never misses a change committed later with a lower revision. The price is that
+ * the writes of revisioned entities are serialized from their reservation to their commit, which is why the services
+ * don't reserve revisions themselves: {@code RevisionAllocator} reserves them right before the transaction commits.
+ */
+@Repository
+public class RevisionRepository {
+
+    private static final String RESERVE_QUERY = "update revision_counter set revision = revision + ? where id = 1";
+
+    private static final String CURRENT_QUERY = "select revision from revision_counter where id = 1";
+
+    private static final String INSERT_TOMBSTONE_QUERY = "insert into credential_tombstone (credential_id, revision) values (?, ?)";
+
+    private static final String TOMBSTONES_QUERY =
+        "select credential_id, revision from credential_tombstone where revision > ? order by revision";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RevisionRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Reserve the next revision. Must be called in a transaction.
+     *
+     * @return the revision.
+     */
+    public long next() {
+        return reserve(1);
+    }
+
+    /**
+     * Reserve consecutive revisions. Must be called in a transaction.
+     *
+     * @param count the number of revisions.
+     * @return the first revision of the range.
+     */
+    public long reserve(int count) {
+        jdbcTemplate.update(RESERVE_QUERY, count);
+        Long last = jdbcTemplate.queryForObject(CURRENT_QUERY, Long.class);
+        return last - count + 1;
+    }
+
+    /**
+     * Get the last reserved revision.
+     *
+     * @return the revision.
+     */
+    public long current() {
+        return jdbcTemplate.queryForObject(CURRENT_QUERY, Long.class);
+    }
+
+    /**
+     * Record the deletion of a credential.
+     *
+     * @param credentialId the id of the deleted credential.
+     * @param revision the revision of the deletion.
+     */
+    public void insertCredentialTombstone(Long credentialId, long revision) {
+        jdbcTemplate.update(INSERT_TOMBSTONE_QUERY, credentialId, revision);
+    }
+
+    /**
+     * Get the deletions of credentials after a revision.
+     *
+     * @param revision the revision after which the deletions are read.
+     * @param limit the maximum number of deletions.
+     * @return the ids of the deleted credentials by revision, in revision order.
+     */
+    public Map<Long, Long> findCredentialTombstonesAfter(long revision, int limit) {
+        Map<Long, Long> tombstones = new LinkedHashMap<>();
+        jdbcTemplate.query(
+            connection -> {
+                PreparedStatement statement = connection.prepareStatement(TOMBSTONES_QUERY);
+                statement.setLong(1, revision);
+                statement.setMaxRows(limit);
+                return statement;
+            },
+            (RowCallbackHandler) rs -> tombstones.put(rs.getLong("revision"), rs.getLong("credential_id"))
+        );
+        return tombstones;
+    }
+}
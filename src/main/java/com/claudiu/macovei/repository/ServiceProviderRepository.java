@@ -1,6 +1,8 @@
 package com.claudiu.macovei.repository;
 
 import com.claudiu.macovei.domain.ServiceProvider;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.stereotype.Repository;
 
@@ -9,4 +11,6 @@ import org.springframework.stereotype.Repository;
  */
 @SuppressWarnings("unused")
 @Repository
-public interface ServiceProviderRepository extends JpaRepository<ServiceProvider, Long> {}
+public interface ServiceProviderRepository extends JpaRepository<ServiceProvider, Long> {
+    List<ServiceProvider> findAllByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+}
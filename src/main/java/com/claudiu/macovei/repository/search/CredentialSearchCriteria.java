@@ -0,0 +1,142 @@
+package com.claudiu.macovei.repository.search;
+
+import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
+import static org.elasticsearch.index.query.QueryBuilders.matchQuery;
+import static org.elasticsearch.index.query.QueryBuilders.prefixQuery;
+import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.Operator;
+
+/**
+ * Structured criteria for the {@link com.claudiu.macovei.domain.Credential} search.
+ * <p>
+ * Exact criteria compile to {@code filter} clauses of a {@code bool} query: they are not scored and Elasticsearch
+ * can cache them. Only the username match and the free-text query are scored.
+ */
+public class CredentialSearchCriteria {
+
+    private String query;
+
+    private String profile;
+
+    private Boolean enabled;
+
+    private Long identityProviderId;
+
+    private Long serviceProviderId;
+
+    private String username;
+
+    private String usernamePrefix;
+
+    public String getQuery() {
+        return query;
+    }
+
+    public void setQuery(String query) {
+        this.query = query;
+    }
+
+    public String getProfile() {
+        return profile;
+    }
+
+    public void setProfile(String profile) {
+        this.profile = profile;
+    }
+
+    public Boolean getEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Long getIdentityProviderId() {
+        return identityProviderId;
+    }
+
+    public void setIdentityProviderId(Long identityProviderId) {
+        this.identityProviderId = identityProviderId;
+    }
+
+    public Long getServiceProviderId() {
+        return serviceProviderId;
+    }
+
+    public void setServiceProviderId(Long serviceProviderId) {
+        this.serviceProviderId = serviceProviderId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getUsernamePrefix() {
+        return usernamePrefix;
+    }
+
+    public void setUsernamePrefix(String usernamePrefix) {
+        this.usernamePrefix = usernamePrefix;
+    }
+
+    /**
+     * @return {@code true} if any criterion other than the free-text query is set.
+     */
+    public boolean hasStructuredCriteria() {
+        return (
+            profile != null ||
+            enabled != null ||
+            identityProviderId != null ||
+            serviceProviderId != null ||
+            username != null ||
+            usernamePrefix != null
+        );
+    }
+
+    BoolQueryBuilder toQuery() {
+        BoolQueryBuilder bool = boolQuery();
+        if (query != null && !query.isBlank()) {
+            bool.must(SearchQueries.textQuery(query));
+        }
+        if (username != null) {
+            bool.must(matchQuery("username", username).operator(Operator.AND));
+        }
+        if (usernamePrefix != null) {
+            bool.filter(prefixQuery("username.keyword", usernamePrefix));
+        }
+        if (profile != null) {
+            bool.filter(termQuery("profile.keyword", profile));
+        }
+        if (enabled != null) {
+            bool.filter(termQuery("enabled", enabled));
+        }
+        if (identityProviderId != null) {
+            bool.filter(termQuery("identityProvider.id", identityProviderId));
+        }
+        if (serviceProviderId != null) {
+            bool.filter(termQuery("serviceProviders.id", serviceProviderId));
+        }
+        return bool;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "CredentialSearchCriteria{" +
+            (query != null ? "query='" + query + "', " : "") +
+            (profile != null ? "profile='" + profile + "', " : "") +
+            (enabled != null ? "enabled=" + enabled + ", " : "") +
+            (identityProviderId != null ? "identityProviderId=" + identityProviderId + ", " : "") +
+            (serviceProviderId != null ? "serviceProviderId=" + serviceProviderId + ", " : "") +
+            (username != null ? "username='" + username + "', " : "") +
+            (usernamePrefix != null ? "usernamePrefix='" + usernamePrefix + "', " : "") +
+            "}";
+    }
+}
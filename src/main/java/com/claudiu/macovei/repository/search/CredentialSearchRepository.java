@@ -1,21 +1,22 @@
 package com.claudiu.macovei.repository.search;
 
-import static org.elasticsearch.index.query.QueryBuilders.queryStringQuery;
-
 import com.claudiu.macovei.domain.Credential;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-import org.elasticsearch.search.sort.FieldSortBuilder;
+import java.util.Set;
+import org.apache.lucene.search.TotalHits;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
 import org.springframework.data.elasticsearch.core.SearchHit;
-import org.springframework.data.elasticsearch.core.query.NativeSearchQuery;
-import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
 import org.springframework.data.elasticsearch.repository.ElasticsearchRepository;
 
 /**
@@ -25,26 +26,119 @@ public interface CredentialSearchRepository extends ElasticsearchRepository<Cred
 
 interface CredentialSearchRepositoryInternal {
     Page<Credential> search(String query, Pageable pageable);
+
+    SearchAfterPage<Credential> search(String query, Sort sort, List<Object> searchAfter, int size);
+
+    Page<Credential> search(CredentialSearchCriteria criteria, Pageable pageable);
+
+    SearchAfterPage<Credential> search(CredentialSearchCriteria criteria, Sort sort, List<Object> searchAfter, int size);
+
+    Page<CredentialSearchSummary> searchSummaries(String query, Pageable pageable);
+
+    SearchAfterPage<CredentialSearchSummary> searchSummaries(String query, Sort sort, List<Object> searchAfter, int size);
 }
 
 class CredentialSearchRepositoryInternalImpl implements CredentialSearchRepositoryInternal {
 
+    private static final SortToFieldSortBuilderConverter SORT_CONVERTER = new SortToFieldSortBuilderConverter(Set.of("id", "enabled"));
+
     private final ElasticsearchRestTemplate elasticsearchTemplate;
 
-    CredentialSearchRepositoryInternalImpl(ElasticsearchRestTemplate elasticsearchTemplate) {
+    private final int trackTotalHitsUpTo;
+
+    CredentialSearchRepositoryInternalImpl(ElasticsearchRestTemplate elasticsearchTemplate, SearchQuerySettings searchQuerySettings) {
         this.elasticsearchTemplate = elasticsearchTemplate;
+        this.trackTotalHitsUpTo = searchQuerySettings.getTrackTotalHitsUpTo();
     }
 
     @Override
     public Page<Credential> search(String query, Pageable pageable) {
-        NativeSearchQuery nativeSearchQuery = new NativeSearchQuery(queryStringQuery(query));
-        nativeSearchQuery.setPageable(pageable);
-        List<Credential> hits = elasticsearchTemplate
-            .search(nativeSearchQuery, Credential.class)
-            .map(SearchHit::getContent)
-            .stream()
-            .collect(Collectors.toList());
-
-        return new PageImpl<>(hits, pageable, hits.size());
+        return search(SearchQueries.textQuery(query), pageable);
+    }
+
+    @Override
+    public SearchAfterPage<Credential> search(String query, Sort sort, List<Object> searchAfter, int size) {
+        return search(SearchQueries.textQuery(query), sort, searchAfter, size);
+    }
+
+    @Override
+    public Page<Credential> search(CredentialSearchCriteria criteria, Pageable pageable) {
+        return search(criteria.toQuery(), pageable);
+    }
+
+    @Override
+    public SearchAfterPage<Credential> search(CredentialSearchCriteria criteria, Sort sort, List<Object> searchAfter, int size) {
+        return search(criteria.toQuery(), sort, searchAfter, size);
+    }
+
+    private Page<Credential> search(QueryBuilder query, Pageable pageable) {
+        return SearchQueries.toPage(
+            elasticsearchTemplate.search(SearchQueries.pageQuery(query, pageable, SORT_CONVERTER, trackTotalHitsUpTo), Credential.class),
+            pageable
+        );
+    }
+
+    private SearchAfterPage<Credential> search(QueryBuilder query, Sort sort, List<Object> searchAfter, int size) {
+        return SearchQueries.toSearchAfterPage(
+            elasticsearchTemplate.search(
+                SearchQueries.searchAfterQuery(query, sort, searchAfter, size, SORT_CONVERTER, trackTotalHitsUpTo),
+                Credential.class
+            ),
+            size,
+            SearchHit::getContent
+        );
+    }
+
+    @Override
+    public Page<CredentialSearchSummary> searchSummaries(String query, Pageable pageable) {
+        SearchSourceBuilder source = summarySource(query, pageable.getSort());
+        if (pageable.isPaged()) {
+            source.from((int) pageable.getOffset()).size(pageable.getPageSize());
+        }
+        SearchHits hits = searchSummaries(source);
+        return new PageImpl<>(toSummaries(hits), pageable, hits.getTotalHits().value);
+    }
+
+    @Override
+    public SearchAfterPage<CredentialSearchSummary> searchSummaries(String query, Sort sort, List<Object> searchAfter, int size) {
+        SearchSourceBuilder source = summarySource(query, sort).size(size);
+        if (searchAfter != null) {
+            source.searchAfter(searchAfter.toArray());
+        }
+        SearchHits hits = searchSummaries(source);
+        List<CredentialSearchSummary> content = toSummaries(hits);
+        List<Object> nextSearchAfter = null;
+        if (!content.isEmpty() && content.size() >= size) {
+            nextSearchAfter = Arrays.asList(hits.getAt(hits.getHits().length - 1).getSortValues());
+        }
+        boolean totalHitsExact = hits.getTotalHits().relation == TotalHits.Relation.EQUAL_TO;
+        return new SearchAfterPage<>(content, hits.getTotalHits().value, totalHitsExact, nextSearchAfter);
+    }
+
+    /**
+     * Summaries are read with the low-level client and mapped from the filtered {@code _source} maps,
+     * without going through the entity mapping.
+     */
+    private SearchSourceBuilder summarySource(String query, Sort sort) {
+        SearchSourceBuilder source = new SearchSourceBuilder()
+            .query(SearchQueries.textQuery(query))
+            .fetchSource(CredentialSearchSummary.SOURCE_FIELDS, null)
+            .trackTotalHitsUpTo(trackTotalHitsUpTo);
+        SORT_CONVERTER.convert(sort).forEach(source::sort);
+        return source;
+    }
+
+    private SearchHits searchSummaries(SearchSourceBuilder source) {
+        String indexName = elasticsearchTemplate.getIndexCoordinatesFor(Credential.class).getIndexName();
+        SearchRequest request = new SearchRequest(indexName).source(source);
+        return elasticsearchTemplate.execute(client -> client.search(request, RequestOptions.DEFAULT)).getHits();
+    }
+
+    private static List<CredentialSearchSummary> toSummaries(SearchHits hits) {
+        List<CredentialSearchSummary> summaries = new ArrayList<>(hits.getHits().length);
+        for (org.elasticsearch.search.SearchHit hit : hits) {
+            summaries.add(CredentialSearchSummary.fromSource(hit.getSourceAsMap()));
+        }
+        return summaries;
     }
 }
@@ -0,0 +1,100 @@
+package com.claudiu.macovei.repository.search;
+
+import java.util.Map;
+
+/**
+ * A compact, read-only view of a {@link com.claudiu.macovei.domain.Credential} search hit, for list views and
+ * type-ahead. It is read from the {@code _source} fields listed in {@link #SOURCE_FIELDS} only, so the password
+ * and the service providers are never fetched.
+ */
+public final class CredentialSearchSummary {
+
+    static final String[] SOURCE_FIELDS = { "id", "profile", "enabled", "username", "identityProvider.id", "identityProvider.name" };
+
+    private final Long id;
+
+    private final String profile;
+
+    private final Boolean enabled;
+
+    private final String username;
+
+    private final Long identityProviderId;
+
+    private final String identityProviderName;
+
+    public CredentialSearchSummary(
+        Long id,
+        String profile,
+        Boolean enabled,
+        String username,
+        Long identityProviderId,
+        String identityProviderName
+    ) {
+        this.id = id;
+        this.profile = profile;
+        this.enabled = enabled;
+        this.username = username;
+        this.identityProviderId = identityProviderId;
+        this.identityProviderName = identityProviderName;
+    }
+
+    static CredentialSearchSummary fromSource(Map<String, Object> source) {
+        Long identityProviderId = null;
+        String identityProviderName = null;
+        Object identityProvider = source.get("identityProvider");
+        if (identityProvider instanceof Map) {
+            Map<?, ?> identityProviderSource = (Map<?, ?>) identityProvider;
+            identityProviderId = toLong(identityProviderSource.get("id"));
+            identityProviderName = (String) identityProviderSource.get("name");
+        }
+        return new CredentialSearchSummary(
+            toLong(source.get("id")),
+            (String) source.get("profile"),
+            (Boolean) source.get("enabled"),
+            (String) source.get("username"),
+            identityProviderId,
+            identityProviderName
+        );
+    }
+
+    private static Long toLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : null;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getProfile() {
+        return profile;
+    }
+
+    public Boolean getEnabled() {
+        return enabled;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public Long getIdentityProviderId() {
+        return identityProviderId;
+    }
+
+    public String getIdentityProviderName() {
+        return identityProviderName;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "CredentialSearchSummary{" +
+            "id=" + id +
+            ", profile='" + profile + '\'' +
+            ", enabled=" + enabled +
+            ", username='" + username + '\'' +
+            ", identityProviderId=" + identityProviderId +
+            "}";
+    }
+}
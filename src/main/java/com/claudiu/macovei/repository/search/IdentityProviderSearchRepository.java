@@ -1,21 +1,13 @@
 package com.claudiu.macovei.repository.search;
 
-import static org.elasticsearch.index.query.QueryBuilders.queryStringQuery;
-
 import com.claudiu.macovei.domain.IdentityProvider;
 import java.util.List;
-import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-import org.elasticsearch.search.sort.FieldSortBuilder;
+import java.util.Set;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
 import org.springframework.data.elasticsearch.core.SearchHit;
-import org.springframework.data.elasticsearch.core.query.NativeSearchQuery;
-import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
 import org.springframework.data.elasticsearch.repository.ElasticsearchRepository;
 
 /**
@@ -26,26 +18,43 @@ public interface IdentityProviderSearchRepository
 
 interface IdentityProviderSearchRepositoryInternal {
     Page<IdentityProvider> search(String query, Pageable pageable);
+
+    SearchAfterPage<IdentityProvider> search(String query, Sort sort, List<Object> searchAfter, int size);
 }
 
 class IdentityProviderSearchRepositoryInternalImpl implements IdentityProviderSearchRepositoryInternal {
 
+    private static final SortToFieldSortBuilderConverter SORT_CONVERTER = new SortToFieldSortBuilderConverter(Set.of("id"));
+
     private final ElasticsearchRestTemplate elasticsearchTemplate;
 
-    IdentityProviderSearchRepositoryInternalImpl(ElasticsearchRestTemplate elasticsearchTemplate) {
+    private final int trackTotalHitsUpTo;
+
+    IdentityProviderSearchRepositoryInternalImpl(ElasticsearchRestTemplate elasticsearchTemplate, SearchQuerySettings searchQuerySettings) {
         this.elasticsearchTemplate = elasticsearchTemplate;
+        this.trackTotalHitsUpTo = searchQuerySettings.getTrackTotalHitsUpTo();
     }
 
     @Override
     public Page<IdentityProvider> search(String query, Pageable pageable) {
-        NativeSearchQuery nativeSearchQuery = new NativeSearchQuery(queryStringQuery(query));
-        nativeSearchQuery.setPageable(pageable);
-        List<IdentityProvider> hits = elasticsearchTemplate
-            .search(nativeSearchQuery, IdentityProvider.class)
-            .map(SearchHit::getContent)
-            .stream()
-            .collect(Collectors.toList());
-
-        return new PageImpl<>(hits, pageable, hits.size());
+        return SearchQueries.toPage(
+            elasticsearchTemplate.search(
+                SearchQueries.pageQuery(SearchQueries.textQuery(query), pageable, SORT_CONVERTER, trackTotalHitsUpTo),
+                IdentityProvider.class
+            ),
+            pageable
+        );
+    }
+
+    @Override
+    public SearchAfterPage<IdentityProvider> search(String query, Sort sort, List<Object> searchAfter, int size) {
+        return SearchQueries.toSearchAfterPage(
+            elasticsearchTemplate.search(
+                SearchQueries.searchAfterQuery(SearchQueries.textQuery(query), sort, searchAfter, size, SORT_CONVERTER, trackTotalHitsUpTo),
+                IdentityProvider.class
+            ),
+            size,
+            SearchHit::getContent
+        );
     }
 }
@@ -0,0 +1,49 @@
+package com.claudiu.macovei.repository.search;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A page of search results read with a {@code search_after} cursor.
+ *
+ * @param <T> the type of the results.
+ */
+public final class SearchAfterPage<T> {
+
+    private final List<T> content;
+
+    private final long totalHits;
+
+    private final boolean totalHitsExact;
+
+    private final List<Object> nextSearchAfter;
+
+    public SearchAfterPage(List<T> content, long totalHits, boolean totalHitsExact, List<Object> nextSearchAfter) {
+        this.content = Collections.unmodifiableList(content);
+        this.totalHits = totalHits;
+        this.totalHitsExact = totalHitsExact;
+        this.nextSearchAfter = nextSearchAfter;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    /**
+     * @return the number of hits, a lower bound when it reached the track-total-hits cap.
+     */
+    public long getTotalHits() {
+        return totalHits;
+    }
+
+    public boolean isTotalHitsExact() {
+        return totalHitsExact;
+    }
+
+    /**
+     * @return the sort values of the last hit, to read the next page; {@code null} on the last page.
+     */
+    public List<Object> getNextSearchAfter() {
+        return nextSearchAfter;
+    }
+}
@@ -0,0 +1,120 @@
+package com.claudiu.macovei.repository.search;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest.AliasActions;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
+import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.indices.GetIndexRequest;
+import org.elasticsearch.common.settings.Settings;
+import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository managing versioned Elasticsearch indices behind the aliases used by the search repositories.
+ * <p>
+ * A rebuild writes into a fresh {@code <alias>_<version>} index, then moves the alias onto it in a single
+ * atomic request, so searches never see a partial index.
+ */
+@Repository
+public class SearchIndexAdminRepository {
+
+    private static final String REFRESH_INTERVAL = "index.refresh_interval";
+
+    private final ElasticsearchRestTemplate elasticsearchTemplate;
+
+    public SearchIndexAdminRepository(ElasticsearchRestTemplate elasticsearchTemplate) {
+        this.elasticsearchTemplate = elasticsearchTemplate;
+    }
+
+    /**
+     * Create a new versioned index with the mapping of an entity, tuned for bulk loading.
+     *
+     * @param entityClass the entity class, which {@code @Document} index name is the alias.
+     * @param version the version suffix.
+     * @return the name of the new index.
+     */
+    public String createVersionedIndex(Class<?> entityClass, String version) {
+        String indexName = getAlias(entityClass) + "_" + version;
+        IndexOperations indexOperations = elasticsearchTemplate.indexOps(IndexCoordinates.of(indexName));
+        // No refresh while loading, it is restored by switchAlias
+        indexOperations.create(Collections.<String, Object>singletonMap(REFRESH_INTERVAL, "-1"));
+        indexOperations.putMapping(elasticsearchTemplate.indexOps(entityClass).createMapping());
+        return indexName;
+    }
+
+    /**
+     * Write entities into an index with a single bulk request.
+     *
+     * @param entities the entities to index.
+     * @param indexName the name of the index.
+     */
+    public void bulkIndex(List<?> entities, String indexName) {
+        if (!entities.isEmpty()) {
+            elasticsearchTemplate.save(entities, IndexCoordinates.of(indexName));
+        }
+    }
+
+    /**
+     * Delete documents from an index.
+     *
+     * @param ids the ids of the documents.
+     * @param indexName the name of the index.
+     */
+    public void deleteAll(Collection<?> ids, String indexName) {
+        IndexCoordinates index = IndexCoordinates.of(indexName);
+        ids.forEach(id -> elasticsearchTemplate.delete(id.toString(), index));
+    }
+
+    /**
+     * Make a loaded index searchable, then atomically point the alias of an entity to it, removing the indices
+     * the alias pointed to before (or the legacy index having the alias name).
+     *
+     * @param entityClass the entity class, which {@code @Document} index name is the alias.
+     * @param indexName the name of the new index.
+     */
+    public void switchAlias(Class<?> entityClass, String indexName) {
+        String alias = getAlias(entityClass);
+        elasticsearchTemplate.execute(client -> {
+            UpdateSettingsRequest settingsRequest = new UpdateSettingsRequest(indexName).settings(
+                Settings.builder().putNull(REFRESH_INTERVAL)
+            );
+            client.indices().putSettings(settingsRequest, RequestOptions.DEFAULT);
+            client.indices().refresh(new RefreshRequest(indexName), RequestOptions.DEFAULT);
+
+            IndicesAliasesRequest request = new IndicesAliasesRequest();
+            request.addAliasAction(AliasActions.add().index(indexName).alias(alias));
+            GetAliasesRequest aliasesRequest = new GetAliasesRequest(alias);
+            if (client.indices().existsAlias(aliasesRequest, RequestOptions.DEFAULT)) {
+                Set<String> previousIndices = client.indices().getAlias(aliasesRequest, RequestOptions.DEFAULT).getAliases().keySet();
+                previousIndices
+                    .stream()
+                    .filter(previousIndex -> !previousIndex.equals(indexName))
+                    .forEach(previousIndex -> request.addAliasAction(AliasActions.removeIndex().index(previousIndex)));
+            } else if (client.indices().exists(new GetIndexRequest(alias), RequestOptions.DEFAULT)) {
+                request.addAliasAction(AliasActions.removeIndex().index(alias));
+            }
+            return client.indices().updateAliases(request, RequestOptions.DEFAULT);
+        });
+    }
+
+    /**
+     * Delete an index, used to clean up after a failed rebuild.
+     *
+     * @param indexName the name of the index.
+     */
+    public void deleteIndex(String indexName) {
+        elasticsearchTemplate.indexOps(IndexCoordinates.of(indexName)).delete();
+    }
+
+    private String getAlias(Class<?> entityClass) {
+        return elasticsearchTemplate.getIndexCoordinatesFor(entityClass).getIndexName();
+    }
+}
@@ -0,0 +1,92 @@
+package com.claudiu.macovei.repository.search;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.TotalHitsRelation;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQuery;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
+
+/**
+ * Builds the paged queries of the search repositories, and reads their results.
+ */
+final class SearchQueries {
+
+    private SearchQueries() {}
+
+    /**
+     * Build the free-text query of a search. Leading wildcards are rejected, as they scan the whole term dictionary.
+     */
+    static QueryBuilder textQuery(String query) {
+        return QueryBuilders.queryStringQuery(query).allowLeadingWildcard(false);
+    }
+
+    /**
+     * Build a {@code from/size} query, counting hits up to {@code trackTotalHitsUpTo}.
+     */
+    static NativeSearchQuery pageQuery(
+        QueryBuilder query,
+        Pageable pageable,
+        SortToFieldSortBuilderConverter sortConverter,
+        int trackTotalHitsUpTo
+    ) {
+        NativeSearchQueryBuilder builder = new NativeSearchQueryBuilder().withQuery(query);
+        if (pageable.isPaged()) {
+            builder.withPageable(PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()));
+        }
+        if (pageable.getSort().isSorted()) {
+            sortConverter.convert(pageable.getSort()).forEach(builder::withSort);
+        }
+        NativeSearchQuery nativeSearchQuery = builder.build();
+        nativeSearchQuery.setTrackTotalHitsUpTo(trackTotalHitsUpTo);
+        return nativeSearchQuery;
+    }
+
+    /**
+     * Build a {@code search_after} query: always the first {@code size} hits after the given sort values,
+     * whatever the depth, counting hits up to {@code trackTotalHitsUpTo}.
+     */
+    static NativeSearchQuery searchAfterQuery(
+        QueryBuilder query,
+        Sort sort,
+        List<Object> searchAfter,
+        int size,
+        SortToFieldSortBuilderConverter sortConverter,
+        int trackTotalHitsUpTo
+    ) {
+        NativeSearchQueryBuilder builder = new NativeSearchQueryBuilder().withQuery(query).withPageable(PageRequest.of(0, size));
+        sortConverter.convert(sort).forEach(builder::withSort);
+        NativeSearchQuery nativeSearchQuery = builder.build();
+        nativeSearchQuery.setTrackTotalHitsUpTo(trackTotalHitsUpTo);
+        if (searchAfter != null) {
+            nativeSearchQuery.setSearchAfter(searchAfter);
+        }
+        return nativeSearchQuery;
+    }
+
+    static <T> Page<T> toPage(SearchHits<T> hits, Pageable pageable) {
+        List<T> content = hits.stream().map(SearchHit::getContent).collect(Collectors.toList());
+        return new PageImpl<>(content, pageable, hits.getTotalHits());
+    }
+
+    static <T, R> SearchAfterPage<R> toSearchAfterPage(SearchHits<T> hits, int size, Function<SearchHit<T>, R> mapper) {
+        List<SearchHit<T>> searchHits = hits.getSearchHits();
+        List<R> content = searchHits.stream().map(mapper).collect(Collectors.toList());
+        List<Object> nextSearchAfter = null;
+        if (!searchHits.isEmpty() && searchHits.size() >= size) {
+            nextSearchAfter = Arrays.asList(searchHits.get(searchHits.size() - 1).getSortValues().toArray());
+        }
+        boolean totalHitsExact = hits.getTotalHitsRelation() == TotalHitsRelation.EQUAL_TO;
+        return new SearchAfterPage<>(content, hits.getTotalHits(), totalHitsExact, nextSearchAfter);
+    }
+}
@@ -0,0 +1,20 @@
+package com.claudiu.macovei.repository.search;
+
+/**
+ * The settings of the queries of the search repositories, shared by all of them.
+ */
+public class SearchQuerySettings {
+
+    private final int trackTotalHitsUpTo;
+
+    /**
+     * @param trackTotalHitsUpTo the number of hits counted exactly; beyond it, the total of a page is a lower bound.
+     */
+    public SearchQuerySettings(int trackTotalHitsUpTo) {
+        this.trackTotalHitsUpTo = trackTotalHitsUpTo;
+    }
+
+    public int getTrackTotalHitsUpTo() {
+        return trackTotalHitsUpTo;
+    }
+}
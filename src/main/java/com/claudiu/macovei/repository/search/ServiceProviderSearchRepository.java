@@ -1,21 +1,13 @@
 package com.claudiu.macovei.repository.search;
 
-import static org.elasticsearch.index.query.QueryBuilders.queryStringQuery;
-
 import com.claudiu.macovei.domain.ServiceProvider;
 import java.util.List;
-import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-import org.elasticsearch.search.sort.FieldSortBuilder;
+import java.util.Set;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
 import org.springframework.data.elasticsearch.core.SearchHit;
-import org.springframework.data.elasticsearch.core.query.NativeSearchQuery;
-import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
 import org.springframework.data.elasticsearch.repository.ElasticsearchRepository;
 
 /**
@@ -26,26 +18,43 @@ public interface ServiceProviderSearchRepository
 
 interface ServiceProviderSearchRepositoryInternal {
     Page<ServiceProvider> search(String query, Pageable pageable);
+
+    SearchAfterPage<ServiceProvider> search(String query, Sort sort, List<Object> searchAfter, int size);
 }
 
 class ServiceProviderSearchRepositoryInternalImpl implements ServiceProviderSearchRepositoryInternal {
 
+    private static final SortToFieldSortBuilderConverter SORT_CONVERTER = new SortToFieldSortBuilderConverter(Set.of("id"));
+
     private final ElasticsearchRestTemplate elasticsearchTemplate;
 
-    ServiceProviderSearchRepositoryInternalImpl(ElasticsearchRestTemplate elasticsearchTemplate) {
+    private final int trackTotalHitsUpTo;
+
+    ServiceProviderSearchRepositoryInternalImpl(ElasticsearchRestTemplate elasticsearchTemplate, SearchQuerySettings searchQuerySettings) {
         this.elasticsearchTemplate = elasticsearchTemplate;
+        this.trackTotalHitsUpTo = searchQuerySettings.getTrackTotalHitsUpTo();
     }
 
     @Override
     public Page<ServiceProvider> search(String query, Pageable pageable) {
-        NativeSearchQuery nativeSearchQuery = new NativeSearchQuery(queryStringQuery(query));
-        nativeSearchQuery.setPageable(pageable);
-        List<ServiceProvider> hits = elasticsearchTemplate
-            .search(nativeSearchQuery, ServiceProvider.class)
-            .map(SearchHit::getContent)
-            .stream()
-            .collect(Collectors.toList());
-
-        return new PageImpl<>(hits, pageable, hits.size());
+        return SearchQueries.toPage(
+            elasticsearchTemplate.search(
+                SearchQueries.pageQuery(SearchQueries.textQuery(query), pageable, SORT_CONVERTER, trackTotalHitsUpTo),
+                ServiceProvider.class
+            ),
+            pageable
+        );
+    }
+
+    @Override
+    public SearchAfterPage<ServiceProvider> search(String query, Sort sort, List<Object> searchAfter, int size) {
+        return SearchQueries.toSearchAfterPage(
+            elasticsearchTemplate.search(
+                SearchQueries.searchAfterQuery(SearchQueries.textQuery(query), sort, searchAfter, size, SORT_CONVERTER, trackTotalHitsUpTo),
+                ServiceProvider.class
+            ),
+            size,
+            SearchHit::getContent
+        );
     }
 }
@@ -2,23 +2,48 @@ package com.claudiu.macovei.repository.search;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import org.elasticsearch.search.sort.FieldSortBuilder;
 import org.elasticsearch.search.sort.SortOrder;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.data.domain.Sort;
 
+/**
+ * Converts a {@link Sort} into Elasticsearch field sorts.
+ * <p>
+ * Text properties are sorted on their {@code keyword} sub-field. The sort always ends with the {@code id} field,
+ * so that the sort values of a hit are unique and can be used as a {@code search_after} cursor.
+ */
 public class SortToFieldSortBuilderConverter implements Converter<Sort, List<FieldSortBuilder>> {
 
+    public static final String TIEBREAKER_FIELD = "id";
+
+    private final Set<String> nonTextFields;
+
+    public SortToFieldSortBuilderConverter() {
+        this(Set.of(TIEBREAKER_FIELD));
+    }
+
+    /**
+     * @param nonTextFields the properties which are not mapped as text, and are sorted on their own value.
+     */
+    public SortToFieldSortBuilderConverter(Set<String> nonTextFields) {
+        this.nonTextFields = nonTextFields;
+    }
+
     @Override
     public List<FieldSortBuilder> convert(Sort sort) {
         List<FieldSortBuilder> builders = new ArrayList<>();
         sort
             .stream()
             .forEach(order -> {
-                String property = order.getProperty() + ".keyword";
+                String property = nonTextFields.contains(order.getProperty()) ? order.getProperty() : order.getProperty() + ".keyword";
                 SortOrder sortOrder = SortOrder.fromString(order.getDirection().name());
                 builders.add(new FieldSortBuilder(property).order(sortOrder));
             });
+        if (sort.getOrderFor(TIEBREAKER_FIELD) == null) {
+            builders.add(new FieldSortBuilder(TIEBREAKER_FIELD).order(SortOrder.ASC));
+        }
         return builders;
     }
 }
@@ -1,12 +1,13 @@
 package com.claudiu.macovei.repository.search;
 
-import static org.elasticsearch.index.query.QueryBuilders.queryStringQuery;
-
 import com.claudiu.macovei.domain.User;
-import java.util.stream.Stream;
+import java.util.List;
+import java.util.Set;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
 import org.springframework.data.elasticsearch.core.SearchHit;
-import org.springframework.data.elasticsearch.core.query.NativeSearchQuery;
 import org.springframework.data.elasticsearch.repository.ElasticsearchRepository;
 
 /**
@@ -15,20 +16,44 @@ import org.springframework.data.elasticsearch.repository.ElasticsearchRepository
 public interface UserSearchRepository extends ElasticsearchRepository<User, String>, UserSearchRepositoryInternal {}
 
 interface UserSearchRepositoryInternal {
-    Stream<User> search(String query);
+    Page<User> search(String query, Pageable pageable);
+
+    SearchAfterPage<User> search(String query, Sort sort, List<Object> searchAfter, int size);
 }
 
 class UserSearchRepositoryInternalImpl implements UserSearchRepositoryInternal {
 
+    private static final SortToFieldSortBuilderConverter SORT_CONVERTER = new SortToFieldSortBuilderConverter(Set.of("id", "activated"));
+
     private final ElasticsearchRestTemplate elasticsearchTemplate;
 
-    UserSearchRepositoryInternalImpl(ElasticsearchRestTemplate elasticsearchTemplate) {
+    private final int trackTotalHitsUpTo;
+
+    UserSearchRepositoryInternalImpl(ElasticsearchRestTemplate elasticsearchTemplate, SearchQuerySettings searchQuerySettings) {
         this.elasticsearchTemplate = elasticsearchTemplate;
+        this.trackTotalHitsUpTo = searchQuerySettings.getTrackTotalHitsUpTo();
+    }
+
+    @Override
+    public Page<User> search(String query, Pageable pageable) {
+        return SearchQueries.toPage(
+            elasticsearchTemplate.search(
+                SearchQueries.pageQuery(SearchQueries.textQuery(query), pageable, SORT_CONVERTER, trackTotalHitsUpTo),
+                User.class
+            ),
+            pageable
+        );
     }
 
     @Override
-    public Stream<User> search(String query) {
-        NativeSearchQuery nativeSearchQuery = new NativeSearchQuery(queryStringQuery(query));
-        return elasticsearchTemplate.search(nativeSearchQuery, User.class).map(SearchHit::getContent).stream();
+    public SearchAfterPage<User> search(String query, Sort sort, List<Object> searchAfter, int size) {
+        return SearchQueries.toSearchAfterPage(
+            elasticsearchTemplate.search(
+                SearchQueries.searchAfterQuery(SearchQueries.textQuery(query), sort, searchAfter, size, SORT_CONVERTER, trackTotalHitsUpTo),
+                User.class
+            ),
+            size,
+            SearchHit::getContent
+        );
     }
 }
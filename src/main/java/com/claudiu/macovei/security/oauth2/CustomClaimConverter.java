@@ -1,21 +1,43 @@
 package com.claudiu.macovei.security.oauth2;
 
 import com.claudiu.macovei.security.SecurityUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
+import org.redisson.api.RMapCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.jwt.JwtClaimNames;
 import org.springframework.security.oauth2.jwt.MappedJwtClaimSetConverter;
 import org.springframework.security.oauth2.server.resource.web.BearerTokenResolver;
 import org.springframework.security.oauth2.server.resource.web.DefaultBearerTokenResolver;
@@ -25,26 +47,150 @@ import org.springframework.web.context.request.ServletRequestAttributes;
 
 /**
  * Claim converter to add custom claims by retrieving the user from the userinfo endpoint.
+ * <p>
+ * The userinfo responses are cached per {@code sub}, in a bounded in-process cache and optionally in a Redis map
+ * shared by all the nodes. An entry never outlives the token it was fetched with, nor the configured time to live, so
+ * that changed profiles and roles are eventually seen.
+ * <p>
+ * A user is loaded once at a time, however many requests of that user are authenticated concurrently. When the
+ * userinfo endpoint fails, or while the circuit breaker is open after consecutive failures, the claims of the token
+ * are used as they are.
  */
 public class CustomClaimConverter implements Converter<Map<String, Object>, Map<String, Object>> {
 
+    public static final long DEFAULT_MAX_USERS = 10000;
+
+    public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofMinutes(5);
+
+    public static final Duration DEFAULT_AWAIT_TIMEOUT = Duration.ofSeconds(3);
+
+    private static final List<String> USER_CLAIMS = List.of(
+        "preferred_username",
+        "given_name",
+        "family_name",
+        "email",
+        "name",
+        "groups",
+        SecurityUtils.CLAIMS_NAMESPACE + "roles"
+    );
+
+    private final Logger log = LoggerFactory.getLogger(CustomClaimConverter.class);
+
     private final BearerTokenResolver bearerTokenResolver = new DefaultBearerTokenResolver();
 
     private final MappedJwtClaimSetConverter delegate = MappedJwtClaimSetConverter.withDefaults(Collections.emptyMap());
 
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
     private final RestTemplate restTemplate;
 
     private final ClientRegistration registration;
 
-    private final Map<String, ObjectNode> users = new ConcurrentHashMap<>();
+    private final Duration timeToLive;
+
+    private final Cache<String, CachedUser> users;
+
+    private final RMapCache<String, String> sharedUsers;
+
+    private final Map<String, CompletableFuture<ObjectNode>> inFlightLoads = new ConcurrentHashMap<>();
+
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    private Duration awaitTimeout = DEFAULT_AWAIT_TIMEOUT;
+
+    private boolean tokenClaimsFirst = false;
+
+    private Set<String> requiredClaims = Set.of("preferred_username");
+
+    private Timer fetchSuccesses;
+
+    private Timer fetchFailures;
+
+    private Counter fallbacks;
 
     public CustomClaimConverter(ClientRegistration registration, RestTemplate restTemplate) {
+        this(registration, restTemplate, DEFAULT_MAX_USERS, DEFAULT_TIME_TO_LIVE, null);
+    }
+
+    /**
+     * @param registration the client registration of the identity provider.
+     * @param restTemplate the client of the userinfo endpoint.
+     * @param maxUsers the maximum number of users cached in memory.
+     * @param timeToLive the maximum time a userinfo response is cached.
+     * @param sharedUsers the Redis map shared by the nodes, or {@code null} to only cache in memory.
+     */
+    public CustomClaimConverter(
+        ClientRegistration registration,
+        RestTemplate restTemplate,
+        long maxUsers,
+        Duration timeToLive,
+        RMapCache<String, String> sharedUsers
+    ) {
         this.registration = registration;
         this.restTemplate = restTemplate;
+        this.timeToLive = timeToLive;
+        this.sharedUsers = sharedUsers;
+        this.users = Caffeine.newBuilder().maximumSize(maxUsers).expireAfter(new CachedUserExpiry()).build();
+        setMeterRegistry(Metrics.globalRegistry);
+    }
+
+    /**
+     * Publish the latency of the userinfo calls, and the number of conversions falling back to the claims of the token.
+     */
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.fetchSuccesses = fetchTimer(meterRegistry, "success");
+        this.fetchFailures = fetchTimer(meterRegistry, "failure");
+        this.fallbacks =
+            Counter
+                .builder("oauth2.userinfo.fallbacks")
+                .description("The conversions using the claims of the token only, as the userinfo could not be fetched")
+                .register(meterRegistry);
+    }
+
+    private static Timer fetchTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer
+            .builder("oauth2.userinfo.fetch")
+            .tag("outcome", outcome)
+            .description("The latency of the calls to the userinfo endpoint")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+
+    /**
+     * @param failureThreshold the number of consecutive failed calls opening the circuit.
+     * @param openDuration how long the userinfo endpoint is no longer called once the circuit is open.
+     */
+    public void setCircuitBreaker(int failureThreshold, Duration openDuration) {
+        this.circuitBreaker.failureThreshold = failureThreshold;
+        this.circuitBreaker.openDuration = openDuration;
+    }
+
+    /**
+     * Map the user claims straight from the token when it carries all the required claims, and only call the
+     * userinfo endpoint for tokens missing some of them.
+     *
+     * @param tokenClaimsFirst whether the claims of the token are used when they are complete.
+     * @param requiredClaims the claims the token must carry to skip the userinfo endpoint.
+     */
+    public void setTokenClaimsFirst(boolean tokenClaimsFirst, Set<String> requiredClaims) {
+        this.tokenClaimsFirst = tokenClaimsFirst;
+        this.requiredClaims = Set.copyOf(requiredClaims);
+    }
+
+    /**
+     * @param awaitTimeout how long a conversion waits for the fetch of the same user started by another one.
+     */
+    public void setAwaitTimeout(Duration awaitTimeout) {
+        this.awaitTimeout = awaitTimeout;
     }
 
     public Map<String, Object> convert(Map<String, Object> claims) {
         Map<String, Object> convertedClaims = this.delegate.convert(claims);
+        if (tokenClaimsFirst && requiredClaims.stream().allMatch(claims::containsKey)) {
+            // The token carries everything: no userinfo round trip
+            addCustomClaims(convertedClaims, tokenUser(claims));
+            return convertedClaims;
+        }
         if (
             RequestContextHolder.getRequestAttributes() != null &&
             ((ServletRequestAttributes) RequestContextHolder.getRequestAttributes()) != null
@@ -57,59 +203,260 @@ public class CustomClaimConverter implements Converter<Map<String, Object>, Map<
             headers.set("Authorization", buildBearer(token));
 
             // Retrieve user infos from OAuth provider if not already loaded
-            ObjectNode user = users.computeIfAbsent(
-                claims.get("sub").toString(),
-                s -> {
-                    ResponseEntity<ObjectNode> userInfo = restTemplate.exchange(
-                        registration.getProviderDetails().getUserInfoEndpoint().getUri(),
-                        HttpMethod.GET,
-                        new HttpEntity<String>(headers),
-                        ObjectNode.class
-                    );
-                    return userInfo.getBody();
-                }
-            );
+            ObjectNode user = getUser(claims.get("sub").toString(), headers, expiresAt(convertedClaims));
 
             // Add custom claims
             if (user != null) {
-                convertedClaims.put("preferred_username", user.get("preferred_username").asText());
-                if (user.has("given_name")) {
-                    convertedClaims.put("given_name", user.get("given_name").asText());
-                }
-                if (user.has("family_name")) {
-                    convertedClaims.put("family_name", user.get("family_name").asText());
-                }
-                if (user.has("email")) {
-                    convertedClaims.put("email", user.get("email").asText());
-                }
-                // Allow full name in a name claim - happens with Auth0
-                if (user.has("name")) {
-                    String[] name = user.get("name").asText().split("\\s+");
-                    if (name.length > 0) {
-                        convertedClaims.put("given_name", name[0]);
-                        convertedClaims.put("family_name", String.join(" ", Arrays.copyOfRange(name, 1, name.length)));
-                    }
-                }
-                if (user.has("groups")) {
-                    List<String> groups = StreamSupport
-                        .stream(user.get("groups").spliterator(), false)
-                        .map(JsonNode::asText)
-                        .collect(Collectors.toList());
-                    convertedClaims.put("groups", groups);
-                }
-                if (user.has(SecurityUtils.CLAIMS_NAMESPACE + "roles")) {
-                    List<String> roles = StreamSupport
-                        .stream(user.get(SecurityUtils.CLAIMS_NAMESPACE + "roles").spliterator(), false)
-                        .map(JsonNode::asText)
-                        .collect(Collectors.toList());
-                    convertedClaims.put("roles", roles);
-                }
+                addCustomClaims(convertedClaims, user);
             }
         }
         return convertedClaims;
     }
 
+    private void addCustomClaims(Map<String, Object> convertedClaims, JsonNode user) {
+        convertedClaims.put("preferred_username", user.get("preferred_username").asText());
+        if (user.has("given_name")) {
+            convertedClaims.put("given_name", user.get("given_name").asText());
+        }
+        if (user.has("family_name")) {
+            convertedClaims.put("family_name", user.get("family_name").asText());
+        }
+        if (user.has("email")) {
+            convertedClaims.put("email", user.get("email").asText());
+        }
+        // Allow full name in a name claim - happens with Auth0
+        if (user.has("name")) {
+            String[] name = user.get("name").asText().split("\\s+");
+            if (name.length > 0) {
+                convertedClaims.put("given_name", name[0]);
+                convertedClaims.put("family_name", String.join(" ", Arrays.copyOfRange(name, 1, name.length)));
+            }
+        }
+        if (user.has("groups")) {
+            List<String> groups = StreamSupport
+                .stream(user.get("groups").spliterator(), false)
+                .map(JsonNode::asText)
+                .collect(Collectors.toList());
+            convertedClaims.put("groups", groups);
+        }
+        if (user.has(SecurityUtils.CLAIMS_NAMESPACE + "roles")) {
+            List<String> roles = StreamSupport
+                .stream(user.get(SecurityUtils.CLAIMS_NAMESPACE + "roles").spliterator(), false)
+                .map(JsonNode::asText)
+                .collect(Collectors.toList());
+            convertedClaims.put("roles", roles);
+        }
+    }
+
+    /**
+     * @return the claims of the token read by {@link #addCustomClaims}, as if they came from the userinfo endpoint.
+     */
+    private ObjectNode tokenUser(Map<String, Object> claims) {
+        ObjectNode user = objectMapper.createObjectNode();
+        for (String claim : USER_CLAIMS) {
+            Object value = claims.get(claim);
+            if (value != null) {
+                user.set(claim, objectMapper.valueToTree(value));
+            }
+        }
+        return user;
+    }
+
+    private ObjectNode getUser(String sub, HttpHeaders headers, Instant expiresAt) {
+        CachedUser cached = users.getIfPresent(sub);
+        if (cached != null) {
+            return cached.user;
+        }
+        // Single flight: concurrent conversions of the same user wait for the first one to load it,
+        // without holding any lock while the identity provider is called
+        CompletableFuture<ObjectNode> load = new CompletableFuture<>();
+        CompletableFuture<ObjectNode> inFlight = inFlightLoads.putIfAbsent(sub, load);
+        if (inFlight != null) {
+            return await(sub, inFlight);
+        }
+        try {
+            ObjectNode user = loadUser(sub, headers, expiresAt);
+            if (user != null) {
+                users.put(sub, new CachedUser(user, expiresAt));
+            }
+            load.complete(user);
+            return user;
+        } catch (RuntimeException e) {
+            load.complete(null);
+            throw e;
+        } finally {
+            inFlightLoads.remove(sub, load);
+        }
+    }
+
+    private ObjectNode loadUser(String sub, HttpHeaders headers, Instant expiresAt) {
+        ObjectNode user = getSharedUser(sub);
+        if (user != null) {
+            return user;
+        }
+        user = fetchUser(sub, headers);
+        putSharedUser(sub, user, expiresAt);
+        return user;
+    }
+
+    /**
+     * Call the userinfo endpoint, unless the circuit is open.
+     *
+     * @return the userinfo, or {@code null} to fall back to the claims of the token.
+     */
+    private ObjectNode fetchUser(String sub, HttpHeaders headers) {
+        if (!circuitBreaker.allowRequest()) {
+            fallbacks.increment();
+            return null;
+        }
+        long start = System.nanoTime();
+        try {
+            ResponseEntity<ObjectNode> userInfo = restTemplate.exchange(
+                registration.getProviderDetails().getUserInfoEndpoint().getUri(),
+                HttpMethod.GET,
+                new HttpEntity<String>(headers),
+                ObjectNode.class
+            );
+            fetchSuccesses.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            circuitBreaker.onSuccess();
+            return userInfo.getBody();
+        } catch (RuntimeException e) {
+            fetchFailures.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (circuitBreaker.onFailure()) {
+                log.warn("The userinfo endpoint is failing, using the claims of the tokens for {}", circuitBreaker.openDuration);
+            }
+            fallbacks.increment();
+            log.debug("Could not fetch the userinfo of {}: {}", sub, e.getMessage());
+            return null;
+        }
+    }
+
+    private ObjectNode await(String sub, CompletableFuture<ObjectNode> inFlight) {
+        try {
+            return inFlight.get(awaitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            log.debug("Gave up waiting for the userinfo of {}: {}", sub, e.toString());
+            fallbacks.increment();
+            return null;
+        }
+    }
+
+    /**
+     * @return when the cached userinfo of the token expires: at the expiry of the token, at the latest.
+     */
+    private Instant expiresAt(Map<String, Object> convertedClaims) {
+        Instant expiresAt = Instant.now().plus(timeToLive);
+        Object exp = convertedClaims.get(JwtClaimNames.EXP);
+        if (exp instanceof Instant && ((Instant) exp).isBefore(expiresAt)) {
+            return (Instant) exp;
+        }
+        return expiresAt;
+    }
+
+    private ObjectNode getSharedUser(String sub) {
+        if (sharedUsers == null) {
+            return null;
+        }
+        try {
+            String user = sharedUsers.get(sub);
+            return user != null ? (ObjectNode) objectMapper.readTree(user) : null;
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("Could not read the shared userinfo of {}: {}", sub, e.getMessage());
+            return null;
+        }
+    }
+
+    private void putSharedUser(String sub, ObjectNode user, Instant expiresAt) {
+        long ttl = Duration.between(Instant.now(), expiresAt).toMillis();
+        if (sharedUsers == null || user == null || ttl <= 0) {
+            return;
+        }
+        try {
+            sharedUsers.fastPutAsync(sub, user.toString(), ttl, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            log.warn("Could not share the userinfo of {}: {}", sub, e.getMessage());
+        }
+    }
+
     private String buildBearer(String token) {
         return "Bearer " + token;
     }
+
+    /**
+     * Stops calling the userinfo endpoint after consecutive failures, then lets a single call through once the
+     * circuit has been open long enough.
+     */
+    private static final class CircuitBreaker {
+
+        private volatile int failureThreshold = 5;
+
+        private volatile Duration openDuration = Duration.ofSeconds(30);
+
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+        private final AtomicBoolean trial = new AtomicBoolean();
+
+        private volatile long openUntil;
+
+        boolean allowRequest() {
+            if (consecutiveFailures.get() < failureThreshold) {
+                return true;
+            }
+            return System.nanoTime() - openUntil >= 0 && trial.compareAndSet(false, true);
+        }
+
+        void onSuccess() {
+            consecutiveFailures.set(0);
+            trial.set(false);
+        }
+
+        /**
+         * @return {@code true} if the failure opened the circuit.
+         */
+        boolean onFailure() {
+            int failures = consecutiveFailures.incrementAndGet();
+            if (failures >= failureThreshold) {
+                openUntil = System.nanoTime() + openDuration.toNanos();
+                trial.set(false);
+                return failures == failureThreshold;
+            }
+            return false;
+        }
+    }
+
+    private static final class CachedUser {
+
+        private final ObjectNode user;
+
+        private final Instant expiresAt;
+
+        private CachedUser(ObjectNode user, Instant expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Expires each user at the expiry of the token it was fetched with.
+     */
+    private static final class CachedUserExpiry implements Expiry<String, CachedUser> {
+
+        @Override
+        public long expireAfterCreate(String sub, CachedUser cachedUser, long currentTime) {
+            return Math.max(0, Duration.between(Instant.now(), cachedUser.expiresAt).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String sub, CachedUser cachedUser, long currentTime, long currentDuration) {
+            return expireAfterCreate(sub, cachedUser, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String sub, CachedUser cachedUser, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
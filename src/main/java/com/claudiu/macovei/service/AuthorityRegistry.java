@@ -0,0 +1,172 @@
+package com.claudiu.macovei.service;
+
+import com.claudiu.macovei.domain.Authority;
+import com.claudiu.macovei.repository.AuthorityRepository;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.listener.BaseStatusListener;
+import org.redisson.client.codec.StringCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * The names of the {@link Authority} entities, held in memory as an immutable set.
+ * <p>
+ * The set is loaded on first use and replaced with compare-and-set: a new set is only installed over the one it was
+ * derived from. Once the insertion of new authorities commits, the other nodes are told over a Redis topic to drop
+ * their set and load it again. As pub/sub delivery is at most once, the set is also dropped whenever the topic is
+ * (re)subscribed, and {@link #ensureExist(Collection)} checks the database for the authorities missing from the set.
+ */
+@Service
+public class AuthorityRegistry {
+
+    static final String INVALIDATION_TOPIC = "authority-registry:invalidations";
+
+    private static final Snapshot UNLOADED = new Snapshot(null);
+
+    private final Logger log = LoggerFactory.getLogger(AuthorityRegistry.class);
+
+    private final AuthorityRepository authorityRepository;
+
+    private final RTopic topic;
+
+    private final String origin = UUID.randomUUID().toString();
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(UNLOADED);
+
+    public AuthorityRegistry(AuthorityRepository authorityRepository, RedissonClient redissonClient) {
+        this.authorityRepository = authorityRepository;
+        this.topic = redissonClient.getTopic(INVALIDATION_TOPIC, StringCodec.INSTANCE);
+        this.topic.addListener(
+                String.class,
+                (channel, sender) -> {
+                    if (!origin.equals(sender)) {
+                        invalidate();
+                    }
+                }
+            );
+        this.topic.addListener(
+                new BaseStatusListener() {
+                    @Override
+                    public void onSubscribe(String channel) {
+                        invalidate();
+                    }
+                }
+            );
+    }
+
+    /**
+     * Get the names of all the authorities.
+     *
+     * @return an immutable set of the names of the authorities.
+     */
+    @Transactional(readOnly = true)
+    public Set<String> getAll() {
+        Snapshot current = snapshot.get();
+        if (current.names != null) {
+            return current.names;
+        }
+        Set<String> names = authorityRepository.findAll().stream().map(Authority::getName).collect(Collectors.toUnmodifiableSet());
+        // an invalidation received during the load replaced the unloaded snapshot, and wins
+        snapshot.compareAndSet(current, new Snapshot(names));
+        return names;
+    }
+
+    /**
+     * Save the authorities which do not exist yet.
+     *
+     * @param authorities the names of the authorities.
+     */
+    @Transactional
+    public void ensureExist(Collection<String> authorities) {
+        Set<String> known = getAll();
+        Set<String> missing = authorities.stream().filter(name -> !known.contains(name)).collect(Collectors.toSet());
+        if (missing.isEmpty()) {
+            return;
+        }
+        // the set may be older than an insertion made by another node
+        Set<String> added = new HashSet<>(missing);
+        authorityRepository.findAllById(missing).forEach(authority -> missing.remove(authority.getName()));
+        if (!missing.isEmpty()) {
+            log.debug("Saving authorities {} in local database", missing);
+            authorityRepository.saveAll(missing.stream().map(AuthorityRegistry::authority).collect(Collectors.toList()));
+        }
+        afterCommit(() -> {
+            add(added);
+            if (!missing.isEmpty()) {
+                publish();
+            }
+        });
+    }
+
+    /**
+     * Drop the set, so that it is loaded again on next use.
+     */
+    public void invalidate() {
+        snapshot.set(new Snapshot(null));
+    }
+
+    private void add(Set<String> names) {
+        Snapshot current;
+        Set<String> merged;
+        do {
+            current = snapshot.get();
+            if (current.names == null) {
+                return;
+            }
+            merged = new HashSet<>(current.names);
+            merged.addAll(names);
+        } while (!snapshot.compareAndSet(current, new Snapshot(Set.copyOf(merged))));
+    }
+
+    private void publish() {
+        try {
+            topic.publishAsync(origin);
+        } catch (RuntimeException e) {
+            log.warn("Could not publish the invalidation of the authorities: {}", e.getMessage());
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+            new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            }
+        );
+    }
+
+    private static Authority authority(String name) {
+        Authority authority = new Authority();
+        authority.setName(name);
+        return authority;
+    }
+
+    /**
+     * A set of names, or {@code null} names when not loaded. Each snapshot is a distinct instance for compare-and-set.
+     */
+    private static final class Snapshot {
+
+        private final Set<String> names;
+
+        Snapshot(Set<String> names) {
+            this.names = names;
+        }
+    }
+}
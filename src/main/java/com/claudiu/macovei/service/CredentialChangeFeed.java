@@ -0,0 +1,464 @@
+package com.claudiu.macovei.service;
+
+import com.claudiu.macovei.domain.Credential;
+import com.claudiu.macovei.repository.RevisionRepository;
+import com.claudiu.macovei.service.dto.CredentialChangeDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * The feed of the committed {@link Credential} changes, numbered with the revisions of the rows.
+ * <p>
+ * Once a transaction commits, {@link RevisionAllocator} publishes the range of revisions it reserved on a Redis topic,
+ * with the ids and types of the credential changes it numbered. Nothing is read again after the commit, which could
+ * return a state later than the revision: subscribers read the changed credentials themselves. Every node (the writing
+ * one included) hands the changes over to its subscribers in revision order: a change has the revision of its row, or
+ * of its tombstone, as read by {@link CredentialService#findAllChangedAfter(long, int)}. A range received ahead of a
+ * missing one waits for it at most {@code application.credential-feed.gap-timeout-ms}, as a range is lost when its
+ * node stops before publishing it. The last {@code history-size} changes are kept, so that a subscriber reconnecting
+ * with the last revision it saw resumes without missing a change; older subscribers are told to read the changes they
+ * missed from the database instead.
+ * <p>
+ * Each subscriber has its own queue, drained by a thread of the feed, so that a slow subscriber never holds the Redis
+ * topic, the feed or the other subscribers. A subscriber whose queue would exceed
+ * {@code application.credential-feed.subscriber-queue-size} changes is reset instead: its queue is dropped, and it
+ * reads the changes it missed from the database.
+ */
+public class CredentialChangeFeed {
+
+    static final String CHANGES_TOPIC = "credential-change-feed:changes";
+
+    private final Logger log = LoggerFactory.getLogger(CredentialChangeFeed.class);
+
+    private final RevisionRepository revisionRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final RTopic topic;
+
+    private int historySize = 10000;
+
+    private long gapTimeoutMs = 1000;
+
+    private int subscriberQueueSize = 1000;
+
+    private long watchTimeoutMs = 300000;
+
+    /**
+     * Drains the queues of the subscribers; a dedicated pool, as a subscriber holds its thread while a slow client
+     * reads its events.
+     */
+    private final ExecutorService executor = Executors.newCachedThreadPool(new CustomizableThreadFactory("credential-feed-"));
+
+    private final List<Registration> registrations = new CopyOnWriteArrayList<>();
+
+    // The fields below are guarded by this feed
+
+    /**
+     * The ranges received ahead of a missing one, by first revision.
+     */
+    private final NavigableMap<Long, Range> pending = new TreeMap<>();
+
+    private final ArrayDeque<CredentialChangeDTO> history = new ArrayDeque<>();
+
+    /**
+     * Whether the revision is known: it is read from the database, or taken from the first range received.
+     */
+    private boolean started;
+
+    private long revision;
+
+    /**
+     * The revision after which the history holds every change.
+     */
+    private long historyStart;
+
+    private long gapSince;
+
+    public CredentialChangeFeed(
+        RevisionRepository revisionRepository,
+        ObjectMapper objectMapper,
+        RedissonClient redissonClient
+    ) {
+        this.revisionRepository = revisionRepository;
+        this.objectMapper = objectMapper;
+        this.topic = redissonClient.getTopic(CHANGES_TOPIC, StringCodec.INSTANCE);
+        this.topic.addListener(String.class, (channel, message) -> receive(message));
+    }
+
+    public void setHistorySize(int historySize) {
+        this.historySize = historySize;
+    }
+
+    public void setGapTimeoutMs(long gapTimeoutMs) {
+        this.gapTimeoutMs = gapTimeoutMs;
+    }
+
+    public void setSubscriberQueueSize(int subscriberQueueSize) {
+        this.subscriberQueueSize = subscriberQueueSize;
+    }
+
+    public void setWatchTimeoutMs(long watchTimeoutMs) {
+        this.watchTimeoutMs = watchTimeoutMs;
+    }
+
+    /**
+     * Get how long a client watches the feed, before it reconnects with the last revision it saw.
+     *
+     * @return the timeout in milliseconds.
+     */
+    public long getWatchTimeoutMs() {
+        return watchTimeoutMs;
+    }
+
+    /**
+     * Publish a committed range of revisions.
+     *
+     * @param from the first revision of the range.
+     * @param to the last revision of the range.
+     * @param changes the credential changes of the range, without their state, in revision order.
+     */
+    void publish(long from, long to, List<CredentialChangeDTO> changes) {
+        try {
+            topic.publishAsync(objectMapper.writeValueAsString(new Range(from, to, changes)));
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("Could not publish the Credential changes {} to {}: {}", from, to, e.getMessage());
+        }
+    }
+
+    /**
+     * Subscribe to the changes of the credentials.
+     *
+     * @param afterRevision the last revision seen by the subscriber, to be handed over the changes made since;
+     * {@code null} for the changes made from now on.
+     * @param subscriber the subscriber.
+     * @return the subscription, to cancel once the subscriber is gone.
+     */
+    public synchronized Subscription subscribe(Long afterRevision, Subscriber subscriber) {
+        start();
+        Registration registration = new Registration(subscriber, revision);
+        if (afterRevision != null && afterRevision < revision) {
+            if (afterRevision < historyStart) {
+                registration.reset(revision);
+            } else {
+                registration.offer(
+                    history.stream().filter(change -> change.getRevision() > afterRevision).collect(Collectors.toList()),
+                    revision
+                );
+            }
+        } else if (afterRevision != null) {
+            // a revision received by another node, but not yet by this one
+            registration.after = afterRevision;
+        }
+        registrations.add(registration);
+        return registration::cancel;
+    }
+
+    /**
+     * Get the revision of the last change handed over to the subscribers of this node.
+     *
+     * @return the revision.
+     */
+    public synchronized long getRevision() {
+        start();
+        return revision;
+    }
+
+    /**
+     * Time-based check of the missing revisions, in case no change follows them.
+     */
+    @Scheduled(fixedDelayString = "${application.credential-feed.gap-timeout-ms:1000}")
+    public synchronized void flush() {
+        if (!pending.isEmpty()) {
+            advance();
+        }
+    }
+
+    /**
+     * Stop draining the queues of the subscribers.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Start from the last revision committed, when no range was received yet.
+     */
+    private void start() {
+        if (!started) {
+            start(revisionRepository.current());
+        }
+    }
+
+    private void start(long startRevision) {
+        started = true;
+        revision = startRevision;
+        historyStart = startRevision;
+    }
+
+    private void receive(String message) {
+        Range range;
+        try {
+            range = objectMapper.readValue(message, Range.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Could not read Credential changes: {}", e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            if (!started) {
+                start(range.getFrom() - 1);
+            }
+            if (range.getTo() > revision) {
+                pending.put(range.getFrom(), range);
+            }
+            advance();
+        }
+    }
+
+    /**
+     * Hand over the pending changes which follow the last revision, or which waited too long for a missing one.
+     */
+    private void advance() {
+        long now = System.currentTimeMillis();
+        List<CredentialChangeDTO> ready = new ArrayList<>();
+        while (!pending.isEmpty()) {
+            Range first = pending.firstEntry().getValue();
+            if (first.getFrom() > revision + 1) {
+                if (gapSince == 0) {
+                    gapSince = now;
+                }
+                if (now - gapSince < gapTimeoutMs) {
+                    break;
+                }
+                log.warn("Credential changes {} to {} were not received, skipping them", revision + 1, first.getFrom() - 1);
+                // a subscriber resuming before the skipped revisions must read the changes from the database
+                history.clear();
+                historyStart = first.getFrom() - 1;
+            }
+            gapSince = 0;
+            pending.pollFirstEntry();
+            for (CredentialChangeDTO change : first.getChanges()) {
+                if (change.getRevision() > revision) {
+                    history.addLast(change);
+                    ready.add(change);
+                }
+            }
+            while (history.size() > historySize) {
+                historyStart = history.removeFirst().getRevision();
+            }
+            revision = Math.max(revision, first.getTo());
+        }
+        if (!ready.isEmpty()) {
+            dispatch(ready);
+        }
+    }
+
+    private void dispatch(List<CredentialChangeDTO> changes) {
+        for (Registration registration : registrations) {
+            long after = registration.after;
+            List<CredentialChangeDTO> unseen = changes.stream().filter(change -> change.getRevision() > after).collect(Collectors.toList());
+            if (unseen.isEmpty()) {
+                continue;
+            }
+            registration.after = unseen.get(unseen.size() - 1).getRevision();
+            registration.offer(unseen, revision);
+        }
+    }
+
+    /**
+     * A subscriber of the changes of the credentials.
+     */
+    public interface Subscriber {
+        /**
+         * Called with the changes following the last ones handed over, in revision order. The calls of a subscriber
+         * are made one at a time, on a thread of the feed, and may block.
+         *
+         * @param changes the changes.
+         */
+        void onChanges(List<CredentialChangeDTO> changes);
+
+        /**
+         * Called instead of {@link #onChanges(List)} when the changes the subscriber missed are no longer held, or
+         * no longer fit in its queue: the subscriber must read them with
+         * {@link CredentialService#findAllChangedAfter(long, int)} from its last revision, then only changes after
+         * {@code revision} are handed over.
+         *
+         * @param revision the current revision.
+         */
+        void onReset(long revision);
+    }
+
+    /**
+     * A subscription to the changes of the credentials.
+     */
+    public interface Subscription {
+        /**
+         * Stop handing over changes to the subscriber.
+         */
+        void cancel();
+    }
+
+    /**
+     * A subscriber, with the queue of the changes not handed over yet.
+     */
+    private final class Registration implements Runnable {
+
+        private final Subscriber subscriber;
+
+        /**
+         * The last revision queued, guarded by the feed.
+         */
+        private volatile long after;
+
+        // The fields below are guarded by this registration
+
+        private final ArrayDeque<CredentialChangeDTO> queue = new ArrayDeque<>();
+
+        private Long resetRevision;
+
+        private boolean draining;
+
+        private boolean cancelled;
+
+        private Registration(Subscriber subscriber, long after) {
+            this.subscriber = subscriber;
+            this.after = after;
+        }
+
+        /**
+         * Queue changes, or reset the subscriber if they don't fit in its queue.
+         */
+        private synchronized void offer(List<CredentialChangeDTO> changes, long revision) {
+            if (changes.isEmpty()) {
+                return;
+            }
+            if (queue.size() + changes.size() > subscriberQueueSize) {
+                log.debug("Resetting a subscriber of the Credential changes which is {} changes behind", queue.size() + changes.size());
+                reset(revision);
+            } else {
+                queue.addAll(changes);
+                drain();
+            }
+        }
+
+        private synchronized void reset(long revision) {
+            queue.clear();
+            resetRevision = revision;
+            drain();
+        }
+
+        private synchronized void cancel() {
+            cancelled = true;
+            queue.clear();
+            resetRevision = null;
+            registrations.remove(this);
+        }
+
+        private void drain() {
+            if (draining || cancelled) {
+                return;
+            }
+            try {
+                executor.execute(this);
+                draining = true;
+            } catch (RejectedExecutionException e) {
+                cancel();
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Long reset;
+                List<CredentialChangeDTO> changes;
+                synchronized (this) {
+                    if (cancelled || (resetRevision == null && queue.isEmpty())) {
+                        draining = false;
+                        return;
+                    }
+                    reset = resetRevision;
+                    resetRevision = null;
+                    changes = reset == null ? new ArrayList<>(queue) : null;
+                    if (reset == null) {
+                        queue.clear();
+                    }
+                }
+                try {
+                    if (reset != null) {
+                        subscriber.onReset(reset);
+                    } else {
+                        subscriber.onChanges(changes);
+                    }
+                } catch (RuntimeException e) {
+                    log.debug("Dropping a subscriber of the Credential changes: {}", e.getMessage());
+                    cancel();
+                }
+            }
+        }
+    }
+
+    /**
+     * A committed range of revisions, as published on the topic.
+     */
+    static final class Range {
+
+        private long from;
+
+        private long to;
+
+        private List<CredentialChangeDTO> changes = new ArrayList<>();
+
+        Range() {
+            // Empty constructor needed for Jackson.
+        }
+
+        Range(long from, long to, List<CredentialChangeDTO> changes) {
+            this.from = from;
+            this.to = to;
+            this.changes = changes;
+        }
+
+        public long getFrom() {
+            return from;
+        }
+
+        public void setFrom(long from) {
+            this.from = from;
+        }
+
+        public long getTo() {
+            return to;
+        }
+
+        public void setTo(long to) {
+            this.to = to;
+        }
+
+        public List<CredentialChangeDTO> getChanges() {
+            return changes;
+        }
+
+        public void setChanges(List<CredentialChangeDTO> changes) {
+            this.changes = changes;
+        }
+    }
+}
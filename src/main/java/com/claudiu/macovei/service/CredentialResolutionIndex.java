@@ -0,0 +1,478 @@
+package com.claudiu.macovei.service;
+
+import com.claudiu.macovei.domain.Credential;
+import com.claudiu.macovei.domain.IdentityProvider;
+import com.claudiu.macovei.domain.ServiceProvider;
+import com.claudiu.macovei.repository.CredentialRepository;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.listener.BaseStatusListener;
+import org.redisson.client.codec.StringCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * The enabled {@link Credential} entities, held in memory as an immutable index by service provider name and profile.
+ * <p>
+ * Lookups read the current snapshot without locking nor allocating. The snapshot is loaded once the application is
+ * ready, or on first use; once a write commits, the changed credentials are read again and a new snapshot, sharing the
+ * unchanged entries of the previous one, is swapped in. The other nodes are told the changed ids over a Redis topic.
+ * <p>
+ * When the whole snapshot must be read again, as a provider is renamed or the topic is (re)subscribed since pub/sub
+ * delivery is at most once, it is rebuilt in the background while lookups keep reading the previous one.
+ * <p>
+ * The snapshot holds detached copies of the credentials, which must not be modified.
+ */
+@Service
+public class CredentialResolutionIndex {
+
+    static final String CHANGES_TOPIC = "credential-resolution-index:changes";
+
+    private static final String INVALIDATE_ALL = "*";
+
+    private final Logger log = LoggerFactory.getLogger(CredentialResolutionIndex.class);
+
+    private final CredentialRepository credentialRepository;
+
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    private final TransactionTemplate newReadOnlyTransactionTemplate;
+
+    private final RTopic topic;
+
+    private final String origin = UUID.randomUUID().toString();
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(Snapshot.UNLOADED);
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("credential-resolution-"));
+
+    /**
+     * Serializes the writers, so that a snapshot is always derived from the last one installed.
+     */
+    private final Object writeLock = new Object();
+
+    // The fields below are guarded by the write lock
+
+    /**
+     * Incremented whenever the snapshot is rebuilt or dropped, so that a rebuild that started before is not installed.
+     */
+    private long generation;
+
+    private boolean rebuildRequested;
+
+    private boolean rebuilding;
+
+    /**
+     * The ids refreshed while a rebuild reads the credentials, which it may have read before their commit.
+     */
+    private Set<Long> refreshedDuringRebuild;
+
+    public CredentialResolutionIndex(
+        CredentialRepository credentialRepository,
+        PlatformTransactionManager transactionManager,
+        RedissonClient redissonClient
+    ) {
+        this.credentialRepository = credentialRepository;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        // after commit, the resources of the committed transaction are still bound to the thread
+        this.newReadOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.newReadOnlyTransactionTemplate.setReadOnly(true);
+        this.newReadOnlyTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.topic = redissonClient.getTopic(CHANGES_TOPIC, StringCodec.INSTANCE);
+        this.topic.addListener(String.class, (channel, message) -> onMessage(message));
+        this.topic.addListener(
+                new BaseStatusListener() {
+                    @Override
+                    public void onSubscribe(String channel) {
+                        rebuild();
+                    }
+                }
+            );
+    }
+
+    /**
+     * Get the enabled credentials of a service provider for a profile.
+     *
+     * @param serviceProviderName the name of the service provider.
+     * @param profile the profile of the credentials.
+     * @return an immutable list of the credentials, in id order.
+     */
+    public List<Credential> resolve(String serviceProviderName, String profile) {
+        Snapshot current = snapshot.get();
+        if (current.index == null) {
+            current = load();
+        }
+        Map<String, List<Credential>> byProfile = current.index.get(serviceProviderName);
+        if (byProfile == null) {
+            return Collections.emptyList();
+        }
+        return byProfile.getOrDefault(profile, Collections.emptyList());
+    }
+
+    /**
+     * Update the index with the committed state of credentials, once the current transaction commits.
+     *
+     * @param ids the ids of the created, updated or deleted credentials.
+     */
+    public void refreshAfterCommit(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Set<Long> changedIds = new HashSet<>(ids);
+        afterCommit(() -> {
+            refresh(changedIds);
+            publish(changedIds.stream().map(String::valueOf).collect(Collectors.joining(",")));
+        });
+    }
+
+    /**
+     * Rebuild the index once the current transaction commits, e.g. when a service provider is renamed.
+     */
+    public void rebuildAfterCommit() {
+        afterCommit(() -> {
+            rebuild();
+            publish(INVALIDATE_ALL);
+        });
+    }
+
+    /**
+     * Drop the index, so that it is loaded again on next use, by the calling thread.
+     */
+    public void invalidate() {
+        synchronized (writeLock) {
+            generation++;
+            rebuildRequested = false;
+            snapshot.set(Snapshot.UNLOADED);
+        }
+    }
+
+    /**
+     * Read the whole index again in the background; lookups keep reading the current snapshot until it is replaced.
+     */
+    public void rebuild() {
+        synchronized (writeLock) {
+            if (snapshot.get().index == null) {
+                // loaded on next use
+                return;
+            }
+            generation++;
+            rebuildRequested = true;
+            if (rebuilding) {
+                return;
+            }
+            try {
+                executor.execute(this::runRebuild);
+                rebuilding = true;
+            } catch (RejectedExecutionException e) {
+                log.debug("Could not rebuild the resolution index, as it is shut down");
+            }
+        }
+    }
+
+    /**
+     * Load the index once the application is ready, so that the first lookups don't wait for it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        try {
+            load();
+        } catch (RuntimeException e) {
+            log.warn("Could not load the resolution index, it will be loaded on first use: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Stop rebuilding the index.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private Snapshot load() {
+        synchronized (writeLock) {
+            Snapshot current = snapshot.get();
+            if (current.index != null) {
+                return current;
+            }
+            Snapshot loaded = Snapshot.of(readAll());
+            log.debug("Loaded {} enabled Credentials in the resolution index", loaded.byId.size());
+            snapshot.set(loaded);
+            return loaded;
+        }
+    }
+
+    private void runRebuild() {
+        while (true) {
+            long started;
+            synchronized (writeLock) {
+                if (!rebuildRequested) {
+                    rebuilding = false;
+                    return;
+                }
+                rebuildRequested = false;
+                started = generation;
+                refreshedDuringRebuild = new HashSet<>();
+            }
+            List<Credential> credentials;
+            try {
+                credentials = readAll();
+            } catch (RuntimeException e) {
+                log.warn("Could not rebuild the resolution index, dropping it: {}", e.getMessage());
+                synchronized (writeLock) {
+                    if (generation == started) {
+                        snapshot.set(Snapshot.UNLOADED);
+                    }
+                    refreshedDuringRebuild = null;
+                    rebuilding = false;
+                }
+                return;
+            }
+            synchronized (writeLock) {
+                if (generation != started) {
+                    // rebuilt or dropped again meanwhile
+                    continue;
+                }
+                Set<Long> refreshed = refreshedDuringRebuild;
+                refreshedDuringRebuild = null;
+                rebuilding = false;
+                Snapshot rebuilt = Snapshot.of(credentials);
+                log.debug("Rebuilt the resolution index with {} enabled Credentials", rebuilt.byId.size());
+                snapshot.set(rebuilt);
+                if (!refreshed.isEmpty()) {
+                    refresh(refreshed);
+                }
+                return;
+            }
+        }
+    }
+
+    private List<Credential> readAll() {
+        return readOnlyTransactionTemplate.execute(status ->
+            credentialRepository.findAllEnabledWithEagerRelationships().stream().map(this::copy).collect(Collectors.toList())
+        );
+    }
+
+    private void refresh(Set<Long> ids) {
+        synchronized (writeLock) {
+            Snapshot current = snapshot.get();
+            if (current.index == null) {
+                return;
+            }
+            if (refreshedDuringRebuild != null) {
+                refreshedDuringRebuild.addAll(ids);
+            }
+            List<Credential> enabled = newReadOnlyTransactionTemplate.execute(status ->
+                credentialRepository
+                    .findAllWithEagerRelationshipsByIdIn(ids)
+                    .stream()
+                    .filter(credential -> Boolean.TRUE.equals(credential.getEnabled()))
+                    .map(this::copy)
+                    .collect(Collectors.toList())
+            );
+            snapshot.set(current.with(ids, enabled));
+        }
+    }
+
+    private void onMessage(String message) {
+        String[] parts = message.split(":", 2);
+        if (parts.length < 2 || origin.equals(parts[0])) {
+            return;
+        }
+        if (INVALIDATE_ALL.equals(parts[1])) {
+            rebuild();
+            return;
+        }
+        try {
+            refresh(Collections.unmodifiableSet(parseIds(parts[1])));
+        } catch (RuntimeException e) {
+            log.warn("Could not apply the Credential changes of another node, rebuilding the resolution index: {}", e.getMessage());
+            rebuild();
+        }
+    }
+
+    private void publish(String changes) {
+        try {
+            topic.publishAsync(origin + ":" + changes);
+        } catch (RuntimeException e) {
+            log.warn("Could not publish the Credential changes to the resolution index: {}", e.getMessage());
+        }
+    }
+
+    private static Set<Long> parseIds(String ids) {
+        Set<Long> result = new HashSet<>();
+        for (String id : ids.split(",")) {
+            result.add(Long.valueOf(id));
+        }
+        return result;
+    }
+
+    /**
+     * Copy a credential and its relationships, so that the index holds no managed entity nor lazy collection.
+     */
+    private Credential copy(Credential credential) {
+        Credential copy = new Credential()
+            .id(credential.getId())
+            .profile(credential.getProfile())
+            .enabled(credential.getEnabled())
+            .username(credential.getUsername())
+            .password(credential.getPassword())
+            .revision(credential.getRevision());
+        IdentityProvider identityProvider = credential.getIdentityProvider();
+        if (identityProvider != null) {
+            copy.setIdentityProvider(new IdentityProvider().id(identityProvider.getId()).name(identityProvider.getName()));
+        }
+        for (ServiceProvider serviceProvider : credential.getServiceProviders()) {
+            copy.getServiceProviders().add(new ServiceProvider().id(serviceProvider.getId()).name(serviceProvider.getName()));
+        }
+        return copy;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+            new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            }
+        );
+    }
+
+    /**
+     * The credentials by service provider name and profile, and by id; {@code null} maps when not loaded.
+     */
+    private static final class Snapshot {
+
+        private static final Snapshot UNLOADED = new Snapshot(null, null);
+
+        private static final Comparator<Credential> BY_ID = Comparator.comparing(Credential::getId);
+
+        private final Map<String, Map<String, List<Credential>>> index;
+
+        private final Map<Long, Credential> byId;
+
+        private Snapshot(Map<String, Map<String, List<Credential>>> index, Map<Long, Credential> byId) {
+            this.index = index;
+            this.byId = byId;
+        }
+
+        static Snapshot of(Collection<Credential> credentials) {
+            Map<Long, Credential> byId = new HashMap<>(credentials.size() * 2);
+            credentials.forEach(credential -> byId.put(credential.getId(), credential));
+            Map<String, Map<String, List<Credential>>> index = new HashMap<>();
+            for (Credential credential : credentials) {
+                if (credential.getProfile() == null) {
+                    continue;
+                }
+                for (ServiceProvider serviceProvider : credential.getServiceProviders()) {
+                    if (serviceProvider.getName() != null) {
+                        index
+                            .computeIfAbsent(serviceProvider.getName(), name -> new HashMap<>())
+                            .computeIfAbsent(credential.getProfile(), profile -> new ArrayList<>())
+                            .add(credential);
+                    }
+                }
+            }
+            return new Snapshot(freeze(index), Collections.unmodifiableMap(byId));
+        }
+
+        /**
+         * Derive a snapshot in which the given credentials replace the ones with the given ids. Only the entries of
+         * the service providers of the old and new credentials are copied; the others are shared with this snapshot.
+         */
+        Snapshot with(Set<Long> ids, Collection<Credential> credentials) {
+            Map<Long, Credential> newById = new HashMap<>(byId);
+            Set<String> touched = new HashSet<>();
+            for (Long id : ids) {
+                Credential removed = newById.remove(id);
+                if (removed != null) {
+                    removed.getServiceProviders().forEach(serviceProvider -> touched.add(serviceProvider.getName()));
+                }
+            }
+            credentials.forEach(credential -> newById.put(credential.getId(), credential));
+
+            Map<String, Map<String, List<Credential>>> rebuilt = new HashMap<>();
+            for (String name : touched) {
+                Map<String, List<Credential>> byProfile = new HashMap<>();
+                index
+                    .getOrDefault(name, Collections.emptyMap())
+                    .forEach((profile, previous) -> {
+                        List<Credential> kept = new ArrayList<>(previous.size());
+                        previous.stream().filter(credential -> !ids.contains(credential.getId())).forEach(kept::add);
+                        byProfile.put(profile, kept);
+                    });
+                rebuilt.put(name, byProfile);
+            }
+            for (Credential credential : credentials) {
+                if (credential.getProfile() == null) {
+                    continue;
+                }
+                for (ServiceProvider serviceProvider : credential.getServiceProviders()) {
+                    if (serviceProvider.getName() != null) {
+                        rebuilt
+                            .computeIfAbsent(serviceProvider.getName(), name -> new HashMap<>())
+                            .computeIfAbsent(credential.getProfile(), profile -> new ArrayList<>())
+                            .add(credential);
+                    }
+                }
+            }
+
+            Map<String, Map<String, List<Credential>>> newIndex = new HashMap<>(index);
+            freeze(rebuilt)
+                .forEach((name, byProfile) -> {
+                    if (byProfile.isEmpty()) {
+                        newIndex.remove(name);
+                    } else {
+                        newIndex.put(name, byProfile);
+                    }
+                });
+            return new Snapshot(Collections.unmodifiableMap(newIndex), Collections.unmodifiableMap(newById));
+        }
+
+        private static Map<String, Map<String, List<Credential>>> freeze(Map<String, Map<String, List<Credential>>> index) {
+            Map<String, Map<String, List<Credential>>> frozen = new HashMap<>(index.size() * 2);
+            index.forEach((name, credentialsByProfile) -> {
+                Map<String, List<Credential>> byProfile = new HashMap<>(credentialsByProfile.size() * 2);
+                credentialsByProfile.forEach((profile, credentials) -> {
+                    if (!credentials.isEmpty()) {
+                        credentials.sort(BY_ID);
+                        byProfile.put(profile, List.copyOf(credentials));
+                    }
+                });
+                frozen.put(name, Collections.unmodifiableMap(byProfile));
+            });
+            return Collections.unmodifiableMap(frozen);
+        }
+    }
+}
@@ -0,0 +1,417 @@
+package com.claudiu.macovei.service;
+
+import com.claudiu.macovei.domain.Credential;
+import com.claudiu.macovei.repository.CredentialRepository;
+import com.claudiu.macovei.repository.search.CredentialSearchRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps the {@link Credential} Elasticsearch index in sync with the database, outside of the write transactions.
+ * <p>
+ * Writes register the ids of the credentials they change; once the transaction commits, the ids are appended to a
+ * bounded queue, which is drained on the async task executor into bulk requests, as soon as {@code bulkSize} ids
+ * are waiting or at the latest every {@code application.search.indexer.flush-interval-ms}. The worker reloads the
+ * credentials from the database, so the committed state is always the one indexed, and deletes the documents of
+ * the credentials which no longer exist.
+ * <p>
+ * The queue is a best-effort, in-memory buffer, not a durable outbox: the changes it holds are lost if the node
+ * stops without a clean shutdown, which only drains it once, or if the transaction commits and the node dies before
+ * the ids are queued. When the queue stays full, the writing thread indexes its own changes, slowing writers down.
+ * Failed bulks are retried with a backoff, then put back in the queue for the next flush; changes which no longer
+ * fit are dropped and counted in {@code search.indexer.dropped}. Any lost change leaves the index stale until the
+ * credential is written again or the index is rebuilt with {@link SearchReindexService}. The queue size and the age
+ * of the oldest pending event are published as the {@code search.indexer.queue.size} and {@code search.indexer.lag}
+ * metrics.
+ * <p>
+ * When not {@code async}, the entities are indexed inline, inside the caller's transaction.
+ */
+public class CredentialSearchIndexer {
+
+    private final Logger log = LoggerFactory.getLogger(CredentialSearchIndexer.class);
+
+    private final CredentialRepository credentialRepository;
+
+    private final CredentialSearchRepository credentialSearchRepository;
+
+    private final Executor executor;
+
+    private final BlockingQueue<IndexEvent> queue;
+
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    private volatile long inFlightSince;
+
+    private final AtomicReference<Set<Long>> recordedIds = new AtomicReference<>();
+
+    private boolean async = true;
+
+    private int bulkSize = 500;
+
+    private long offerTimeoutMs = 50;
+
+    private int maxAttempts = 3;
+
+    private long retryBackoffMs = 200;
+
+    private final Timer bulkTimer;
+
+    private final Counter indexedCounter;
+
+    private final Counter deletedCounter;
+
+    private final Counter failureCounter;
+
+    private final Counter overflowCounter;
+
+    private final Counter droppedCounter;
+
+    public CredentialSearchIndexer(
+        CredentialRepository credentialRepository,
+        CredentialSearchRepository credentialSearchRepository,
+        Executor executor,
+        MeterRegistry meterRegistry,
+        int queueCapacity
+    ) {
+        this.credentialRepository = credentialRepository;
+        this.credentialSearchRepository = credentialSearchRepository;
+        this.executor = executor;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        Gauge.builder("search.indexer.queue.size", queue, BlockingQueue::size).register(meterRegistry);
+        TimeGauge.builder("search.indexer.lag", this, TimeUnit.MILLISECONDS, CredentialSearchIndexer::getLagMillis).register(meterRegistry);
+        this.bulkTimer = Timer.builder("search.indexer.bulk").register(meterRegistry);
+        this.indexedCounter = Counter.builder("search.indexer.documents").tag("operation", "index").register(meterRegistry);
+        this.deletedCounter = Counter.builder("search.indexer.documents").tag("operation", "delete").register(meterRegistry);
+        this.failureCounter = Counter.builder("search.indexer.failures").register(meterRegistry);
+        this.overflowCounter = Counter.builder("search.indexer.overflow").register(meterRegistry);
+        this.droppedCounter = Counter.builder("search.indexer.dropped").register(meterRegistry);
+    }
+
+    public void setAsync(boolean async) {
+        this.async = async;
+    }
+
+    public void setBulkSize(int bulkSize) {
+        this.bulkSize = bulkSize;
+    }
+
+    public void setOfferTimeoutMs(long offerTimeoutMs) {
+        this.offerTimeoutMs = offerTimeoutMs;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public void setRetryBackoffMs(long retryBackoffMs) {
+        this.retryBackoffMs = retryBackoffMs;
+    }
+
+    /**
+     * Index a saved credential.
+     *
+     * @param credential the saved entity.
+     */
+    public void index(Credential credential) {
+        record(Collections.singletonList(credential.getId()));
+        if (!async) {
+            credentialSearchRepository.save(credential);
+            return;
+        }
+        enqueueAfterCommit(Collections.singletonList(credential.getId()));
+    }
+
+    /**
+     * Index saved credentials.
+     *
+     * @param credentials the saved entities.
+     */
+    public void indexAll(Collection<Credential> credentials) {
+        if (credentials.isEmpty()) {
+            return;
+        }
+        List<Long> ids = credentials.stream().map(Credential::getId).collect(Collectors.toList());
+        record(ids);
+        if (!async) {
+            credentialSearchRepository.saveAll(credentials);
+            return;
+        }
+        enqueueAfterCommit(ids);
+    }
+
+    /**
+     * Remove a deleted credential from the index.
+     *
+     * @param id the id of the deleted entity.
+     */
+    public void delete(Long id) {
+        record(Collections.singletonList(id));
+        if (!async) {
+            credentialSearchRepository.deleteById(id);
+            return;
+        }
+        enqueueAfterCommit(Collections.singletonList(id));
+    }
+
+    /**
+     * Index credentials again from their committed state, e.g. the ones changed while an index was rebuilt.
+     *
+     * @param ids the ids of the credentials.
+     */
+    public void reindex(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        if (!async) {
+            indexIds(new HashSet<>(ids));
+            return;
+        }
+        enqueue(new ArrayList<>(ids));
+    }
+
+    /**
+     * Start recording the ids of the changed credentials, until {@link #stopRecording()}.
+     */
+    public void startRecording() {
+        recordedIds.set(ConcurrentHashMap.newKeySet());
+    }
+
+    /**
+     * Stop recording the ids of the changed credentials.
+     *
+     * @return the ids changed since {@link #startRecording()}.
+     */
+    public Set<Long> stopRecording() {
+        Set<Long> ids = recordedIds.getAndSet(null);
+        return ids != null ? ids : Collections.emptySet();
+    }
+
+    /**
+     * Get the age of the oldest change not yet indexed.
+     *
+     * @return the lag, in milliseconds.
+     */
+    public long getLagMillis() {
+        long oldest = inFlightSince;
+        IndexEvent head = queue.peek();
+        if (head != null && (oldest == 0 || head.enqueuedAt < oldest)) {
+            oldest = head.enqueuedAt;
+        }
+        return oldest == 0 ? 0 : Math.max(0, System.currentTimeMillis() - oldest);
+    }
+
+    /**
+     * Get the number of changes waiting to be indexed.
+     *
+     * @return the queue size.
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * Time-based flush: index whatever is waiting, even if less than a full bulk.
+     */
+    @Scheduled(fixedDelayString = "${application.search.indexer.flush-interval-ms:1000}")
+    public void flush() {
+        if (!queue.isEmpty()) {
+            scheduleDrain();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!queue.isEmpty() && draining.compareAndSet(false, true)) {
+            log.info("Indexing {} pending Credential changes before shutdown", queue.size());
+            drain();
+        }
+    }
+
+    private void record(List<Long> ids) {
+        Set<Long> recording = recordedIds.get();
+        if (recording != null) {
+            recording.addAll(ids);
+        }
+    }
+
+    private void enqueueAfterCommit(List<Long> ids) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        enqueue(ids);
+                    }
+                }
+            );
+        } else {
+            enqueue(ids);
+        }
+    }
+
+    private void enqueue(List<Long> ids) {
+        long now = System.currentTimeMillis();
+        boolean interrupted = false;
+        List<IndexEvent> rejected = new ArrayList<>();
+        for (Long id : ids) {
+            IndexEvent event = new IndexEvent(id, now);
+            boolean accepted;
+            if (interrupted) {
+                accepted = queue.offer(event);
+            } else {
+                try {
+                    accepted = queue.offer(event, offerTimeoutMs, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    accepted = queue.offer(event);
+                }
+            }
+            if (!accepted) {
+                rejected.add(event);
+            }
+        }
+        if (queue.size() >= bulkSize) {
+            scheduleDrain();
+        }
+        if (!rejected.isEmpty()) {
+            // Backpressure: the queue is full, so the writer indexes its own changes
+            log.warn("Search indexing queue is full, indexing {} Credential changes on the calling thread", rejected.size());
+            overflowCounter.increment(rejected.size());
+            if (!indexWithRetries(rejected)) {
+                requeue(rejected);
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                draining.set(false);
+                log.warn("Search indexing deferred to the next flush, the task executor is saturated");
+            }
+        }
+    }
+
+    /**
+     * Index the queued changes bulk by bulk. Must only be called by the thread which set the {@code draining} flag.
+     */
+    private void drain() {
+        try {
+            List<IndexEvent> batch = new ArrayList<>(bulkSize);
+            while (queue.drainTo(batch, bulkSize) > 0) {
+                inFlightSince = batch.get(0).enqueuedAt;
+                boolean indexed = indexWithRetries(batch);
+                inFlightSince = 0;
+                if (!indexed) {
+                    requeue(batch);
+                    return;
+                }
+                batch.clear();
+            }
+        } finally {
+            inFlightSince = 0;
+            draining.set(false);
+        }
+        if (queue.size() >= bulkSize) {
+            scheduleDrain();
+        }
+    }
+
+    private boolean indexWithRetries(List<IndexEvent> batch) {
+        Set<Long> ids = new LinkedHashSet<>(batch.size() * 2);
+        batch.forEach(event -> ids.add(event.id));
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                bulkTimer.record(() -> indexIds(ids));
+                return true;
+            } catch (RuntimeException e) {
+                failureCounter.increment();
+                log.warn("Failed to index {} Credentials (attempt {}/{}): {}", ids.size(), attempt, maxAttempts, e.getMessage());
+                if (attempt < maxAttempts && !backoff(attempt)) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void indexIds(Set<Long> ids) {
+        List<Credential> credentials = credentialRepository.findAllWithEagerRelationshipsByIdIn(ids);
+        if (!credentials.isEmpty()) {
+            credentialSearchRepository.saveAll(credentials);
+            indexedCounter.increment(credentials.size());
+        }
+        Set<Long> deletedIds = new HashSet<>(ids);
+        credentials.forEach(credential -> deletedIds.remove(credential.getId()));
+        if (!deletedIds.isEmpty()) {
+            credentialSearchRepository.deleteAllById(deletedIds);
+            deletedCounter.increment(deletedIds.size());
+        }
+    }
+
+    private boolean backoff(int attempt) {
+        try {
+            Thread.sleep(retryBackoffMs << (attempt - 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void requeue(List<IndexEvent> batch) {
+        int dropped = 0;
+        for (IndexEvent event : batch) {
+            if (!queue.offer(event)) {
+                dropped++;
+            }
+        }
+        if (dropped > 0) {
+            droppedCounter.increment(dropped);
+            log.error("Search indexing queue is full, {} Credential changes were dropped; a reindex is needed", dropped);
+        }
+    }
+
+    private static final class IndexEvent {
+
+        private final Long id;
+
+        private final long enqueuedAt;
+
+        private IndexEvent(Long id, long enqueuedAt) {
+            this.id = id;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
@@ -1,9 +1,17 @@
 package com.claudiu.macovei.service;
 
 import com.claudiu.macovei.domain.Credential;
+import com.claudiu.macovei.repository.search.CredentialSearchCriteria;
+import com.claudiu.macovei.repository.search.CredentialSearchSummary;
+import com.claudiu.macovei.repository.search.SearchAfterPage;
+import com.claudiu.macovei.service.dto.CredentialBulkResultDTO;
+import com.claudiu.macovei.service.dto.CredentialChangeDTO;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 /**
  * Service Interface for managing {@link Credential}.
@@ -18,10 +26,35 @@ public interface CredentialService {
     Credential save(Credential credential);
 
     /**
-     * Partially updates a credential.
+     * Create or update a chunk of credentials in a single transaction, with a single search index request.
      *
-     * @param credential the entity to update partially.
-     * @return the persisted entity.
+     * @param credentials the entities to save; entities without an ID are created, the others are updated.
+     * @return the result of each item, in the same order as the given entities.
+     */
+    List<CredentialBulkResultDTO> saveAll(List<Credential> credentials);
+
+    /**
+     * Update a credential without reading it first: a revision is reserved, then one conditional statement writes
+     * its columns and that revision. Its service providers are read, and only written when they changed. The given
+     * credential is returned, with its relationships found by id, mostly from the second-level cache.
+     *
+     * @param credential the entity to update; when it has a revision, the update only happens if the stored credential
+     * still has that revision.
+     * @return the persisted entity, or empty if the credential doesn't exist.
+     * @throws org.springframework.dao.OptimisticLockingFailureException if the credential has another revision.
+     * @throws javax.persistence.EntityNotFoundException if a related service provider or identity provider has no id or
+     * doesn't exist; nothing is written then.
+     */
+    Optional<Credential> update(Credential credential);
+
+    /**
+     * Partially updates a credential, like {@link #update(Credential)} but without replacing its service providers;
+     * the updated credential is then read with a single query, as the request doesn't hold all its columns.
+     *
+     * @param credential the entity to update partially; when it has a revision, the update only happens if the stored
+     * credential still has that revision.
+     * @return the persisted entity, or empty if the credential doesn't exist.
+     * @throws org.springframework.dao.OptimisticLockingFailureException if the credential has another revision.
      */
     Optional<Credential> partialUpdate(Credential credential);
 
@@ -35,12 +68,52 @@ public interface CredentialService {
 
     /**
      * Get all the credentials with eager load of many-to-many relationships.
+     * <p>
+     * The ids of the page are read first, then the credentials of the page are fetched with their relationships
+     * in a single query, so that the database does the paging.
      *
      * @param pageable the pagination information.
      * @return the list of entities.
      */
     Page<Credential> findAllWithEagerRelationships(Pageable pageable);
 
+    /**
+     * Get a keyset page of the credentials, in id order, without counting them.
+     *
+     * @param id the id after which the page starts.
+     * @param size the size of the page.
+     * @return the list of entities.
+     */
+    List<Credential> findAllAfter(Long id, int size);
+
+    /**
+     * Get a keyset page of the credentials with eager load of many-to-many relationships, in id order.
+     *
+     * @param id the id after which the page starts.
+     * @param size the size of the page.
+     * @return the list of entities.
+     */
+    List<Credential> findAllWithEagerRelationshipsAfter(Long id, int size);
+
+    /**
+     * Get the credentials changed and deleted after a revision, in revision order.
+     * <p>
+     * Changed credentials come as {@code UPDATED} changes with their relationships, whether they were created or
+     * updated; deleted credentials come as {@code DELETED} changes, from their tombstones.
+     *
+     * @param revision the revision after which the changes are read.
+     * @param size the maximum number of changes.
+     * @return the list of changes.
+     */
+    List<CredentialChangeDTO> findAllChangedAfter(long revision, int size);
+
+    /**
+     * Read all the credentials with their relationships, batch by batch, without loading them all in memory.
+     *
+     * @param batchConsumer called with each batch of credentials, in id order.
+     */
+    void exportAll(Consumer<List<Credential>> batchConsumer);
+
     /**
      * Get the "id" credential.
      *
@@ -56,6 +129,23 @@ public interface CredentialService {
      */
     void delete(Long id);
 
+    /**
+     * Get the enabled credentials of a service provider for a profile, from the in-memory resolution index.
+     *
+     * @param serviceProviderName the name of the service provider.
+     * @param profile the profile of the credentials.
+     * @return the immutable list of entities, in id order.
+     */
+    List<Credential> resolve(String serviceProviderName, String profile);
+
+    /**
+     * Get the committed revision of the "id" credential, without loading it.
+     *
+     * @param id the id of the entity.
+     * @return the revision, or empty if the credential doesn't exist or has no revision.
+     */
+    Optional<Long> findRevision(Long id);
+
     /**
      * Search for the credential corresponding to the query.
      *
@@ -65,4 +155,56 @@ public interface CredentialService {
      * @return the list of entities.
      */
     Page<Credential> search(String query, Pageable pageable);
+
+    /**
+     * Search for the credentials corresponding to the query, after the sort values of the last hit of the previous page.
+     *
+     * @param query the query of the search.
+     * @param sort the sort of the hits.
+     * @param searchAfter the sort values of the last hit of the previous page, {@code null} for the first page.
+     * @param size the size of the page.
+     * @return the page of entities.
+     */
+    SearchAfterPage<Credential> search(String query, Sort sort, List<Object> searchAfter, int size);
+
+    /**
+     * Search for the credentials matching the structured criteria.
+     *
+     * @param criteria the criteria of the search.
+     * @param pageable the pagination information.
+     * @return the list of entities.
+     */
+    Page<Credential> search(CredentialSearchCriteria criteria, Pageable pageable);
+
+    /**
+     * Search for the credentials matching the structured criteria, after the sort values of the last hit of the previous page.
+     *
+     * @param criteria the criteria of the search.
+     * @param sort the sort of the hits.
+     * @param searchAfter the sort values of the last hit of the previous page, {@code null} for the first page.
+     * @param size the size of the page.
+     * @return the page of entities.
+     */
+    SearchAfterPage<Credential> search(CredentialSearchCriteria criteria, Sort sort, List<Object> searchAfter, int size);
+
+    /**
+     * Search for the summaries of the credentials corresponding to the query, for list views.
+     *
+     * @param query the query of the search.
+     * @param pageable the pagination information.
+     * @return the list of summaries.
+     */
+    Page<CredentialSearchSummary> searchSummaries(String query, Pageable pageable);
+
+    /**
+     * Search for the summaries of the credentials corresponding to the query, after the sort values of the last hit
+     * of the previous page.
+     *
+     * @param query the query of the search.
+     * @param sort the sort of the hits.
+     * @param searchAfter the sort values of the last hit of the previous page, {@code null} for the first page.
+     * @param size the size of the page.
+     * @return the page of summaries.
+     */
+    SearchAfterPage<CredentialSearchSummary> searchSummaries(String query, Sort sort, List<Object> searchAfter, int size);
 }
@@ -1,9 +1,12 @@
 package com.claudiu.macovei.service;
 
 import com.claudiu.macovei.domain.IdentityProvider;
+import com.claudiu.macovei.repository.search.SearchAfterPage;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 /**
  * Service Interface for managing {@link IdentityProvider}.
@@ -33,6 +36,15 @@ public interface IdentityProviderService {
      */
     Page<IdentityProvider> findAll(Pageable pageable);
 
+    /**
+     * Get a keyset page of the identityProviders, in id order, without counting them.
+     *
+     * @param id the id after which the page starts.
+     * @param size the size of the page.
+     * @return the list of entities.
+     */
+    List<IdentityProvider> findAllAfter(Long id, int size);
+
     /**
      * Get the "id" identityProvider.
      *
@@ -57,4 +69,15 @@ public interface IdentityProviderService {
      * @return the list of entities.
      */
     Page<IdentityProvider> search(String query, Pageable pageable);
+
+    /**
+     * Search for the identityProviders corresponding to the query, after the sort values of the last hit of the previous page.
+     *
+     * @param query the query of the search.
+     * @param sort the sort of the hits.
+     * @param searchAfter the sort values of the last hit of the previous page, {@code null} for the first page.
+     * @param size the size of the page.
+     * @return the page of entities.
+     */
+    SearchAfterPage<IdentityProvider> search(String query, Sort sort, List<Object> searchAfter, int size);
 }
@@ -0,0 +1,238 @@
+package com.claudiu.macovei.service;
+
+import com.claudiu.macovei.domain.Credential;
+import com.claudiu.macovei.domain.IdentityProvider;
+import com.claudiu.macovei.domain.ServiceProvider;
+import com.claudiu.macovei.repository.RevisionRepository;
+import com.claudiu.macovei.service.dto.CredentialChangeDTO;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Gives their revision to the entities written in a transaction, right before it commits.
+ * <p>
+ * Revisions are reserved from {@link RevisionRepository}, which keeps the counter locked until the transaction ends
+ * so that revisions are committed in increasing order. Reserving them once for the whole transaction, at the last
+ * moment, holds that lock only while the transaction flushes and commits: writes of revisioned entities are no longer
+ * serialized for their whole duration. The managed entities get their revision before Hibernate flushes them, and
+ * deleted credentials their tombstone. A credential updated with plain JDBC instead reserves its revision right before
+ * its conditional statement, which writes it: the counter is then locked from that statement to the commit.
+ * <p>
+ * Until their transaction commits, the written entities keep their previous revision, or none. As the counter is now
+ * locked after the written rows, two transactions writing the same rows may deadlock on commit: the database then
+ * rolls one of them back, which is reported as a conflict.
+ * <p>
+ * Once the transaction commits, its range of revisions and the credential changes it numbered are published on the
+ * {@link CredentialChangeFeed}, so that the feed and the rows share the same revisions.
+ */
+@Service
+public class RevisionAllocator {
+
+    private final RevisionRepository revisionRepository;
+
+    private final CredentialChangeFeed credentialChangeFeed;
+
+    public RevisionAllocator(RevisionRepository revisionRepository, CredentialChangeFeed credentialChangeFeed) {
+        this.revisionRepository = revisionRepository;
+        this.credentialChangeFeed = credentialChangeFeed;
+    }
+
+    /**
+     * Give its first revision to a credential created in the current persistence context.
+     *
+     * @param credential the saved entity.
+     */
+    public void assignCreated(Credential credential) {
+        allocate(credential::setRevision, new CredentialChangeDTO(CredentialChangeDTO.Type.CREATED, credential.getId(), null));
+    }
+
+    /**
+     * Give a new revision to a credential managed by the current persistence context.
+     *
+     * @param credential the saved entity.
+     */
+    public void assign(Credential credential) {
+        allocate(credential::setRevision, new CredentialChangeDTO(CredentialChangeDTO.Type.UPDATED, credential.getId(), null));
+    }
+
+    /**
+     * Give a new revision to a service provider managed by the current persistence context.
+     *
+     * @param serviceProvider the saved entity.
+     */
+    public void assign(ServiceProvider serviceProvider) {
+        allocate(serviceProvider::setRevision, null);
+    }
+
+    /**
+     * Give a new revision to an identity provider managed by the current persistence context.
+     *
+     * @param identityProvider the saved entity.
+     */
+    public void assign(IdentityProvider identityProvider) {
+        allocate(identityProvider::setRevision, null);
+    }
+
+    /**
+     * Reserve a new revision for a credential updated with {@code CredentialUpdateRepository}, which writes it along
+     * with the columns of the credential.
+     *
+     * @param id the id of the credential.
+     * @param update the update, called with the new revision; returns whether the credential was updated.
+     * @return the new revision of the credential, or empty if it wasn't updated.
+     */
+    public OptionalLong assignUpdated(Long id, LongPredicate update) {
+        Allocation allocation = findAllocation();
+        long revision = revisionRepository.next();
+        if (!update.test(revision)) {
+            // the revision is committed without any change
+            allocation.reserved(revision, null);
+            return OptionalLong.empty();
+        }
+        CredentialChangeDTO change = new CredentialChangeDTO(CredentialChangeDTO.Type.UPDATED, id, null);
+        change.setRevision(revision);
+        allocation.reserved(revision, change);
+        return OptionalLong.of(revision);
+    }
+
+    /**
+     * Give a revision to the deletion of a credential, recorded as its tombstone.
+     *
+     * @param id the id of the deleted credential.
+     */
+    public void assignDeleted(Long id) {
+        allocate(
+            revision -> revisionRepository.insertCredentialTombstone(id, revision),
+            new CredentialChangeDTO(CredentialChangeDTO.Type.DELETED, id, null)
+        );
+    }
+
+    private void allocate(LongConsumer assignment, CredentialChangeDTO change) {
+        findAllocation().add(assignment, change);
+    }
+
+    /**
+     * Find the allocation of the current transaction, or register it; without a transaction, the allocation is
+     * published once its revisions are given.
+     */
+    private Allocation findAllocation() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new Allocation(this, true);
+        }
+        // synchronizations, unlike resources, are suspended along with their transaction
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof Allocation && ((Allocation) synchronization).owner == this) {
+                return (Allocation) synchronization;
+            }
+        }
+        Allocation allocation = new Allocation(this, false);
+        TransactionSynchronizationManager.registerSynchronization(allocation);
+        return allocation;
+    }
+
+    /**
+     * The revisions to give when a transaction commits.
+     */
+    private static final class Allocation implements TransactionSynchronization {
+
+        private final RevisionAllocator owner;
+
+        /**
+         * Whether there is no transaction, so that the revisions are given, and published, at once.
+         */
+        private final boolean immediate;
+
+        private final List<LongConsumer> assignments = new ArrayList<>();
+
+        /**
+         * The credential change numbered by each assignment, or {@code null}.
+         */
+        private final List<CredentialChangeDTO> changes = new ArrayList<>();
+
+        /**
+         * The revisions reserved before the commit, each published as its own range, with their change or {@code null}.
+         */
+        private final Map<Long, CredentialChangeDTO> reservedChanges = new LinkedHashMap<>();
+
+        private long from;
+
+        private Allocation(RevisionAllocator owner, boolean immediate) {
+            this.owner = owner;
+            this.immediate = immediate;
+        }
+
+        private void add(LongConsumer assignment, CredentialChangeDTO change) {
+            assignments.add(assignment);
+            changes.add(change);
+            if (immediate) {
+                beforeCommit(false);
+                afterCommit();
+            }
+        }
+
+        private void reserved(long revision, CredentialChangeDTO change) {
+            reservedChanges.put(revision, change);
+            if (immediate) {
+                afterCommit();
+            }
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (assignments.isEmpty()) {
+                return;
+            }
+            from = owner.revisionRepository.reserve(assignments.size());
+            for (int i = 0; i < assignments.size(); i++) {
+                assignments.get(i).accept(from + i);
+                if (changes.get(i) != null) {
+                    changes.get(i).setRevision(from + i);
+                }
+            }
+        }
+
+        @Override
+        public void afterCommit() {
+            reservedChanges.forEach(
+                (revision, change) ->
+                    owner.credentialChangeFeed.publish(
+                        revision,
+                        revision,
+                        change != null ? Collections.singletonList(change) : Collections.emptyList()
+                    )
+            );
+            if (assignments.isEmpty()) {
+                return;
+            }
+            // a credential written several times keeps its last revision, and is still reported as created
+            Map<Long, CredentialChangeDTO> lastChanges = new LinkedHashMap<>();
+            for (CredentialChangeDTO change : changes) {
+                if (change == null) {
+                    continue;
+                }
+                CredentialChangeDTO previous = lastChanges.put(change.getId(), change);
+                if (
+                    previous != null &&
+                    previous.getType() == CredentialChangeDTO.Type.CREATED &&
+                    change.getType() == CredentialChangeDTO.Type.UPDATED
+                ) {
+                    change.setType(CredentialChangeDTO.Type.CREATED);
+                }
+            }
+            List<CredentialChangeDTO> published = new ArrayList<>(lastChanges.values());
+            published.sort(Comparator.comparingLong(CredentialChangeDTO::getRevision));
+            // the whole range is published, so that the feed knows the revisions without credential change
+            owner.credentialChangeFeed.publish(from, from + assignments.size() - 1, published);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.claudiu.macovei.service;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.stereotype.Service;
+
+/**
+ * Records the ids of the entities written to a search index while that index is rebuilt.
+ * <p>
+ * The writes made during a rebuild go to the index the alias points to, which the rebuild replaces: the
+ * {@link SearchReindexService} indexes the recorded entities again, from their committed state, once the alias has
+ * moved. Writes are recorded whether or not their transaction commits, which only causes extra indexing.
+ * {@link CredentialSearchIndexer} records the credential writes itself.
+ */
+@Service
+public class SearchIndexRecorder {
+
+    private final Map<Class<?>, Set<Object>> recordedIds = new ConcurrentHashMap<>();
+
+    /**
+     * Start recording the ids of the written entities of a class, until {@link #stopRecording(Class)}.
+     *
+     * @param entityClass the entity class.
+     */
+    public void startRecording(Class<?> entityClass) {
+        recordedIds.put(entityClass, ConcurrentHashMap.newKeySet());
+    }
+
+    /**
+     * Stop recording the ids of the written entities of a class.
+     *
+     * @param entityClass the entity class.
+     * @param <ID> the type of the ids.
+     * @return the ids written since {@link #startRecording(Class)}.
+     */
+    @SuppressWarnings("unchecked")
+    public <ID> Set<ID> stopRecording(Class<?> entityClass) {
+        Set<Object> ids = recordedIds.remove(entityClass);
+        return ids != null ? (Set<ID>) ids : Collections.emptySet();
+    }
+
+    /**
+     * Record the write of an entity to its search index, if its index is being rebuilt.
+     *
+     * @param entityClass the entity class.
+     * @param id the id of the written entity.
+     */
+    public void record(Class<?> entityClass, Object id) {
+        Set<Object> ids = recordedIds.get(entityClass);
+        if (ids != null && id != null) {
+            ids.add(id);
+        }
+    }
+}
@@ -0,0 +1,432 @@
+package com.claudiu.macovei.service;
+
+import com.claudiu.macovei.domain.Credential;
+import com.claudiu.macovei.domain.IdentityProvider;
+import com.claudiu.macovei.domain.ServiceProvider;
+import com.claudiu.macovei.domain.User;
+import com.claudiu.macovei.repository.CredentialRepository;
+import com.claudiu.macovei.repository.EntityIdRangeRepository;
+import com.claudiu.macovei.repository.IdentityProviderRepository;
+import com.claudiu.macovei.repository.ServiceProviderRepository;
+import com.claudiu.macovei.repository.UserRepository;
+import com.claudiu.macovei.repository.search.SearchIndexAdminRepository;
+import com.claudiu.macovei.service.dto.SearchReindexStatusDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service rebuilding all the Elasticsearch indices from the database, without search downtime.
+ * <p>
+ * Each index is rebuilt into a fresh versioned index: the id space of the entity is split into ranges, which are
+ * read in parallel on a bounded pool and written with one bulk request per chunk. The alias used by the search
+ * repositories is then moved to the new index in one atomic request. The entities written while their index is
+ * rebuilt, which went to the previous index, are indexed again from the database once the alias has moved.
+ * <p>
+ * Only one reindex runs at a time; its progress is available from {@link #getStatus()} and as the
+ * {@code search.reindex.documents} metric.
+ */
+public class SearchReindexService {
+
+    private static final int RANGES_PER_THREAD = 4;
+
+    private static final DateTimeFormatter VERSION_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss").withZone(ZoneOffset.UTC);
+
+    private final Logger log = LoggerFactory.getLogger(SearchReindexService.class);
+
+    private final EntityIdRangeRepository entityIdRangeRepository;
+
+    private final CredentialRepository credentialRepository;
+
+    private final ServiceProviderRepository serviceProviderRepository;
+
+    private final IdentityProviderRepository identityProviderRepository;
+
+    private final UserRepository userRepository;
+
+    private final SearchIndexAdminRepository searchIndexAdminRepository;
+
+    private final CredentialSearchIndexer credentialSearchIndexer;
+
+    private final SearchIndexRecorder searchIndexRecorder;
+
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    private final Executor executor;
+
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile Run currentRun;
+
+    private int parallelism = 4;
+
+    private int chunkSize = 1000;
+
+    public SearchReindexService(
+        EntityIdRangeRepository entityIdRangeRepository,
+        CredentialRepository credentialRepository,
+        ServiceProviderRepository serviceProviderRepository,
+        IdentityProviderRepository identityProviderRepository,
+        UserRepository userRepository,
+        SearchIndexAdminRepository searchIndexAdminRepository,
+        CredentialSearchIndexer credentialSearchIndexer,
+        SearchIndexRecorder searchIndexRecorder,
+        TransactionTemplate readOnlyTransactionTemplate,
+        Executor executor,
+        MeterRegistry meterRegistry
+    ) {
+        this.entityIdRangeRepository = entityIdRangeRepository;
+        this.credentialRepository = credentialRepository;
+        this.serviceProviderRepository = serviceProviderRepository;
+        this.identityProviderRepository = identityProviderRepository;
+        this.userRepository = userRepository;
+        this.searchIndexAdminRepository = searchIndexAdminRepository;
+        this.credentialSearchIndexer = credentialSearchIndexer;
+        this.searchIndexRecorder = searchIndexRecorder;
+        this.readOnlyTransactionTemplate = readOnlyTransactionTemplate;
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Start a full reindex in the background.
+     *
+     * @return {@code false} if a reindex is already running.
+     */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        Run run = new Run();
+        currentRun = run;
+        try {
+            executor.execute(() -> reindexAll(run));
+        } catch (RejectedExecutionException e) {
+            running.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * Get the progress of the current, or last, reindex.
+     *
+     * @return the status.
+     */
+    public SearchReindexStatusDTO getStatus() {
+        SearchReindexStatusDTO status = new SearchReindexStatusDTO();
+        Run run = currentRun;
+        if (run != null) {
+            status.setStartedAt(run.startedAt);
+            status.setFinishedAt(run.finishedAt);
+            status.setError(run.error);
+            status.setIndices(run.indices.stream().map(IndexProgress::toDTO).collect(Collectors.toList()));
+        }
+        status.setRunning(running.get());
+        status.setIndexingQueueSize(credentialSearchIndexer.getQueueSize());
+        status.setIndexingLagMillis(credentialSearchIndexer.getLagMillis());
+        return status;
+    }
+
+    /**
+     * Rebuild all the indices, on the calling thread.
+     */
+    void reindexAll(Run run) {
+        log.info("Starting full search reindex");
+        String version = VERSION_FORMAT.format(run.startedAt);
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, new CustomizableThreadFactory("search-reindex-"));
+        try {
+            reindexCredentials(run, pool, version);
+            replayChanges(
+                ServiceProvider.class,
+                serviceProviderRepository::findAllById,
+                ServiceProvider::getId,
+                () -> reindexRanges(run, pool, version, ServiceProvider.class, serviceProviderRepository::findAllById)
+            );
+            replayChanges(
+                IdentityProvider.class,
+                identityProviderRepository::findAllById,
+                IdentityProvider::getId,
+                () -> reindexRanges(run, pool, version, IdentityProvider.class, identityProviderRepository::findAllById)
+            );
+            replayChanges(User.class, userRepository::findAllById, User::getId, () -> reindexUsers(run, version));
+            log.info("Full search reindex completed");
+        } catch (RuntimeException e) {
+            log.error("Full search reindex failed", e);
+            run.error = e.getMessage();
+        } finally {
+            pool.shutdownNow();
+            run.finishedAt = Instant.now();
+            running.set(false);
+        }
+    }
+
+    private void reindexCredentials(Run run, ExecutorService pool, String version) {
+        credentialSearchIndexer.startRecording();
+        Set<Long> changedIds;
+        try {
+            reindexRanges(run, pool, version, Credential.class, credentialRepository::findAllWithEagerRelationshipsByIdIn);
+        } finally {
+            changedIds = credentialSearchIndexer.stopRecording();
+        }
+        // The alias now points to the new index: catch up with the writes which went to the old one
+        log.debug("Indexing again {} Credentials changed during the reindex", changedIds.size());
+        credentialSearchIndexer.reindex(changedIds);
+    }
+
+    /**
+     * Rebuild an index while recording the writes to it, then index the written entities again into the new index,
+     * deleting the documents of the ones which no longer exist.
+     */
+    private <T, ID> void replayChanges(
+        Class<T> entityClass,
+        Function<List<ID>, List<T>> loader,
+        Function<T, ID> idExtractor,
+        Supplier<String> rebuild
+    ) {
+        searchIndexRecorder.startRecording(entityClass);
+        String indexName;
+        Set<ID> changedIds;
+        try {
+            indexName = rebuild.get();
+        } finally {
+            changedIds = searchIndexRecorder.stopRecording(entityClass);
+        }
+        if (changedIds.isEmpty()) {
+            return;
+        }
+        log.debug("Indexing again {} {} changed during the reindex", changedIds.size(), entityClass.getSimpleName());
+        List<ID> ids = new ArrayList<>(changedIds);
+        Set<ID> deletedIds = new HashSet<>(changedIds);
+        readOnlyTransactionTemplate.executeWithoutResult(status -> {
+            List<T> entities = loader.apply(ids);
+            searchIndexAdminRepository.bulkIndex(entities, indexName);
+            entities.forEach(entity -> deletedIds.remove(idExtractor.apply(entity)));
+        });
+        searchIndexAdminRepository.deleteAll(deletedIds, indexName);
+    }
+
+    private <T> String reindexRanges(
+        Run run,
+        ExecutorService pool,
+        String version,
+        Class<T> entityClass,
+        Function<List<Long>, List<T>> loader
+    ) {
+        return rebuild(
+            run,
+            version,
+            entityClass,
+            entityIdRangeRepository.count(entityClass),
+            (progress, indexName) -> {
+                Optional<long[]> bounds = entityIdRangeRepository.findIdBounds(entityClass);
+                if (bounds.isEmpty()) {
+                    return;
+                }
+                List<Future<?>> futures = new ArrayList<>();
+                for (long[] range : splitRange(bounds.get()[0], bounds.get()[1])) {
+                    futures.add(pool.submit(() -> indexRange(entityClass, range[0], range[1], loader, indexName, progress)));
+                }
+                awaitAll(futures);
+            }
+        );
+    }
+
+    private <T> void indexRange(
+        Class<T> entityClass,
+        long from,
+        long to,
+        Function<List<Long>, List<T>> loader,
+        String indexName,
+        IndexProgress progress
+    ) {
+        long cursor = from;
+        List<Long> ids;
+        do {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new IllegalStateException("Reindex of " + entityClass.getSimpleName() + " was interrupted");
+            }
+            ids = entityIdRangeRepository.findIdsInRange(entityClass, cursor, to, chunkSize);
+            if (!ids.isEmpty()) {
+                List<Long> chunk = ids;
+                // Lazy relationships are read while the documents are written
+                readOnlyTransactionTemplate.executeWithoutResult(status ->
+                    searchIndexAdminRepository.bulkIndex(loader.apply(chunk), indexName)
+                );
+                progress.add(ids.size());
+                cursor = ids.get(ids.size() - 1);
+            }
+        } while (ids.size() == chunkSize);
+    }
+
+    private String reindexUsers(Run run, String version) {
+        return rebuild(
+            run,
+            version,
+            User.class,
+            userRepository.count(),
+            (progress, indexName) -> {
+                // User ids are not numeric: a single keyset scan
+                String cursor = "";
+                List<User> users;
+                do {
+                    String after = cursor;
+                    users =
+                        readOnlyTransactionTemplate.execute(status -> {
+                            List<User> chunk = userRepository.findAllByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, chunkSize));
+                            searchIndexAdminRepository.bulkIndex(chunk, indexName);
+                            return chunk;
+                        });
+                    progress.add(users.size());
+                    if (!users.isEmpty()) {
+                        cursor = users.get(users.size() - 1).getId();
+                    }
+                } while (users.size() == chunkSize);
+            }
+        );
+    }
+
+    private String rebuild(Run run, String version, Class<?> entityClass, long total, IndexLoader indexLoader) {
+        IndexProgress progress = new IndexProgress(entityClass.getSimpleName(), total, meterRegistry);
+        run.indices.add(progress);
+        String indexName = searchIndexAdminRepository.createVersionedIndex(entityClass, version);
+        progress.indexName = indexName;
+        try {
+            indexLoader.load(progress, indexName);
+            searchIndexAdminRepository.switchAlias(entityClass, indexName);
+        } catch (RuntimeException e) {
+            try {
+                searchIndexAdminRepository.deleteIndex(indexName);
+            } catch (RuntimeException deleteException) {
+                log.warn("Could not delete the incomplete index {}: {}", indexName, deleteException.getMessage());
+            }
+            throw e;
+        }
+        progress.complete();
+        log.info("Reindexed {} {} documents into {}", progress.indexed.get(), progress.entity, indexName);
+        return indexName;
+    }
+
+    /**
+     * Split {@code [min, max]} into ranges of {@code (from, to]} ids, a few per thread so that sparse ranges
+     * do not leave threads idle.
+     */
+    private List<long[]> splitRange(long min, long max) {
+        long rangeCount = Math.min((long) parallelism * RANGES_PER_THREAD, max - min + 1);
+        long step = (max - min + rangeCount) / rangeCount;
+        List<long[]> ranges = new ArrayList<>();
+        for (long from = min - 1; from < max; from += step) {
+            ranges.add(new long[] { from, Math.min(from + step, max) });
+        }
+        return ranges;
+    }
+
+    private void awaitAll(List<Future<?>> futures) {
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Reindex failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reindex was interrupted", e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface IndexLoader {
+        void load(IndexProgress progress, String indexName);
+    }
+
+    static final class Run {
+
+        private final Instant startedAt = Instant.now();
+
+        private final List<IndexProgress> indices = new CopyOnWriteArrayList<>();
+
+        private volatile Instant finishedAt;
+
+        private volatile String error;
+    }
+
+    private static final class IndexProgress {
+
+        private final String entity;
+
+        private final long total;
+
+        private final AtomicLong indexed = new AtomicLong();
+
+        private final Counter counter;
+
+        private final long startedAt = System.nanoTime();
+
+        private volatile long finishedAt;
+
+        private volatile String indexName;
+
+        private IndexProgress(String entity, long total, MeterRegistry meterRegistry) {
+            this.entity = entity;
+            this.total = total;
+            this.counter = Counter.builder("search.reindex.documents").tag("entity", entity).register(meterRegistry);
+        }
+
+        private void add(int count) {
+            indexed.addAndGet(count);
+            counter.increment(count);
+        }
+
+        private void complete() {
+            finishedAt = System.nanoTime();
+        }
+
+        private SearchReindexStatusDTO.IndexProgress toDTO() {
+            SearchReindexStatusDTO.IndexProgress dto = new SearchReindexStatusDTO.IndexProgress();
+            dto.setEntity(entity);
+            dto.setIndexName(indexName);
+            dto.setTotal(total);
+            dto.setIndexed(indexed.get());
+            dto.setCompleted(finishedAt != 0);
+            long elapsedNanos = (finishedAt != 0 ? finishedAt : System.nanoTime()) - startedAt;
+            dto.setDocumentsPerSecond(elapsedNanos > 0 ? indexed.get() * 1_000_000_000d / elapsedNanos : 0);
+            return dto;
+        }
+    }
+}
@@ -3,12 +3,15 @@ package com.claudiu.macovei.service;
 import com.claudiu.macovei.config.Constants;
 import com.claudiu.macovei.domain.Authority;
 import com.claudiu.macovei.domain.User;
-import com.claudiu.macovei.repository.AuthorityRepository;
 import com.claudiu.macovei.repository.UserRepository;
 import com.claudiu.macovei.repository.search.UserSearchRepository;
 import com.claudiu.macovei.security.SecurityUtils;
 import com.claudiu.macovei.service.dto.AdminUserDTO;
 import com.claudiu.macovei.service.dto.UserDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -21,13 +24,14 @@ import org.springframework.security.authentication.AbstractAuthenticationToken;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
-import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
 
 /**
  * Service class for managing users.
  */
-@Service
 @Transactional
 public class UserService {
 
@@ -37,20 +41,37 @@ public class UserService {
 
     private final UserSearchRepository userSearchRepository;
 
-    private final AuthorityRepository authorityRepository;
+    private final SearchIndexRecorder searchIndexRecorder;
+
+    private final AuthorityRegistry authorityRegistry;
 
     private final CacheManager cacheManager;
 
+    /**
+     * The fingerprint of the claims last synchronized for each login, to skip the synchronization of unchanged users.
+     */
+    private final Cache<String, String> syncedUsers;
+
     public UserService(
         UserRepository userRepository,
         UserSearchRepository userSearchRepository,
-        AuthorityRepository authorityRepository,
-        CacheManager cacheManager
+        SearchIndexRecorder searchIndexRecorder,
+        AuthorityRegistry authorityRegistry,
+        CacheManager cacheManager,
+        long maxSyncedUsers,
+        Duration syncedUserTimeToLive
     ) {
         this.userRepository = userRepository;
         this.userSearchRepository = userSearchRepository;
-        this.authorityRepository = authorityRepository;
+        this.searchIndexRecorder = searchIndexRecorder;
+        this.authorityRegistry = authorityRegistry;
         this.cacheManager = cacheManager;
+        this.syncedUsers =
+            Caffeine
+                .newBuilder()
+                .maximumSize(maxSyncedUsers)
+                .expireAfterWrite(syncedUserTimeToLive)
+                .build();
     }
 
     /**
@@ -75,6 +96,7 @@ public class UserService {
                 user.setLangKey(langKey);
                 user.setImageUrl(imageUrl);
                 userSearchRepository.save(user);
+                searchIndexRecorder.record(User.class, user.getId());
                 this.clearUserCaches(user);
                 log.debug("Changed Information for User: {}", user);
             });
@@ -101,36 +123,19 @@ public class UserService {
      */
     @Transactional(readOnly = true)
     public List<String> getAuthorities() {
-        return authorityRepository.findAll().stream().map(Authority::getName).collect(Collectors.toList());
+        return authorityRegistry.getAll().stream().sorted().collect(Collectors.toList());
     }
 
     private User syncUserWithIdP(Map<String, Object> details, User user) {
         // save authorities in to sync user roles/groups between IdP and JHipster's local database
-        Collection<String> dbAuthorities = getAuthorities();
-        Collection<String> userAuthorities = user.getAuthorities().stream().map(Authority::getName).collect(Collectors.toList());
-        for (String authority : userAuthorities) {
-            if (!dbAuthorities.contains(authority)) {
-                log.debug("Saving authority '{}' in local database", authority);
-                Authority authorityToSave = new Authority();
-                authorityToSave.setName(authority);
-                authorityRepository.save(authorityToSave);
-            }
-        }
+        authorityRegistry.ensureExist(user.getAuthorities().stream().map(Authority::getName).collect(Collectors.toSet()));
         // save account in to sync users between IdP and JHipster's local database
         Optional<User> existingUser = userRepository.findOneByLogin(user.getLogin());
         if (existingUser.isPresent()) {
             // if IdP sends last updated information, use it to determine if an update should happen
-            if (details.get("updated_at") != null) {
-                Instant dbModifiedDate = existingUser.get().getLastModifiedDate();
-                Instant idpModifiedDate = (Instant) details.get("updated_at");
-                if (idpModifiedDate.isAfter(dbModifiedDate)) {
-                    log.debug("Updating user '{}' in local database", user.getLogin());
-                    updateUser(user.getFirstName(), user.getLastName(), user.getEmail(), user.getLangKey(), user.getImageUrl());
-                }
-                // no last updated info, blindly update
-            } else {
-                log.debug("Updating user '{}' in local database", user.getLogin());
-                updateUser(user.getFirstName(), user.getLastName(), user.getEmail(), user.getLangKey(), user.getImageUrl());
+            Instant idpModifiedDate = (Instant) details.get("updated_at");
+            if (idpModifiedDate == null || idpModifiedDate.isAfter(existingUser.get().getLastModifiedDate())) {
+                updateUser(existingUser.get(), user);
             }
         } else {
             log.debug("Saving user '{}' in local database", user.getLogin());
@@ -140,9 +145,74 @@ public class UserService {
         return user;
     }
 
+    /**
+     * Copy the information of the IdP to the user of the local database, and index it, only if it changed.
+     */
+    private void updateUser(User existingUser, User user) {
+        String email = user.getEmail() != null ? user.getEmail().toLowerCase() : existingUser.getEmail();
+        if (
+            Objects.equals(existingUser.getFirstName(), user.getFirstName()) &&
+            Objects.equals(existingUser.getLastName(), user.getLastName()) &&
+            Objects.equals(existingUser.getEmail(), email) &&
+            Objects.equals(existingUser.getLangKey(), user.getLangKey()) &&
+            Objects.equals(existingUser.getImageUrl(), user.getImageUrl())
+        ) {
+            return;
+        }
+        log.debug("Updating user '{}' in local database", user.getLogin());
+        this.clearUserCaches(existingUser);
+        existingUser.setFirstName(user.getFirstName());
+        existingUser.setLastName(user.getLastName());
+        existingUser.setEmail(email);
+        existingUser.setLangKey(user.getLangKey());
+        existingUser.setImageUrl(user.getImageUrl());
+        userSearchRepository.save(existingUser);
+        searchIndexRecorder.record(User.class, existingUser.getId());
+        this.clearUserCaches(existingUser);
+    }
+
+    /**
+     * Remember the synchronization of a user once its transaction commits, so that a rolled back synchronization is
+     * retried by the next request.
+     */
+    private void rememberSync(String login, String fingerprint) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            syncedUsers.put(login, fingerprint);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+            new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    syncedUsers.put(login, fingerprint);
+                }
+            }
+        );
+    }
+
+    /**
+     * The fingerprint of the information of the IdP synchronized in the local database.
+     */
+    private static String fingerprint(User user) {
+        String authorities = user.getAuthorities().stream().map(Authority::getName).sorted().collect(Collectors.joining(","));
+        String claims = String.join(
+            "\n",
+            user.getId(),
+            user.getLogin(),
+            String.valueOf(user.getFirstName()),
+            String.valueOf(user.getLastName()),
+            String.valueOf(user.getEmail()),
+            String.valueOf(user.getLangKey()),
+            String.valueOf(user.getImageUrl()),
+            String.valueOf(user.isActivated()),
+            authorities
+        );
+        return DigestUtils.md5DigestAsHex(claims.getBytes(StandardCharsets.UTF_8));
+    }
+
     /**
      * Returns the user from an OAuth 2.0 login or resource server with JWT.
-     * Synchronizes the user in the local repository.
+     * Synchronizes the user in the local repository, unless the same information was already synchronized recently.
      *
      * @param authToken the authentication token.
      * @return the user from the authentication.
@@ -171,7 +241,13 @@ public class UserService {
                 .collect(Collectors.toSet())
         );
 
-        return new AdminUserDTO(syncUserWithIdP(attributes, user));
+        String fingerprint = fingerprint(user);
+        if (fingerprint.equals(syncedUsers.getIfPresent(user.getLogin()))) {
+            return new AdminUserDTO(user);
+        }
+        syncUserWithIdP(attributes, user);
+        rememberSync(user.getLogin(), fingerprint);
+        return new AdminUserDTO(user);
     }
 
     private static User getUser(Map<String, Object> details) {
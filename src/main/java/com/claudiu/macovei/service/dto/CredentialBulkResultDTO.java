@@ -0,0 +1,78 @@
+package com.claudiu.macovei.service.dto;
+
+/**
+ * A DTO representing the outcome of one item of a bulk credential request.
+ */
+public class CredentialBulkResultDTO {
+
+    public enum Status {
+        CREATED,
+        UPDATED,
+        FAILED,
+    }
+
+    private int index;
+
+    private Long id;
+
+    private Status status;
+
+    private String message;
+
+    public CredentialBulkResultDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public CredentialBulkResultDTO(Long id, Status status, String message) {
+        this.id = id;
+        this.status = status;
+        this.message = message;
+    }
+
+    public static CredentialBulkResultDTO failed(Long id, String message) {
+        return new CredentialBulkResultDTO(id, Status.FAILED, message);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "CredentialBulkResultDTO{" +
+            "index=" + index +
+            ", id=" + id +
+            ", status=" + status +
+            ", message='" + message + '\'' +
+            "}";
+    }
+}
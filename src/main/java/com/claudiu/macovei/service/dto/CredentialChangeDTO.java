@@ -0,0 +1,81 @@
+package com.claudiu.macovei.service.dto;
+
+import com.claudiu.macovei.domain.Credential;
+
+/**
+ * A DTO representing a committed change of a credential, as published by the change feed or read after a revision.
+ * <p>
+ * Its revision is the one of the credential row, or of its tombstone, in both cases.
+ */
+public class CredentialChangeDTO {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+    }
+
+    private long revision;
+
+    private Type type;
+
+    private Long id;
+
+    private Credential credential;
+
+    public CredentialChangeDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public CredentialChangeDTO(Type type, Long id, Credential credential) {
+        this.type = type;
+        this.id = id;
+        this.credential = credential;
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(long revision) {
+        this.revision = revision;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    /**
+     * The committed state of the credential, with its relationships, when read after a revision; {@code null} when
+     * deleted, and in the changes of the feed.
+     */
+    public Credential getCredential() {
+        return credential;
+    }
+
+    public void setCredential(Credential credential) {
+        this.credential = credential;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "CredentialChangeDTO{" +
+            "revision=" + revision +
+            ", type=" + type +
+            ", id=" + id +
+            "}";
+    }
+}
@@ -0,0 +1,171 @@
+package com.claudiu.macovei.service.dto;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A DTO representing the progress of a full search reindex.
+ */
+public class SearchReindexStatusDTO {
+
+    private boolean running;
+
+    private Instant startedAt;
+
+    private Instant finishedAt;
+
+    private String error;
+
+    private List<IndexProgress> indices = new ArrayList<>();
+
+    private long indexingQueueSize;
+
+    private long indexingLagMillis;
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public void setRunning(boolean running) {
+        this.running = running;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(Instant startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(Instant finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public List<IndexProgress> getIndices() {
+        return indices;
+    }
+
+    public void setIndices(List<IndexProgress> indices) {
+        this.indices = indices;
+    }
+
+    public long getIndexingQueueSize() {
+        return indexingQueueSize;
+    }
+
+    public void setIndexingQueueSize(long indexingQueueSize) {
+        this.indexingQueueSize = indexingQueueSize;
+    }
+
+    public long getIndexingLagMillis() {
+        return indexingLagMillis;
+    }
+
+    public void setIndexingLagMillis(long indexingLagMillis) {
+        this.indexingLagMillis = indexingLagMillis;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "SearchReindexStatusDTO{" +
+            "running=" + running +
+            ", startedAt=" + startedAt +
+            ", finishedAt=" + finishedAt +
+            ", error='" + error + '\'' +
+            ", indices=" + indices +
+            "}";
+    }
+
+    /**
+     * The progress of the rebuild of one index.
+     */
+    public static class IndexProgress {
+
+        private String entity;
+
+        private String indexName;
+
+        private long total;
+
+        private long indexed;
+
+        private double documentsPerSecond;
+
+        private boolean completed;
+
+        public String getEntity() {
+            return entity;
+        }
+
+        public void setEntity(String entity) {
+            this.entity = entity;
+        }
+
+        public String getIndexName() {
+            return indexName;
+        }
+
+        public void setIndexName(String indexName) {
+            this.indexName = indexName;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public void setTotal(long total) {
+            this.total = total;
+        }
+
+        public long getIndexed() {
+            return indexed;
+        }
+
+        public void setIndexed(long indexed) {
+            this.indexed = indexed;
+        }
+
+        public double getDocumentsPerSecond() {
+            return documentsPerSecond;
+        }
+
+        public void setDocumentsPerSecond(double documentsPerSecond) {
+            this.documentsPerSecond = documentsPerSecond;
+        }
+
+        public boolean isCompleted() {
+            return completed;
+        }
+
+        public void setCompleted(boolean completed) {
+            this.completed = completed;
+        }
+
+        // prettier-ignore
+        @Override
+        public String toString() {
+            return "IndexProgress{" +
+                "entity='" + entity + '\'' +
+                ", indexName='" + indexName + '\'' +
+                ", total=" + total +
+                ", indexed=" + indexed +
+                ", completed=" + completed +
+                "}";
+        }
+    }
+}
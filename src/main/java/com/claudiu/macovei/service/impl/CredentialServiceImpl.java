@@ -3,15 +3,50 @@ package com.claudiu.macovei.service.impl;
 import static org.elasticsearch.index.query.QueryBuilders.*;
 
 import com.claudiu.macovei.domain.Credential;
+import com.claudiu.macovei.domain.IdentityProvider;
+import com.claudiu.macovei.domain.ServiceProvider;
+import com.claudiu.macovei.repository.CredentialExportRepository;
 import com.claudiu.macovei.repository.CredentialRepository;
+import com.claudiu.macovei.repository.CredentialUpdateRepository;
+import com.claudiu.macovei.repository.IdentityProviderRepository;
+import com.claudiu.macovei.repository.RevisionRepository;
+import com.claudiu.macovei.repository.ServiceProviderRepository;
+import com.claudiu.macovei.repository.search.CredentialSearchCriteria;
+import com.claudiu.macovei.repository.search.CredentialSearchSummary;
 import com.claudiu.macovei.repository.search.CredentialSearchRepository;
+import com.claudiu.macovei.repository.search.SearchAfterPage;
+import com.claudiu.macovei.service.CredentialResolutionIndex;
+import com.claudiu.macovei.service.CredentialSearchIndexer;
 import com.claudiu.macovei.service.CredentialService;
+import com.claudiu.macovei.service.RevisionAllocator;
+import com.claudiu.macovei.service.dto.CredentialBulkResultDTO;
+import com.claudiu.macovei.service.dto.CredentialChangeDTO;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.persistence.EntityNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -27,49 +62,216 @@ public class CredentialServiceImpl implements CredentialService {
 
     private final CredentialSearchRepository credentialSearchRepository;
 
-    public CredentialServiceImpl(CredentialRepository credentialRepository, CredentialSearchRepository credentialSearchRepository) {
+    private final CredentialExportRepository credentialExportRepository;
+
+    private final CredentialUpdateRepository credentialUpdateRepository;
+
+    private final ServiceProviderRepository serviceProviderRepository;
+
+    private final IdentityProviderRepository identityProviderRepository;
+
+    private final RevisionRepository revisionRepository;
+
+    private final RevisionAllocator revisionAllocator;
+
+    private final CredentialSearchIndexer credentialSearchIndexer;
+
+    private final CredentialResolutionIndex credentialResolutionIndex;
+
+    public CredentialServiceImpl(
+        CredentialRepository credentialRepository,
+        CredentialSearchRepository credentialSearchRepository,
+        CredentialExportRepository credentialExportRepository,
+        CredentialUpdateRepository credentialUpdateRepository,
+        ServiceProviderRepository serviceProviderRepository,
+        IdentityProviderRepository identityProviderRepository,
+        RevisionRepository revisionRepository,
+        RevisionAllocator revisionAllocator,
+        CredentialSearchIndexer credentialSearchIndexer,
+        CredentialResolutionIndex credentialResolutionIndex
+    ) {
         this.credentialRepository = credentialRepository;
         this.credentialSearchRepository = credentialSearchRepository;
+        this.credentialExportRepository = credentialExportRepository;
+        this.credentialUpdateRepository = credentialUpdateRepository;
+        this.serviceProviderRepository = serviceProviderRepository;
+        this.identityProviderRepository = identityProviderRepository;
+        this.revisionRepository = revisionRepository;
+        this.revisionAllocator = revisionAllocator;
+        this.credentialSearchIndexer = credentialSearchIndexer;
+        this.credentialResolutionIndex = credentialResolutionIndex;
     }
 
     @Override
     public Credential save(Credential credential) {
         log.debug("Request to save Credential : {}", credential);
+        boolean created = credential.getId() == null;
         Credential result = credentialRepository.save(credential);
-        credentialSearchRepository.save(result);
+        if (created) {
+            revisionAllocator.assignCreated(result);
+        } else {
+            revisionAllocator.assign(result);
+        }
+        credentialSearchIndexer.index(result);
+        credentialResolutionIndex.refreshAfterCommit(Collections.singletonList(result.getId()));
         return result;
     }
 
+    @Override
+    public List<CredentialBulkResultDTO> saveAll(List<Credential> credentials) {
+        log.debug("Request to save {} Credentials in bulk", credentials.size());
+        Set<Long> ids = credentials.stream().map(Credential::getId).filter(Objects::nonNull).collect(Collectors.toSet());
+        // Load the entities to update with a single query, so that updates are flushed as one JDBC batch
+        Map<Long, Credential> existingCredentials = credentialRepository
+            .findAllById(ids)
+            .stream()
+            .collect(Collectors.toMap(Credential::getId, Function.identity()));
+
+        List<CredentialBulkResultDTO> results = new ArrayList<>(credentials.size());
+        List<Credential> toSave = new ArrayList<>(credentials.size());
+        List<CredentialBulkResultDTO> savedResults = new ArrayList<>(credentials.size());
+        for (Credential credential : credentials) {
+            CredentialBulkResultDTO result;
+            if (credential.getId() == null) {
+                result = new CredentialBulkResultDTO(null, CredentialBulkResultDTO.Status.CREATED, null);
+                toSave.add(credential);
+                savedResults.add(result);
+            } else if (existingCredentials.containsKey(credential.getId())) {
+                Credential existingCredential = existingCredentials.get(credential.getId());
+                existingCredential.setProfile(credential.getProfile());
+                existingCredential.setEnabled(credential.getEnabled());
+                existingCredential.setUsername(credential.getUsername());
+                existingCredential.setPassword(credential.getPassword());
+                existingCredential.setIdentityProvider(credential.getIdentityProvider());
+                existingCredential.setServiceProviders(
+                    credential.getServiceProviders() != null ? new HashSet<>(credential.getServiceProviders()) : new HashSet<>()
+                );
+                result = new CredentialBulkResultDTO(credential.getId(), CredentialBulkResultDTO.Status.UPDATED, null);
+                toSave.add(existingCredential);
+                savedResults.add(result);
+            } else {
+                result = CredentialBulkResultDTO.failed(credential.getId(), "Entity not found");
+            }
+            results.add(result);
+        }
+
+        // the entities are flushed on commit, once they have their revision
+        List<Credential> saved = credentialRepository.saveAll(toSave);
+        for (int i = 0; i < saved.size(); i++) {
+            savedResults.get(i).setId(saved.get(i).getId());
+            if (savedResults.get(i).getStatus() == CredentialBulkResultDTO.Status.CREATED) {
+                revisionAllocator.assignCreated(saved.get(i));
+            } else {
+                revisionAllocator.assign(saved.get(i));
+            }
+        }
+        credentialSearchIndexer.indexAll(saved);
+        credentialResolutionIndex.refreshAfterCommit(saved.stream().map(Credential::getId).collect(Collectors.toList()));
+        return results;
+    }
+
+    @Override
+    public Optional<Credential> update(Credential credential) {
+        log.debug("Request to update Credential : {}", credential);
+        Set<ServiceProvider> serviceProviders = findServiceProviders(credential.getServiceProviders());
+        IdentityProvider identityProvider = credential.getIdentityProvider() != null
+            ? findIdentityProvider(credential.getIdentityProvider())
+            : null;
+        Map<String, Object> columns = new LinkedHashMap<>();
+        columns.put(CredentialUpdateRepository.PROFILE, credential.getProfile());
+        columns.put(CredentialUpdateRepository.ENABLED, credential.getEnabled());
+        columns.put(CredentialUpdateRepository.USERNAME, credential.getUsername());
+        columns.put(CredentialUpdateRepository.PASSWORD, credential.getPassword());
+        columns.put(CredentialUpdateRepository.IDENTITY_PROVIDER_ID, identityProvider != null ? identityProvider.getId() : null);
+        OptionalLong revision = updateIfUnchanged(credential.getId(), credential.getRevision(), columns);
+        if (revision.isEmpty()) {
+            return Optional.empty();
+        }
+        credentialUpdateRepository.replaceServiceProviders(
+            credential.getId(),
+            serviceProviders.stream().map(ServiceProvider::getId).collect(Collectors.toSet())
+        );
+        // the request holds every column, so it is answered and indexed instead of reading the credential again
+        credential.setRevision(revision.getAsLong());
+        credential.setIdentityProvider(identityProvider);
+        credential.setServiceProviders(serviceProviders);
+        credentialSearchIndexer.index(credential);
+        credentialResolutionIndex.refreshAfterCommit(Collections.singletonList(credential.getId()));
+        return Optional.of(credential);
+    }
+
     @Override
     public Optional<Credential> partialUpdate(Credential credential) {
         log.debug("Request to partially update Credential : {}", credential);
-
+        Map<String, Object> columns = new LinkedHashMap<>();
+        if (credential.getProfile() != null) {
+            columns.put(CredentialUpdateRepository.PROFILE, credential.getProfile());
+        }
+        if (credential.getEnabled() != null) {
+            columns.put(CredentialUpdateRepository.ENABLED, credential.getEnabled());
+        }
+        if (credential.getUsername() != null) {
+            columns.put(CredentialUpdateRepository.USERNAME, credential.getUsername());
+        }
+        if (credential.getPassword() != null) {
+            columns.put(CredentialUpdateRepository.PASSWORD, credential.getPassword());
+        }
+        if (updateIfUnchanged(credential.getId(), credential.getRevision(), columns).isEmpty()) {
+            return Optional.empty();
+        }
+        // the columns which were not patched are only known once read
         return credentialRepository
-            .findById(credential.getId())
-            .map(existingCredential -> {
-                if (credential.getProfile() != null) {
-                    existingCredential.setProfile(credential.getProfile());
-                }
-                if (credential.getEnabled() != null) {
-                    existingCredential.setEnabled(credential.getEnabled());
-                }
-                if (credential.getUsername() != null) {
-                    existingCredential.setUsername(credential.getUsername());
-                }
-                if (credential.getPassword() != null) {
-                    existingCredential.setPassword(credential.getPassword());
-                }
-
-                return existingCredential;
-            })
-            .map(credentialRepository::save)
+            .findOneWithEagerRelationships(credential.getId())
             .map(savedCredential -> {
-                credentialSearchRepository.save(savedCredential);
-
+                credentialSearchIndexer.index(savedCredential);
+                credentialResolutionIndex.refreshAfterCommit(Collections.singletonList(savedCredential.getId()));
                 return savedCredential;
             });
     }
 
+    /**
+     * Run a conditional update writing the new revision, telling a missing credential from a concurrent change when no
+     * row is updated.
+     */
+    private OptionalLong updateIfUnchanged(Long id, Long expectedRevision, Map<String, Object> columns) {
+        OptionalLong revision = revisionAllocator.assignUpdated(
+            id,
+            newRevision -> credentialUpdateRepository.update(id, expectedRevision, newRevision, columns)
+        );
+        if (revision.isEmpty() && expectedRevision != null && credentialRepository.existsById(id)) {
+            throw new OptimisticLockingFailureException("Credential " + id + " was changed since revision " + expectedRevision);
+        }
+        return revision;
+    }
+
+    /**
+     * Find the service providers of an updated credential by id, mostly from the second-level cache, before writing
+     * anything: an unknown id would otherwise fail the foreign key.
+     */
+    private Set<ServiceProvider> findServiceProviders(Set<ServiceProvider> serviceProviders) {
+        Set<ServiceProvider> found = new HashSet<>();
+        if (serviceProviders != null) {
+            for (ServiceProvider serviceProvider : serviceProviders) {
+                found.add(findById(serviceProviderRepository, serviceProvider.getId(), "ServiceProvider"));
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Find the identity provider of an updated credential by id, mostly from the second-level cache.
+     */
+    private IdentityProvider findIdentityProvider(IdentityProvider identityProvider) {
+        return findById(identityProviderRepository, identityProvider.getId(), "IdentityProvider");
+    }
+
+    private static <T> T findById(JpaRepository<T, Long> repository, Long id, String entityName) {
+        if (id == null) {
+            throw new EntityNotFoundException("A " + entityName + " has no id");
+        }
+        return repository.findById(id).orElseThrow(() -> new EntityNotFoundException(entityName + " " + id + " not found"));
+    }
+
     @Override
     @Transactional(readOnly = true)
     public Page<Credential> findAll(Pageable pageable) {
@@ -77,8 +279,69 @@ public class CredentialServiceImpl implements CredentialService {
         return credentialRepository.findAll(pageable);
     }
 
+    @Override
+    @Transactional(readOnly = true)
     public Page<Credential> findAllWithEagerRelationships(Pageable pageable) {
-        return credentialRepository.findAllWithEagerRelationships(pageable);
+        log.debug("Request to get all Credentials with eager relationships");
+        Page<Long> ids = credentialRepository.findAllIds(pageable);
+        return new PageImpl<>(findAllWithEagerRelationshipsByIds(ids.getContent()), ids.getPageable(), ids.getTotalElements());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Credential> findAllAfter(Long id, int size) {
+        log.debug("Request to get Credentials after id {}", id);
+        return credentialRepository.findAllByIdGreaterThanOrderByIdAsc(id, PageRequest.of(0, size));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Credential> findAllWithEagerRelationshipsAfter(Long id, int size) {
+        log.debug("Request to get Credentials with eager relationships after id {}", id);
+        return findAllWithEagerRelationshipsByIds(credentialRepository.findAllIdsAfter(id, PageRequest.of(0, size)));
+    }
+
+    /**
+     * Fetch the credentials with their relationships in a single query, keeping the order of the given ids.
+     */
+    private List<Credential> findAllWithEagerRelationshipsByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Credential> credentialsById = credentialRepository
+            .findAllWithEagerRelationshipsByIdIn(ids)
+            .stream()
+            .collect(Collectors.toMap(Credential::getId, Function.identity()));
+        return ids.stream().map(credentialsById::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<CredentialChangeDTO> findAllChangedAfter(long revision, int size) {
+        log.debug("Request to get the Credentials changed after revision {}", revision);
+        List<Long> changedIds = credentialRepository.findAllIdsChangedAfter(revision, PageRequest.of(0, size));
+        List<CredentialChangeDTO> changes = new ArrayList<>();
+        for (Credential credential : findAllWithEagerRelationshipsByIds(changedIds)) {
+            changes.add(change(CredentialChangeDTO.Type.UPDATED, credential.getId(), credential, credential.getRevision()));
+        }
+        revisionRepository
+            .findCredentialTombstonesAfter(revision, size)
+            .forEach((deletionRevision, id) -> changes.add(change(CredentialChangeDTO.Type.DELETED, id, null, deletionRevision)));
+        changes.sort(Comparator.comparingLong(CredentialChangeDTO::getRevision));
+        return changes.size() > size ? new ArrayList<>(changes.subList(0, size)) : changes;
+    }
+
+    private static CredentialChangeDTO change(CredentialChangeDTO.Type type, Long id, Credential credential, long revision) {
+        CredentialChangeDTO change = new CredentialChangeDTO(type, id, credential);
+        change.setRevision(revision);
+        return change;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void exportAll(Consumer<List<Credential>> batchConsumer) {
+        log.debug("Request to export all Credentials");
+        credentialExportRepository.streamAll(batchConsumer);
     }
 
     @Override
@@ -92,7 +355,23 @@ public class CredentialServiceImpl implements CredentialService {
     public void delete(Long id) {
         log.debug("Request to delete Credential : {}", id);
         credentialRepository.deleteById(id);
-        credentialSearchRepository.deleteById(id);
+        revisionAllocator.assignDeleted(id);
+        credentialSearchIndexer.delete(id);
+        credentialResolutionIndex.refreshAfterCommit(Collections.singletonList(id));
+    }
+
+    @Override
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public List<Credential> resolve(String serviceProviderName, String profile) {
+        log.debug("Request to resolve Credentials for service provider {} and profile {}", serviceProviderName, profile);
+        return credentialResolutionIndex.resolve(serviceProviderName, profile);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Long> findRevision(Long id) {
+        log.debug("Request to get the revision of Credential : {}", id);
+        return credentialRepository.findRevisionById(id);
     }
 
     @Override
@@ -101,4 +380,39 @@ public class CredentialServiceImpl implements CredentialService {
         log.debug("Request to search for a page of Credentials for query {}", query);
         return credentialSearchRepository.search(query, pageable);
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public SearchAfterPage<Credential> search(String query, Sort sort, List<Object> searchAfter, int size) {
+        log.debug("Request to search for Credentials for query {} after {}", query, searchAfter);
+        return credentialSearchRepository.search(query, sort, searchAfter, size);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<Credential> search(CredentialSearchCriteria criteria, Pageable pageable) {
+        log.debug("Request to search for a page of Credentials for {}", criteria);
+        return credentialSearchRepository.search(criteria, pageable);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public SearchAfterPage<Credential> search(CredentialSearchCriteria criteria, Sort sort, List<Object> searchAfter, int size) {
+        log.debug("Request to search for Credentials for {} after {}", criteria, searchAfter);
+        return credentialSearchRepository.search(criteria, sort, searchAfter, size);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<CredentialSearchSummary> searchSummaries(String query, Pageable pageable) {
+        log.debug("Request to search for a page of Credential summaries for query {}", query);
+        return credentialSearchRepository.searchSummaries(query, pageable);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public SearchAfterPage<CredentialSearchSummary> searchSummaries(String query, Sort sort, List<Object> searchAfter, int size) {
+        log.debug("Request to search for Credential summaries for query {} after {}", query, searchAfter);
+        return credentialSearchRepository.searchSummaries(query, sort, searchAfter, size);
+    }
 }
@@ -3,14 +3,23 @@ package com.claudiu.macovei.service.impl;
 import static org.elasticsearch.index.query.QueryBuilders.*;
 
 import com.claudiu.macovei.domain.IdentityProvider;
+import com.claudiu.macovei.repository.CredentialRepository;
 import com.claudiu.macovei.repository.IdentityProviderRepository;
 import com.claudiu.macovei.repository.search.IdentityProviderSearchRepository;
+import com.claudiu.macovei.repository.search.SearchAfterPage;
+import com.claudiu.macovei.service.CredentialResolutionIndex;
 import com.claudiu.macovei.service.IdentityProviderService;
+import com.claudiu.macovei.service.RevisionAllocator;
+import com.claudiu.macovei.service.SearchIndexRecorder;
+import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -27,19 +36,45 @@ public class IdentityProviderServiceImpl implements IdentityProviderService {
 
     private final IdentityProviderSearchRepository identityProviderSearchRepository;
 
+    private final CredentialRepository credentialRepository;
+
+    private final RevisionAllocator revisionAllocator;
+
+    private final SearchIndexRecorder searchIndexRecorder;
+
+    private final CredentialResolutionIndex credentialResolutionIndex;
+
     public IdentityProviderServiceImpl(
         IdentityProviderRepository identityProviderRepository,
-        IdentityProviderSearchRepository identityProviderSearchRepository
+        IdentityProviderSearchRepository identityProviderSearchRepository,
+        CredentialRepository credentialRepository,
+        RevisionAllocator revisionAllocator,
+        SearchIndexRecorder searchIndexRecorder,
+        CredentialResolutionIndex credentialResolutionIndex
     ) {
         this.identityProviderRepository = identityProviderRepository;
         this.identityProviderSearchRepository = identityProviderSearchRepository;
+        this.credentialRepository = credentialRepository;
+        this.revisionAllocator = revisionAllocator;
+        this.searchIndexRecorder = searchIndexRecorder;
+        this.credentialResolutionIndex = credentialResolutionIndex;
     }
 
     @Override
     public IdentityProvider save(IdentityProvider identityProvider) {
         log.debug("Request to save IdentityProvider : {}", identityProvider);
+        // persisting the entity gives it its id, so whether it is updated is known beforehand
+        boolean updated = identityProvider.getId() != null;
+        // the resolved credentials embed their identity provider name, so only a rename invalidates them; the stored
+        // entity is read from the second-level cache, and is the one merged below
+        if (updated && !Objects.equals(findName(identityProvider.getId()), identityProvider.getName())) {
+            credentialResolutionIndex.rebuildAfterCommit();
+        }
         IdentityProvider result = identityProviderRepository.save(identityProvider);
+        // the saved entity, which is the managed one, is given the revision
+        assignRevisions(result, updated);
         identityProviderSearchRepository.save(result);
+        searchIndexRecorder.record(IdentityProvider.class, result.getId());
         return result;
     }
 
@@ -51,19 +86,38 @@ public class IdentityProviderServiceImpl implements IdentityProviderService {
             .findById(identityProvider.getId())
             .map(existingIdentityProvider -> {
                 if (identityProvider.getName() != null) {
+                    if (!identityProvider.getName().equals(existingIdentityProvider.getName())) {
+                        credentialResolutionIndex.rebuildAfterCommit();
+                    }
                     existingIdentityProvider.setName(identityProvider.getName());
                 }
+                assignRevisions(existingIdentityProvider, true);
 
                 return existingIdentityProvider;
             })
             .map(identityProviderRepository::save)
             .map(savedIdentityProvider -> {
                 identityProviderSearchRepository.save(savedIdentityProvider);
+                searchIndexRecorder.record(IdentityProvider.class, savedIdentityProvider.getId());
 
                 return savedIdentityProvider;
             });
     }
 
+    private String findName(Long id) {
+        return identityProviderRepository.findById(id).map(IdentityProvider::getName).orElse(null);
+    }
+
+    /**
+     * Give a new revision to an identity provider and, when it is updated, to its credentials, which embed its name.
+     */
+    private void assignRevisions(IdentityProvider identityProvider, boolean updated) {
+        revisionAllocator.assign(identityProvider);
+        if (updated) {
+            credentialRepository.findAllByIdentityProviderId(identityProvider.getId()).forEach(revisionAllocator::assign);
+        }
+    }
+
     @Override
     @Transactional(readOnly = true)
     public Page<IdentityProvider> findAll(Pageable pageable) {
@@ -71,6 +125,13 @@ public class IdentityProviderServiceImpl implements IdentityProviderService {
         return identityProviderRepository.findAll(pageable);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<IdentityProvider> findAllAfter(Long id, int size) {
+        log.debug("Request to get IdentityProviders after id {}", id);
+        return identityProviderRepository.findAllByIdGreaterThanOrderByIdAsc(id, PageRequest.of(0, size));
+    }
+
     @Override
     @Transactional(readOnly = true)
     public Optional<IdentityProvider> findOne(Long id) {
@@ -83,6 +144,8 @@ public class IdentityProviderServiceImpl implements IdentityProviderService {
         log.debug("Request to delete IdentityProvider : {}", id);
         identityProviderRepository.deleteById(id);
         identityProviderSearchRepository.deleteById(id);
+        searchIndexRecorder.record(IdentityProvider.class, id);
+        credentialResolutionIndex.rebuildAfterCommit();
     }
 
     @Override
@@ -91,4 +154,11 @@ public class IdentityProviderServiceImpl implements IdentityProviderService {
         log.debug("Request to search for a page of IdentityProviders for query {}", query);
         return identityProviderSearchRepository.search(query, pageable);
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public SearchAfterPage<IdentityProvider> search(String query, Sort sort, List<Object> searchAfter, int size) {
+        log.debug("Request to search for IdentityProviders for query {} after {}", query, searchAfter);
+        return identityProviderSearchRepository.search(query, sort, searchAfter, size);
+    }
 }
@@ -3,14 +3,23 @@ package com.claudiu.macovei.service.impl;
 import static org.elasticsearch.index.query.QueryBuilders.*;
 
 import com.claudiu.macovei.domain.ServiceProvider;
+import com.claudiu.macovei.repository.CredentialRepository;
 import com.claudiu.macovei.repository.ServiceProviderRepository;
+import com.claudiu.macovei.repository.search.SearchAfterPage;
 import com.claudiu.macovei.repository.search.ServiceProviderSearchRepository;
+import com.claudiu.macovei.service.CredentialResolutionIndex;
+import com.claudiu.macovei.service.RevisionAllocator;
+import com.claudiu.macovei.service.SearchIndexRecorder;
 import com.claudiu.macovei.service.ServiceProviderService;
+import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -27,19 +36,45 @@ public class ServiceProviderServiceImpl implements ServiceProviderService {
 
     private final ServiceProviderSearchRepository serviceProviderSearchRepository;
 
+    private final CredentialRepository credentialRepository;
+
+    private final RevisionAllocator revisionAllocator;
+
+    private final SearchIndexRecorder searchIndexRecorder;
+
+    private final CredentialResolutionIndex credentialResolutionIndex;
+
     public ServiceProviderServiceImpl(
         ServiceProviderRepository serviceProviderRepository,
-        ServiceProviderSearchRepository serviceProviderSearchRepository
+        ServiceProviderSearchRepository serviceProviderSearchRepository,
+        CredentialRepository credentialRepository,
+        RevisionAllocator revisionAllocator,
+        SearchIndexRecorder searchIndexRecorder,
+        CredentialResolutionIndex credentialResolutionIndex
     ) {
         this.serviceProviderRepository = serviceProviderRepository;
         this.serviceProviderSearchRepository = serviceProviderSearchRepository;
+        this.credentialRepository = credentialRepository;
+        this.revisionAllocator = revisionAllocator;
+        this.searchIndexRecorder = searchIndexRecorder;
+        this.credentialResolutionIndex = credentialResolutionIndex;
     }
 
     @Override
     public ServiceProvider save(ServiceProvider serviceProvider) {
         log.debug("Request to save ServiceProvider : {}", serviceProvider);
+        // persisting the entity gives it its id, so whether it is updated is known beforehand
+        boolean updated = serviceProvider.getId() != null;
+        // the credentials are resolved by service provider name, so only a rename invalidates them; the stored entity
+        // is read from the second-level cache, and is the one merged below
+        if (updated && !Objects.equals(findName(serviceProvider.getId()), serviceProvider.getName())) {
+            credentialResolutionIndex.rebuildAfterCommit();
+        }
         ServiceProvider result = serviceProviderRepository.save(serviceProvider);
+        // the saved entity, which is the managed one, is given the revision
+        assignRevisions(result, updated);
         serviceProviderSearchRepository.save(result);
+        searchIndexRecorder.record(ServiceProvider.class, result.getId());
         return result;
     }
 
@@ -51,19 +86,38 @@ public class ServiceProviderServiceImpl implements ServiceProviderService {
             .findById(serviceProvider.getId())
             .map(existingServiceProvider -> {
                 if (serviceProvider.getName() != null) {
+                    if (!serviceProvider.getName().equals(existingServiceProvider.getName())) {
+                        credentialResolutionIndex.rebuildAfterCommit();
+                    }
                     existingServiceProvider.setName(serviceProvider.getName());
                 }
+                assignRevisions(existingServiceProvider, true);
 
                 return existingServiceProvider;
             })
             .map(serviceProviderRepository::save)
             .map(savedServiceProvider -> {
                 serviceProviderSearchRepository.save(savedServiceProvider);
+                searchIndexRecorder.record(ServiceProvider.class, savedServiceProvider.getId());
 
                 return savedServiceProvider;
             });
     }
 
+    private String findName(Long id) {
+        return serviceProviderRepository.findById(id).map(ServiceProvider::getName).orElse(null);
+    }
+
+    /**
+     * Give a new revision to a service provider and, when it is updated, to its credentials, which embed its name.
+     */
+    private void assignRevisions(ServiceProvider serviceProvider, boolean updated) {
+        revisionAllocator.assign(serviceProvider);
+        if (updated) {
+            credentialRepository.findAllByServiceProviderId(serviceProvider.getId()).forEach(revisionAllocator::assign);
+        }
+    }
+
     @Override
     @Transactional(readOnly = true)
     public Page<ServiceProvider> findAll(Pageable pageable) {
@@ -71,6 +125,13 @@ public class ServiceProviderServiceImpl implements ServiceProviderService {
         return serviceProviderRepository.findAll(pageable);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<ServiceProvider> findAllAfter(Long id, int size) {
+        log.debug("Request to get ServiceProviders after id {}", id);
+        return serviceProviderRepository.findAllByIdGreaterThanOrderByIdAsc(id, PageRequest.of(0, size));
+    }
+
     @Override
     @Transactional(readOnly = true)
     public Optional<ServiceProvider> findOne(Long id) {
@@ -83,6 +144,8 @@ public class ServiceProviderServiceImpl implements ServiceProviderService {
         log.debug("Request to delete ServiceProvider : {}", id);
         serviceProviderRepository.deleteById(id);
         serviceProviderSearchRepository.deleteById(id);
+        searchIndexRecorder.record(ServiceProvider.class, id);
+        credentialResolutionIndex.rebuildAfterCommit();
     }
 
     @Override
@@ -91,4 +154,11 @@ public class ServiceProviderServiceImpl implements ServiceProviderService {
         log.debug("Request to search for a page of ServiceProviders for query {}", query);
         return serviceProviderSearchRepository.search(query, pageable);
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public SearchAfterPage<ServiceProvider> search(String query, Sort sort, List<Object> searchAfter, int size) {
+        log.debug("Request to search for ServiceProviders for query {} after {}", query, searchAfter);
+        return serviceProviderSearchRepository.search(query, sort, searchAfter, size);
+    }
 }
@@ -1,10 +1,19 @@
 package com.claudiu.macovei.web.filter;
 
 import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
@@ -19,24 +28,51 @@ import org.springframework.security.oauth2.client.web.OAuth2AuthorizedClientRepo
 import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
 import org.springframework.security.web.DefaultRedirectStrategy;
 import org.springframework.security.web.RedirectStrategy;
-import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 /**
  * Refresh oauth2 tokens.
+ * <p>
+ * The access token is only refreshed when it expires within the clock skew: other requests only read the authorized
+ * client from the session. Parallel requests of the same session share a single refresh, and requests for static
+ * assets are not filtered at all.
  */
-@Component
 public class OAuth2RefreshTokensWebFilter extends OncePerRequestFilter {
 
+    private static final List<String> STATIC_ASSETS = List.of(
+        "/app/**",
+        "/content/**",
+        "/i18n/**",
+        "/swagger-ui/**",
+        "/*.js",
+        "/*.css",
+        "/*.map",
+        "/*.ico",
+        "/*.png",
+        "/*.svg",
+        "/*.woff2",
+        "/*.webapp",
+        "/*.txt"
+    );
+
     private final OAuth2AuthorizedClientManager clientManager;
     private final OAuth2AuthorizedClientRepository authorizedClientRepository;
     private final OAuth2AuthorizationRequestResolver authorizationRequestResolver;
     private final RedirectStrategy authorizationRedirectStrategy = new DefaultRedirectStrategy();
+    private final PathMatcher pathMatcher = new AntPathMatcher();
+    private final Map<String, CompletableFuture<OAuth2AuthorizedClient>> inFlightRefreshes = new ConcurrentHashMap<>();
+    private final Duration clockSkew;
+    private final Duration awaitTimeout;
+    private Clock clock = Clock.systemUTC();
 
     public OAuth2RefreshTokensWebFilter(
         OAuth2AuthorizedClientManager clientManager,
         OAuth2AuthorizedClientRepository authorizedClientRepository,
-        ClientRegistrationRepository clientRegistrationRepository
+        ClientRegistrationRepository clientRegistrationRepository,
+        Duration clockSkew,
+        Duration awaitTimeout
     ) {
         this.clientManager = clientManager;
         this.authorizedClientRepository = authorizedClientRepository;
@@ -45,16 +81,27 @@ public class OAuth2RefreshTokensWebFilter extends OncePerRequestFilter {
                 clientRegistrationRepository,
                 OAuth2AuthorizationRequestRedirectFilter.DEFAULT_AUTHORIZATION_REQUEST_BASE_URI
             );
+        this.clockSkew = clockSkew;
+        this.awaitTimeout = awaitTimeout;
+    }
+
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getServletPath();
+        return STATIC_ASSETS.stream().anyMatch(pattern -> pathMatcher.match(pattern, path));
     }
 
     @Override
     public void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
         throws IOException, ServletException {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if ((authentication instanceof OAuth2AuthenticationToken)) {
+        if ((authentication instanceof OAuth2AuthenticationToken) && !isFresh((OAuth2AuthenticationToken) authentication, request)) {
             try {
-                OAuth2AuthorizedClient authorizedClient = authorizedClient((OAuth2AuthenticationToken) authentication);
-                this.authorizedClientRepository.saveAuthorizedClient(authorizedClient, authentication, request, response);
+                refresh((OAuth2AuthenticationToken) authentication, request, response);
             } catch (Exception e) {
                 OAuth2AuthorizationRequest authorizationRequest = this.authorizationRequestResolver.resolve(request);
                 if (authorizationRequest != null) {
@@ -67,11 +114,63 @@ public class OAuth2RefreshTokensWebFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
-    private OAuth2AuthorizedClient authorizedClient(OAuth2AuthenticationToken oauth2Authentication) {
+    /**
+     * Whether the access token of the authorized client in the session is valid beyond the clock skew.
+     */
+    private boolean isFresh(OAuth2AuthenticationToken oauth2Authentication, HttpServletRequest request) {
+        OAuth2AuthorizedClient authorizedClient = authorizedClientRepository.loadAuthorizedClient(
+            oauth2Authentication.getAuthorizedClientRegistrationId(),
+            oauth2Authentication,
+            request
+        );
+        if (authorizedClient == null) {
+            return false;
+        }
+        Instant expiresAt = authorizedClient.getAccessToken().getExpiresAt();
+        return expiresAt == null || expiresAt.isAfter(clock.instant().plus(clockSkew));
+    }
+
+    /**
+     * Refresh the authorized client, or wait for the refresh already started by another request of the same session.
+     * The client manager saves the refreshed client in the session.
+     */
+    private void refresh(OAuth2AuthenticationToken oauth2Authentication, HttpServletRequest request, HttpServletResponse response)
+        throws Exception {
+        HttpSession session = request.getSession(false);
+        String key = session != null ? session.getId() : oauth2Authentication.getName();
+        CompletableFuture<OAuth2AuthorizedClient> refresh = new CompletableFuture<>();
+        CompletableFuture<OAuth2AuthorizedClient> inFlight = inFlightRefreshes.putIfAbsent(key, refresh);
+        if (inFlight != null) {
+            inFlight.get(awaitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            return;
+        }
+        try {
+            OAuth2AuthorizedClient authorizedClient = authorizedClient(oauth2Authentication, request, response);
+            if (authorizedClient == null) {
+                throw new IllegalStateException(
+                    "The client " + oauth2Authentication.getAuthorizedClientRegistrationId() + " is not authorized"
+                );
+            }
+            refresh.complete(authorizedClient);
+        } catch (RuntimeException e) {
+            refresh.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightRefreshes.remove(key, refresh);
+        }
+    }
+
+    private OAuth2AuthorizedClient authorizedClient(
+        OAuth2AuthenticationToken oauth2Authentication,
+        HttpServletRequest servletRequest,
+        HttpServletResponse servletResponse
+    ) {
         String clientRegistrationId = oauth2Authentication.getAuthorizedClientRegistrationId();
         OAuth2AuthorizeRequest request = OAuth2AuthorizeRequest
             .withClientRegistrationId(clientRegistrationId)
             .principal(oauth2Authentication)
+            .attribute(HttpServletRequest.class.getName(), servletRequest)
+            .attribute(HttpServletResponse.class.getName(), servletResponse)
             .build();
         if (clientManager == null) {
             throw new IllegalStateException(
@@ -3,24 +3,55 @@ package com.claudiu.macovei.web.rest;
 import static org.elasticsearch.index.query.QueryBuilders.*;
 
 import com.claudiu.macovei.domain.Credential;
-import com.claudiu.macovei.repository.CredentialRepository;
+import com.claudiu.macovei.repository.search.CredentialSearchCriteria;
+import com.claudiu.macovei.repository.search.CredentialSearchSummary;
+import com.claudiu.macovei.repository.search.SearchAfterPage;
+import com.claudiu.macovei.service.CredentialChangeFeed;
 import com.claudiu.macovei.service.CredentialService;
+import com.claudiu.macovei.service.dto.CredentialBulkResultDTO;
+import com.claudiu.macovei.service.dto.CredentialChangeDTO;
 import com.claudiu.macovei.web.rest.errors.BadRequestAlertException;
+import com.claudiu.macovei.web.rest.errors.ErrorConstants;
+import com.claudiu.macovei.web.rest.util.ETagUtil;
+import com.claudiu.macovei.web.rest.util.KeysetPaginationUtil;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
+import javax.persistence.EntityNotFoundException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.ConstraintViolationException;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import tech.jhipster.web.util.HeaderUtil;
 import tech.jhipster.web.util.PaginationUtil;
@@ -37,16 +68,28 @@ public class CredentialResource {
 
     private static final String ENTITY_NAME = "credential";
 
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
     @Value("${jhipster.clientApp.name}")
     private String applicationName;
 
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:25}")
+    private int bulkChunkSize;
+
     private final CredentialService credentialService;
 
-    private final CredentialRepository credentialRepository;
+    private final CredentialChangeFeed credentialChangeFeed;
+
+    private final ObjectMapper objectMapper;
 
-    public CredentialResource(CredentialService credentialService, CredentialRepository credentialRepository) {
+    public CredentialResource(
+        CredentialService credentialService,
+        CredentialChangeFeed credentialChangeFeed,
+        ObjectMapper objectMapper
+    ) {
         this.credentialService = credentialService;
-        this.credentialRepository = credentialRepository;
+        this.credentialChangeFeed = credentialChangeFeed;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -69,20 +112,147 @@ public class CredentialResource {
             .body(result);
     }
 
+    /**
+     * {@code POST  /credentials/_bulk} : Create or update credentials in bulk.
+     * <p>
+     * The request body is a JSON array which is read as a stream: items are saved in chunks of
+     * {@code hibernate.jdbc.batch_size} credentials, each chunk in its own transaction and with a single
+     * search index request. Items without an ID are created, the others are updated.
+     * <p>
+     * As the chunks before it are already committed, an item which isn't a valid credential doesn't fail the
+     * request: the items read before it are saved, it gets a {@code FAILED} result, and the items after it are
+     * not read, so they have no result. When a chunk can't be saved, its items are saved again one by one, so that
+     * only the items which can't be saved get a {@code FAILED} result, with the error key of the failure.
+     *
+     * @param request the HTTP request, whose body is the JSON array of credentials.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the result of each item read,
+     * or with status {@code 400 (Bad Request)} if the body is not a JSON array.
+     * @throws IOException if the request body can't be read.
+     */
+    @PostMapping(value = "/credentials/_bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<CredentialBulkResultDTO>> bulkSaveCredentials(HttpServletRequest request) throws IOException {
+        log.debug("REST request to save Credentials in bulk");
+        List<CredentialBulkResultDTO> results = new ArrayList<>();
+        try (JsonParser parser = objectMapper.getFactory().createParser(request.getInputStream())) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new BadRequestAlertException("A bulk request must be a JSON array", ENTITY_NAME, "bulknotarray");
+            }
+            List<Credential> chunk = new ArrayList<>(bulkChunkSize);
+            String invalidItem = null;
+            try {
+                JsonToken token;
+                while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+                    chunk.add(objectMapper.readValue(parser, Credential.class));
+                    if (chunk.size() >= bulkChunkSize) {
+                        results.addAll(saveChunk(chunk, results.size()));
+                        chunk.clear();
+                    }
+                }
+                if (token != JsonToken.END_ARRAY) {
+                    invalidItem = token == null ? "Unterminated array" : "Not a credential: " + token;
+                }
+            } catch (JsonProcessingException e) {
+                invalidItem = "Invalid credential: " + e.getOriginalMessage();
+            }
+            if (!chunk.isEmpty()) {
+                results.addAll(saveChunk(chunk, results.size()));
+            }
+            if (invalidItem != null) {
+                log.warn("Bulk save of Credentials stopped at item {}: {}", results.size(), invalidItem);
+                CredentialBulkResultDTO failed = CredentialBulkResultDTO.failed(null, invalidItem + ", the next items were not read");
+                failed.setIndex(results.size());
+                results.add(failed);
+            }
+        }
+        return ResponseEntity.ok().body(results);
+    }
+
+    private List<CredentialBulkResultDTO> saveChunk(List<Credential> chunk, int offset) {
+        List<Long> requestedIds = chunk.stream().map(Credential::getId).collect(Collectors.toList());
+        List<CredentialBulkResultDTO> chunkResults;
+        try {
+            chunkResults = credentialService.saveAll(chunk);
+        } catch (RuntimeException e) {
+            if (chunk.size() == 1) {
+                log.warn("Bulk save of Credential {} failed: {}", offset, e.getMessage());
+                chunkResults = List.of(CredentialBulkResultDTO.failed(requestedIds.get(0), bulkErrorKey(e)));
+            } else {
+                int last = offset + chunk.size() - 1;
+                log.warn("Bulk save of Credentials {} to {} failed, saving them one by one: {}", offset, last, e.getMessage());
+                chunkResults = new ArrayList<>(chunk.size());
+                for (int i = 0; i < chunk.size(); i++) {
+                    chunkResults.addAll(saveChunk(List.of(copyForRetry(chunk.get(i), requestedIds.get(i))), offset + i));
+                }
+            }
+        }
+        for (int i = 0; i < chunkResults.size(); i++) {
+            chunkResults.get(i).setIndex(offset + i);
+        }
+        return chunkResults;
+    }
+
+    /**
+     * Copy an item of a chunk which failed, as saving it may have given it an id or bound its collection to the
+     * session of the failed chunk.
+     */
+    private static Credential copyForRetry(Credential credential, Long requestedId) {
+        Credential copy = new Credential()
+            .id(requestedId)
+            .profile(credential.getProfile())
+            .enabled(credential.getEnabled())
+            .username(credential.getUsername())
+            .password(credential.getPassword())
+            .revision(credential.getRevision());
+        copy.setIdentityProvider(credential.getIdentityProvider());
+        copy.setServiceProviders(new HashSet<>(credential.getServiceProviders()));
+        return copy;
+    }
+
+    /**
+     * Get the error key of an item which couldn't be saved; the exception message isn't returned, as it may hold SQL.
+     */
+    private static String bulkErrorKey(RuntimeException e) {
+        if (e instanceof ConcurrencyFailureException) {
+            return ErrorConstants.ERR_CONCURRENCY_FAILURE;
+        }
+        if (ExceptionUtils.indexOfType(e, EntityNotFoundException.class) >= 0) {
+            return "error.relationshipnotfound";
+        }
+        if (
+            e instanceof DataIntegrityViolationException ||
+            ExceptionUtils.indexOfType(e, SQLIntegrityConstraintViolationException.class) >= 0
+        ) {
+            return ErrorConstants.ERR_DATA_INTEGRITY;
+        }
+        if (ExceptionUtils.indexOfType(e, ConstraintViolationException.class) >= 0) {
+            return ErrorConstants.ERR_VALIDATION;
+        }
+        return "error.http.500";
+    }
+
     /**
      * {@code PUT  /credentials/:id} : Updates an existing credential.
+     * <p>
+     * The credential is updated without being read first, with a conditional statement. When the request has an
+     * {@code If-Match} header, or else when the credential has a revision, the update fails if the credential was
+     * changed since that revision. The response holds the request, with the new revision and the relationships found
+     * by id.
      *
      * @param id the id of the credential to save.
      * @param credential the credential to update.
+     * @param requestHeaders the headers of the request, with the optional {@code If-Match} header.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated credential,
-     * or with status {@code 400 (Bad Request)} if the credential is not valid,
+     * or with status {@code 400 (Bad Request)} if the credential is not valid, is not found, or has a relationship
+     * which is not found,
+     * or with status {@code 409 (Conflict)} if the credential was changed since its revision,
      * or with status {@code 500 (Internal Server Error)} if the credential couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PutMapping("/credentials/{id}")
     public ResponseEntity<Credential> updateCredential(
         @PathVariable(value = "id", required = false) final Long id,
-        @RequestBody Credential credential
+        @RequestBody Credential credential,
+        @RequestHeader HttpHeaders requestHeaders
     ) throws URISyntaxException {
         log.debug("REST request to update Credential : {}, {}", id, credential);
         if (credential.getId() == null) {
@@ -91,33 +261,39 @@ public class CredentialResource {
         if (!Objects.equals(id, credential.getId())) {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
+        applyIfMatch(credential, requestHeaders);
 
-        if (!credentialRepository.existsById(id)) {
+        Optional<Credential> result;
+        try {
+            result = credentialService.update(credential);
+        } catch (EntityNotFoundException e) {
+            throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "relationshipnotfound");
+        }
+        if (result.isEmpty()) {
             throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
         }
-
-        Credential result = credentialService.save(credential);
-        return ResponseEntity
-            .ok()
-            .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, credential.getId().toString()))
-            .body(result);
+        return ResponseEntity.ok().headers(updateHeaders(result)).body(result.get());
     }
 
     /**
      * {@code PATCH  /credentials/:id} : Partial updates given fields of an existing credential, field will ignore if it is null
+     * <p>
+     * The credential is updated with a conditional statement, like {@link #updateCredential}, then read.
      *
      * @param id the id of the credential to save.
      * @param credential the credential to update.
+     * @param requestHeaders the headers of the request, with the optional {@code If-Match} header.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated credential,
-     * or with status {@code 400 (Bad Request)} if the credential is not valid,
-     * or with status {@code 404 (Not Found)} if the credential is not found,
+     * or with status {@code 400 (Bad Request)} if the credential is not valid or is not found,
+     * or with status {@code 409 (Conflict)} if the credential was changed since its revision,
      * or with status {@code 500 (Internal Server Error)} if the credential couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PatchMapping(value = "/credentials/{id}", consumes = { "application/json", "application/merge-patch+json" })
     public ResponseEntity<Credential> partialUpdateCredential(
         @PathVariable(value = "id", required = false) final Long id,
-        @RequestBody Credential credential
+        @RequestBody Credential credential,
+        @RequestHeader HttpHeaders requestHeaders
     ) throws URISyntaxException {
         log.debug("REST request to partial update Credential partially : {}, {}", id, credential);
         if (credential.getId() == null) {
@@ -126,31 +302,70 @@ public class CredentialResource {
         if (!Objects.equals(id, credential.getId())) {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
+        applyIfMatch(credential, requestHeaders);
 
-        if (!credentialRepository.existsById(id)) {
+        Optional<Credential> result = credentialService.partialUpdate(credential);
+        if (result.isEmpty()) {
             throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
         }
+        return ResponseEntity.ok().headers(updateHeaders(result)).body(result.get());
+    }
 
-        Optional<Credential> result = credentialService.partialUpdate(credential);
+    private static void applyIfMatch(Credential credential, HttpHeaders requestHeaders) {
+        Long revision = ETagUtil.parseIfMatchRevision(requestHeaders, ENTITY_NAME);
+        if (revision != null) {
+            credential.setRevision(revision);
+        }
+    }
 
-        return ResponseUtil.wrapOrNotFound(
-            result,
-            HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, credential.getId().toString())
-        );
+    private HttpHeaders updateHeaders(Optional<Credential> result) {
+        HttpHeaders headers = new HttpHeaders();
+        result.ifPresent(updated -> {
+            headers.addAll(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, updated.getId().toString()));
+            if (updated.getRevision() != null) {
+                headers.setETag(ETagUtil.fromRevision(updated.getRevision()));
+            }
+        });
+        return headers;
     }
 
     /**
      * {@code GET  /credentials} : get all the credentials.
+     * <p>
+     * When the {@code after} cursor is given, a keyset page of {@code size} credentials is returned in id order,
+     * without counting the credentials; the cursor of the next page is in the {@code X-Next-Cursor} header.
+     * <p>
+     * The ETag of a page hashes the ids and revisions of its credentials: when it matches {@code If-None-Match},
+     * {@code 304 (Not Modified)} is returned without serializing the credentials.
      *
      * @param pageable the pagination information.
      * @param eagerload flag to eager load entities from relationships (This is applicable for many-to-many).
+     * @param after the keyset pagination cursor; empty to get the first keyset page.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of credentials in body.
      */
     @GetMapping("/credentials")
     public ResponseEntity<List<Credential>> getAllCredentials(
         @org.springdoc.api.annotations.ParameterObject Pageable pageable,
-        @RequestParam(required = false, defaultValue = "false") boolean eagerload
+        @RequestParam(required = false, defaultValue = "false") boolean eagerload,
+        @RequestParam(required = false) String after
     ) {
+        if (after != null) {
+            log.debug("REST request to get a keyset page of Credentials after {}", after);
+            long afterId = KeysetPaginationUtil.decodeCursor(after, ENTITY_NAME);
+            List<Credential> credentials = eagerload
+                ? credentialService.findAllWithEagerRelationshipsAfter(afterId, pageable.getPageSize())
+                : credentialService.findAllAfter(afterId, pageable.getPageSize());
+            HttpHeaders headers = KeysetPaginationUtil.generateKeysetHttpHeaders(
+                ServletUriComponentsBuilder.fromCurrentRequest(),
+                credentials,
+                pageable.getPageSize(),
+                Credential::getId
+            );
+            headers.addAll(
+                ETagUtil.generateETagHttpHeaders(ETagUtil.fromRevisions(credentials, Credential::getId, Credential::getRevision))
+            );
+            return ResponseEntity.ok().headers(headers).body(credentials);
+        }
         log.debug("REST request to get a page of Credentials");
         Page<Credential> page;
         if (eagerload) {
@@ -159,20 +374,175 @@ public class CredentialResource {
             page = credentialService.findAll(pageable);
         }
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
+        headers.addAll(ETagUtil.generateETagHttpHeaders(ETagUtil.fromRevisions(page, Credential::getId, Credential::getRevision)));
         return ResponseEntity.ok().headers(headers).body(page.getContent());
     }
 
+    /**
+     * {@code GET  /credentials?sinceRevision=N} : get the changes of the credentials after a revision.
+     * <p>
+     * Credentials changed after the revision are returned as {@code UPDATED} changes, with their eagerly loaded
+     * relationships, and deleted credentials as {@code DELETED} changes, in revision order. A client polls with the
+     * revision of the last change it saw, which is also in the {@code X-Next-Revision} header when the page is full.
+     *
+     * @param sinceRevision the revision after which the changes are returned; {@code 0} for all the credentials.
+     * @param pageable the pagination information; only the page size is used.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of changes in body.
+     */
+    @GetMapping(value = "/credentials", params = "sinceRevision")
+    public ResponseEntity<List<CredentialChangeDTO>> getCredentialChanges(
+        @RequestParam long sinceRevision,
+        @org.springdoc.api.annotations.ParameterObject Pageable pageable
+    ) {
+        log.debug("REST request to get the Credential changes since revision {}", sinceRevision);
+        List<CredentialChangeDTO> changes = credentialService.findAllChangedAfter(sinceRevision, pageable.getPageSize());
+        HttpHeaders headers = KeysetPaginationUtil.generateRevisionHttpHeaders(
+            ServletUriComponentsBuilder.fromCurrentRequest(),
+            changes,
+            pageable.getPageSize(),
+            CredentialChangeDTO::getRevision
+        );
+        return ResponseEntity.ok().headers(headers).body(changes);
+    }
+
+    /**
+     * {@code GET  /credentials/_export} : export all the credentials as newline-delimited JSON.
+     * <p>
+     * Credentials are streamed from a database cursor and flushed to the client batch by batch,
+     * so memory usage doesn't depend on the number of credentials.
+     *
+     * @param response the HTTP response the credentials are written to, one JSON document per line.
+     * @throws IOException if the response can't be written.
+     */
+    @GetMapping(value = "/credentials/_export", produces = APPLICATION_NDJSON_VALUE)
+    public void exportCredentials(HttpServletResponse response) throws IOException {
+        log.debug("REST request to export all Credentials");
+        response.setContentType(APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.setRootValueSeparator(null);
+            credentialService.exportAll(batch -> {
+                try {
+                    for (Credential credential : batch) {
+                        writer.writeValue(generator, credential);
+                        generator.writeRaw('\n');
+                    }
+                    generator.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    /**
+     * {@code GET  /credentials/_watch} : stream the changes of the credentials as server-sent events.
+     * <p>
+     * Each committed create, update or delete is sent as a {@code created}, {@code updated} or {@code deleted} event,
+     * whose id is the revision of the credential row, or of its tombstone: the same revisions as the ETags and as
+     * {@code GET /credentials?sinceRevision=N}. Events hold the id of the credential but not its state, which the
+     * client reads with {@code GET /credentials/:id}, or with {@code sinceRevision}. A client reconnecting with the
+     * {@code Last-Event-ID} header, or the {@code since} parameter, gets the changes made after that revision first;
+     * when they are no longer held, a {@code reset} event tells it to read the changes it missed with
+     * {@code sinceRevision}, and the stream goes on from the revision of that event.
+     *
+     * @param lastEventId the revision of the last event received before reconnecting.
+     * @param since the revision after which changes are sent, when there is no {@code Last-Event-ID}.
+     * @return the stream of changes, closed after {@code application.credential-feed.watch-timeout-ms}.
+     */
+    @GetMapping(value = "/credentials/_watch", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter watchCredentials(
+        @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+        @RequestParam(required = false) Long since
+    ) {
+        log.debug("REST request to watch Credentials after {}", lastEventId != null ? lastEventId : since);
+        Long afterRevision = since;
+        if (lastEventId != null && !lastEventId.isBlank()) {
+            try {
+                afterRevision = Long.valueOf(lastEventId.trim());
+            } catch (NumberFormatException e) {
+                throw new BadRequestAlertException("Invalid Last-Event-ID", ENTITY_NAME, "eventidinvalid");
+            }
+        }
+        SseEmitter emitter = new SseEmitter(credentialChangeFeed.getWatchTimeoutMs());
+        CredentialChangeFeed.Subscription subscription = credentialChangeFeed.subscribe(
+            afterRevision,
+            new CredentialChangeFeed.Subscriber() {
+                @Override
+                public void onChanges(List<CredentialChangeDTO> changes) {
+                    for (CredentialChangeDTO change : changes) {
+                        send(
+                            emitter,
+                            SseEmitter
+                                .event()
+                                .id(String.valueOf(change.getRevision()))
+                                .name(change.getType().name().toLowerCase(Locale.ROOT))
+                                .data(change, MediaType.APPLICATION_JSON)
+                        );
+                    }
+                }
+
+                @Override
+                public void onReset(long revision) {
+                    send(emitter, SseEmitter.event().id(String.valueOf(revision)).name("reset").data(revision));
+                }
+            }
+        );
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(e -> subscription.cancel());
+        return emitter;
+    }
+
+    private static void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * {@code GET  /credentials/resolve?serviceProvider=:serviceProvider&profile=:profile} : get the enabled credentials
+     * of a service provider for a profile.
+     * <p>
+     * The credentials are read from an in-memory index, which is updated once the writes commit.
+     *
+     * @param serviceProvider the name of the service provider.
+     * @param profile the profile of the credentials.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of credentials in body, in id order.
+     */
+    @GetMapping("/credentials/resolve")
+    public ResponseEntity<List<Credential>> resolveCredentials(@RequestParam String serviceProvider, @RequestParam String profile) {
+        log.debug("REST request to resolve Credentials for service provider {} and profile {}", serviceProvider, profile);
+        return ResponseEntity.ok().body(credentialService.resolve(serviceProvider, profile));
+    }
+
     /**
      * {@code GET  /credentials/:id} : get the "id" credential.
+     * <p>
+     * The ETag of the credential is its revision. When {@code If-None-Match} is sent, the committed revision is read
+     * first, alone, and {@code 304 (Not Modified)} is returned without loading the credential if it matches.
      *
      * @param id the id of the credential to retrieve.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the credential, or with status {@code 404 (Not Found)}.
+     * @param requestHeaders the headers of the request, with the optional {@code If-None-Match} header.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the credential, or with status
+     * {@code 304 (Not Modified)} if the client holds the current revision, or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/credentials/{id}")
-    public ResponseEntity<Credential> getCredential(@PathVariable Long id) {
+    public ResponseEntity<Credential> getCredential(@PathVariable Long id, @RequestHeader HttpHeaders requestHeaders) {
         log.debug("REST request to get Credential : {}", id);
+        if (!requestHeaders.getIfNoneMatch().isEmpty()) {
+            Optional<String> currentETag = credentialService.findRevision(id).map(ETagUtil::fromRevision);
+            if (currentETag.isPresent() && ETagUtil.matches(requestHeaders, currentETag.get())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(ETagUtil.generateETagHttpHeaders(currentETag.get())).build();
+            }
+        }
         Optional<Credential> credential = credentialService.findOne(id);
-        return ResponseUtil.wrapOrNotFound(credential);
+        String eTag = credential.map(Credential::getRevision).map(ETagUtil::fromRevision).orElse(null);
+        return ResponseUtil.wrapOrNotFound(credential, ETagUtil.generateETagHttpHeaders(eTag));
     }
 
     /**
@@ -193,19 +563,80 @@ public class CredentialResource {
 
     /**
      * {@code SEARCH  /_search/credentials?query=:query} : search for the credential corresponding
-     * to the query.
+     * to the query, or to the structured criteria.
+     * <p>
+     * When any of {@code profile}, {@code enabled}, {@code identityProviderId}, {@code serviceProviderId},
+     * {@code username} or {@code usernamePrefix} is given, they are compiled to cacheable filters, and the optional
+     * {@code query} is only used for the scoring.
      *
-     * @param query the query of the credential search.
+     * @param criteria the free-text query and the structured criteria of the credential search.
+     * @param after the cursor of the page, to read hits with {@code search_after} instead of {@code from/size}.
      * @param pageable the pagination information.
      * @return the result of the search.
      */
     @GetMapping("/_search/credentials")
     public ResponseEntity<List<Credential>> searchCredentials(
+        @org.springdoc.api.annotations.ParameterObject CredentialSearchCriteria criteria,
+        @RequestParam(required = false) String after,
+        @org.springdoc.api.annotations.ParameterObject Pageable pageable
+    ) {
+        boolean structured = criteria.hasStructuredCriteria();
+        if (!structured && (criteria.getQuery() == null || criteria.getQuery().isBlank())) {
+            throw new BadRequestAlertException("A query or a search criterion is required", ENTITY_NAME, "searchempty");
+        }
+        if (after != null) {
+            log.debug("REST request to search for Credentials for {} after {}", criteria, after);
+            List<Object> searchAfter = KeysetPaginationUtil.decodeSearchAfter(after, ENTITY_NAME);
+            SearchAfterPage<Credential> page = structured
+                ? credentialService.search(criteria, pageable.getSort(), searchAfter, pageable.getPageSize())
+                : credentialService.search(criteria.getQuery(), pageable.getSort(), searchAfter, pageable.getPageSize());
+            HttpHeaders headers = KeysetPaginationUtil.generateSearchAfterHttpHeaders(
+                ServletUriComponentsBuilder.fromCurrentRequest(),
+                page,
+                pageable.getPageSize()
+            );
+            return ResponseEntity.ok().headers(headers).body(page.getContent());
+        }
+        log.debug("REST request to search for a page of Credentials for {}", criteria);
+        Page<Credential> page = structured
+            ? credentialService.search(criteria, pageable)
+            : credentialService.search(criteria.getQuery(), pageable);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
+        return ResponseEntity.ok().headers(headers).body(page.getContent());
+    }
+
+    /**
+     * {@code SEARCH  /_search/credentials/summary?query=:query} : search for the summaries of the credentials
+     * corresponding to the query, for list views and type-ahead. Only the summary fields are read from Elasticsearch.
+     *
+     * @param query the query of the credential search.
+     * @param after the cursor of the page, to read hits with {@code search_after} instead of {@code from/size}.
+     * @param pageable the pagination information.
+     * @return the result of the search.
+     */
+    @GetMapping("/_search/credentials/summary")
+    public ResponseEntity<List<CredentialSearchSummary>> searchCredentialSummaries(
         @RequestParam String query,
+        @RequestParam(required = false) String after,
         @org.springdoc.api.annotations.ParameterObject Pageable pageable
     ) {
-        log.debug("REST request to search for a page of Credentials for query {}", query);
-        Page<Credential> page = credentialService.search(query, pageable);
+        if (after != null) {
+            log.debug("REST request to search for Credential summaries for query {} after {}", query, after);
+            SearchAfterPage<CredentialSearchSummary> page = credentialService.searchSummaries(
+                query,
+                pageable.getSort(),
+                KeysetPaginationUtil.decodeSearchAfter(after, ENTITY_NAME),
+                pageable.getPageSize()
+            );
+            HttpHeaders headers = KeysetPaginationUtil.generateSearchAfterHttpHeaders(
+                ServletUriComponentsBuilder.fromCurrentRequest(),
+                page,
+                pageable.getPageSize()
+            );
+            return ResponseEntity.ok().headers(headers).body(page.getContent());
+        }
+        log.debug("REST request to search for a page of Credential summaries for query {}", query);
+        Page<CredentialSearchSummary> page = credentialService.searchSummaries(query, pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
         return ResponseEntity.ok().headers(headers).body(page.getContent());
     }
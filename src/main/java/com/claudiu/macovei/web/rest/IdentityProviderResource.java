@@ -4,8 +4,10 @@ import static org.elasticsearch.index.query.QueryBuilders.*;
 
 import com.claudiu.macovei.domain.IdentityProvider;
 import com.claudiu.macovei.repository.IdentityProviderRepository;
+import com.claudiu.macovei.repository.search.SearchAfterPage;
 import com.claudiu.macovei.service.IdentityProviderService;
 import com.claudiu.macovei.web.rest.errors.BadRequestAlertException;
+import com.claudiu.macovei.web.rest.util.KeysetPaginationUtil;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
@@ -145,14 +147,33 @@ public class IdentityProviderResource {
 
     /**
      * {@code GET  /identity-providers} : get all the identityProviders.
+     * <p>
+     * When the {@code after} cursor is given, a keyset page of {@code size} identityProviders is returned in id order,
+     * without counting the identityProviders; the cursor of the next page is in the {@code X-Next-Cursor} header.
      *
      * @param pageable the pagination information.
+     * @param after the keyset pagination cursor; empty to get the first keyset page.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of identityProviders in body.
      */
     @GetMapping("/identity-providers")
     public ResponseEntity<List<IdentityProvider>> getAllIdentityProviders(
-        @org.springdoc.api.annotations.ParameterObject Pageable pageable
+        @org.springdoc.api.annotations.ParameterObject Pageable pageable,
+        @RequestParam(required = false) String after
     ) {
+        if (after != null) {
+            log.debug("REST request to get a keyset page of IdentityProviders after {}", after);
+            List<IdentityProvider> identityProviders = identityProviderService.findAllAfter(
+                KeysetPaginationUtil.decodeCursor(after, ENTITY_NAME),
+                pageable.getPageSize()
+            );
+            HttpHeaders headers = KeysetPaginationUtil.generateKeysetHttpHeaders(
+                ServletUriComponentsBuilder.fromCurrentRequest(),
+                identityProviders,
+                pageable.getPageSize(),
+                IdentityProvider::getId
+            );
+            return ResponseEntity.ok().headers(headers).body(identityProviders);
+        }
         log.debug("REST request to get a page of IdentityProviders");
         Page<IdentityProvider> page = identityProviderService.findAll(pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
@@ -193,14 +214,31 @@ public class IdentityProviderResource {
      * to the query.
      *
      * @param query the query of the identityProvider search.
+     * @param after the cursor of the page, to read hits with {@code search_after} instead of {@code from/size}.
      * @param pageable the pagination information.
      * @return the result of the search.
      */
     @GetMapping("/_search/identity-providers")
     public ResponseEntity<List<IdentityProvider>> searchIdentityProviders(
         @RequestParam String query,
+        @RequestParam(required = false) String after,
         @org.springdoc.api.annotations.ParameterObject Pageable pageable
     ) {
+        if (after != null) {
+            log.debug("REST request to search for IdentityProviders for query {} after {}", query, after);
+            SearchAfterPage<IdentityProvider> page = identityProviderService.search(
+                query,
+                pageable.getSort(),
+                KeysetPaginationUtil.decodeSearchAfter(after, ENTITY_NAME),
+                pageable.getPageSize()
+            );
+            HttpHeaders headers = KeysetPaginationUtil.generateSearchAfterHttpHeaders(
+                ServletUriComponentsBuilder.fromCurrentRequest(),
+                page,
+                pageable.getPageSize()
+            );
+            return ResponseEntity.ok().headers(headers).body(page.getContent());
+        }
         log.debug("REST request to search for a page of IdentityProviders for query {}", query);
         Page<IdentityProvider> page = identityProviderService.search(query, pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
@@ -2,12 +2,14 @@ package com.claudiu.macovei.web.rest;
 
 import static org.elasticsearch.index.query.QueryBuilders.*;
 
+import com.claudiu.macovei.domain.User;
+import com.claudiu.macovei.repository.search.SearchAfterPage;
 import com.claudiu.macovei.repository.search.UserSearchRepository;
 import com.claudiu.macovei.service.UserService;
 import com.claudiu.macovei.service.dto.UserDTO;
+import com.claudiu.macovei.web.rest.util.KeysetPaginationUtil;
 import java.util.*;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
@@ -61,10 +63,32 @@ public class PublicUserResource {
      * {@code SEARCH /_search/users/:query} : search for the User corresponding to the query.
      *
      * @param query the query to search.
+     * @param after the cursor of the page, to read hits with {@code search_after} instead of {@code from/size}.
+     * @param pageable the pagination information.
      * @return the result of the search.
      */
     @GetMapping("/_search/users/{query}")
-    public List<UserDTO> search(@PathVariable String query) {
-        return StreamSupport.stream(userSearchRepository.search(query).spliterator(), false).map(UserDTO::new).collect(Collectors.toList());
+    public ResponseEntity<List<UserDTO>> search(
+        @PathVariable String query,
+        @RequestParam(required = false) String after,
+        @org.springdoc.api.annotations.ParameterObject Pageable pageable
+    ) {
+        if (after != null) {
+            SearchAfterPage<User> page = userSearchRepository.search(
+                query,
+                pageable.getSort(),
+                KeysetPaginationUtil.decodeSearchAfter(after, "user"),
+                pageable.getPageSize()
+            );
+            HttpHeaders headers = KeysetPaginationUtil.generateSearchAfterHttpHeaders(
+                ServletUriComponentsBuilder.fromCurrentRequest(),
+                page,
+                pageable.getPageSize()
+            );
+            return new ResponseEntity<>(page.getContent().stream().map(UserDTO::new).collect(Collectors.toList()), headers, HttpStatus.OK);
+        }
+        Page<UserDTO> page = userSearchRepository.search(query, pageable).map(UserDTO::new);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 }
@@ -0,0 +1,58 @@
+package com.claudiu.macovei.web.rest;
+
+import com.claudiu.macovei.security.AuthoritiesConstants;
+import com.claudiu.macovei.service.SearchReindexService;
+import com.claudiu.macovei.service.dto.SearchReindexStatusDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST controller to rebuild the Elasticsearch indices from the database.
+ */
+@RestController
+@RequestMapping("/api/admin")
+public class SearchReindexResource {
+
+    private final Logger log = LoggerFactory.getLogger(SearchReindexResource.class);
+
+    private final SearchReindexService searchReindexService;
+
+    public SearchReindexResource(SearchReindexService searchReindexService) {
+        this.searchReindexService = searchReindexService;
+    }
+
+    /**
+     * {@code POST  /admin/search/reindex} : start a full reindex of all the search indices.
+     *
+     * @return the {@link ResponseEntity} with status {@code 202 (Accepted)} and with body the reindex status,
+     * or with status {@code 409 (Conflict)} if a reindex is already running.
+     */
+    @PostMapping("/search/reindex")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<SearchReindexStatusDTO> startReindex() {
+        log.debug("REST request to reindex all search indices");
+        if (!searchReindexService.start()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(searchReindexService.getStatus());
+        }
+        return ResponseEntity.accepted().body(searchReindexService.getStatus());
+    }
+
+    /**
+     * {@code GET  /admin/search/reindex} : get the progress of the current, or last, reindex.
+     *
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the reindex status.
+     */
+    @GetMapping("/search/reindex")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<SearchReindexStatusDTO> getReindexStatus() {
+        log.debug("REST request to get the search reindex status");
+        return ResponseEntity.ok(searchReindexService.getStatus());
+    }
+}
@@ -4,8 +4,10 @@ import static org.elasticsearch.index.query.QueryBuilders.*;
 
 import com.claudiu.macovei.domain.ServiceProvider;
 import com.claudiu.macovei.repository.ServiceProviderRepository;
+import com.claudiu.macovei.repository.search.SearchAfterPage;
 import com.claudiu.macovei.service.ServiceProviderService;
 import com.claudiu.macovei.web.rest.errors.BadRequestAlertException;
+import com.claudiu.macovei.web.rest.util.KeysetPaginationUtil;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
@@ -141,12 +143,33 @@ public class ServiceProviderResource {
 
     /**
      * {@code GET  /service-providers} : get all the serviceProviders.
+     * <p>
+     * When the {@code after} cursor is given, a keyset page of {@code size} serviceProviders is returned in id order,
+     * without counting the serviceProviders; the cursor of the next page is in the {@code X-Next-Cursor} header.
      *
      * @param pageable the pagination information.
+     * @param after the keyset pagination cursor; empty to get the first keyset page.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of serviceProviders in body.
      */
     @GetMapping("/service-providers")
-    public ResponseEntity<List<ServiceProvider>> getAllServiceProviders(@org.springdoc.api.annotations.ParameterObject Pageable pageable) {
+    public ResponseEntity<List<ServiceProvider>> getAllServiceProviders(
+        @org.springdoc.api.annotations.ParameterObject Pageable pageable,
+        @RequestParam(required = false) String after
+    ) {
+        if (after != null) {
+            log.debug("REST request to get a keyset page of ServiceProviders after {}", after);
+            List<ServiceProvider> serviceProviders = serviceProviderService.findAllAfter(
+                KeysetPaginationUtil.decodeCursor(after, ENTITY_NAME),
+                pageable.getPageSize()
+            );
+            HttpHeaders headers = KeysetPaginationUtil.generateKeysetHttpHeaders(
+                ServletUriComponentsBuilder.fromCurrentRequest(),
+                serviceProviders,
+                pageable.getPageSize(),
+                ServiceProvider::getId
+            );
+            return ResponseEntity.ok().headers(headers).body(serviceProviders);
+        }
         log.debug("REST request to get a page of ServiceProviders");
         Page<ServiceProvider> page = serviceProviderService.findAll(pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
@@ -187,14 +210,31 @@ public class ServiceProviderResource {
      * to the query.
      *
      * @param query the query of the serviceProvider search.
+     * @param after the cursor of the page, to read hits with {@code search_after} instead of {@code from/size}.
      * @param pageable the pagination information.
      * @return the result of the search.
      */
     @GetMapping("/_search/service-providers")
     public ResponseEntity<List<ServiceProvider>> searchServiceProviders(
         @RequestParam String query,
+        @RequestParam(required = false) String after,
         @org.springdoc.api.annotations.ParameterObject Pageable pageable
     ) {
+        if (after != null) {
+            log.debug("REST request to search for ServiceProviders for query {} after {}", query, after);
+            SearchAfterPage<ServiceProvider> page = serviceProviderService.search(
+                query,
+                pageable.getSort(),
+                KeysetPaginationUtil.decodeSearchAfter(after, ENTITY_NAME),
+                pageable.getPageSize()
+            );
+            HttpHeaders headers = KeysetPaginationUtil.generateSearchAfterHttpHeaders(
+                ServletUriComponentsBuilder.fromCurrentRequest(),
+                page,
+                pageable.getPageSize()
+            );
+            return ResponseEntity.ok().headers(headers).body(page.getContent());
+        }
         log.debug("REST request to search for a page of ServiceProviders for query {}", query);
         Page<ServiceProvider> page = serviceProviderService.search(query, pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
@@ -0,0 +1,137 @@
+package com.claudiu.macovei.web.rest.util;
+
+import com.claudiu.macovei.web.rest.errors.BadRequestAlertException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Function;
+import org.springframework.data.domain.Page;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.DigestUtils;
+
+/**
+ * Utility class for the strong ETags of revisioned entities.
+ * <p>
+ * The ETag of an entity is its revision, which changes on every write of the entity or of the entities embedded in
+ * it. The ETag of a list is a hash of the ids and revisions of its elements, so it is computed without serializing
+ * them. Responses with an ETag may be stored by the client, which must revalidate them with {@code If-None-Match};
+ * Spring MVC answers {@code 304 (Not Modified)} without writing the body when the ETag of a {@code 200 (OK)}
+ * response matches.
+ * <p>
+ * Writes may send the ETag they are based on in {@code If-Match}, so that they fail if the entity changed since.
+ */
+public final class ETagUtil {
+
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    private ETagUtil() {}
+
+    /**
+     * Get the ETag of an entity revision.
+     *
+     * @param revision the revision of the entity.
+     * @return the ETag.
+     */
+    public static String fromRevision(long revision) {
+        return "\"" + revision + "\"";
+    }
+
+    /**
+     * Get the ETag of a list of entities.
+     *
+     * @param content the entities.
+     * @param idExtractor the function returning the id of an entity.
+     * @param revisionExtractor the function returning the revision of an entity.
+     * @param <T> the type of the entities.
+     * @return the ETag, or {@code null} if an entity has no revision.
+     */
+    public static <T> String fromRevisions(List<T> content, Function<T, Long> idExtractor, Function<T, Long> revisionExtractor) {
+        return fromRevisions(content, idExtractor, revisionExtractor, "");
+    }
+
+    /**
+     * Get the ETag of a page of entities, which also changes with the total number of entities.
+     *
+     * @param page the page of entities.
+     * @param idExtractor the function returning the id of an entity.
+     * @param revisionExtractor the function returning the revision of an entity.
+     * @param <T> the type of the entities.
+     * @return the ETag, or {@code null} if an entity has no revision.
+     */
+    public static <T> String fromRevisions(Page<T> page, Function<T, Long> idExtractor, Function<T, Long> revisionExtractor) {
+        return fromRevisions(page.getContent(), idExtractor, revisionExtractor, Long.toString(page.getTotalElements()));
+    }
+
+    /**
+     * Check whether an ETag matches the {@code If-None-Match} header of a request.
+     *
+     * @param requestHeaders the headers of the request.
+     * @param eTag the current ETag.
+     * @return {@code true} if the client holds the current representation.
+     */
+    public static boolean matches(HttpHeaders requestHeaders, String eTag) {
+        for (String candidate : requestHeaders.getIfNoneMatch()) {
+            // If-None-Match uses the weak comparison
+            if (candidate.equals("*") || candidate.equals(eTag) || candidate.equals("W/" + eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the revision a write is based on, from the {@code If-Match} header of a request.
+     *
+     * @param requestHeaders the headers of the request.
+     * @param entityName the name of the written entity, used in the error sent on an invalid header.
+     * @return the revision, or {@code null} if the header is absent or is {@code *}.
+     * @throws BadRequestAlertException if the header isn't a single strong ETag of a revision.
+     */
+    public static Long parseIfMatchRevision(HttpHeaders requestHeaders, String entityName) {
+        List<String> eTags = requestHeaders.getIfMatch();
+        if (eTags.isEmpty() || eTags.equals(List.of("*"))) {
+            return null;
+        }
+        String eTag = eTags.get(0);
+        if (eTags.size() > 1 || eTag.length() < 3 || !eTag.startsWith("\"") || !eTag.endsWith("\"")) {
+            throw new BadRequestAlertException("Invalid If-Match header", entityName, "ifmatchinvalid");
+        }
+        try {
+            return Long.parseLong(eTag.substring(1, eTag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new BadRequestAlertException("Invalid If-Match header", entityName, "ifmatchinvalid");
+        }
+    }
+
+    /**
+     * Generate the ETag headers of a response.
+     *
+     * @param eTag the ETag; {@code null} for none.
+     * @return the {@link HttpHeaders}.
+     */
+    public static HttpHeaders generateETagHttpHeaders(String eTag) {
+        HttpHeaders headers = new HttpHeaders();
+        if (eTag != null) {
+            headers.setETag(eTag);
+            headers.setCacheControl(REVALIDATE);
+        }
+        return headers;
+    }
+
+    private static <T> String fromRevisions(
+        List<T> content,
+        Function<T, Long> idExtractor,
+        Function<T, Long> revisionExtractor,
+        String prefix
+    ) {
+        StringBuilder key = new StringBuilder(prefix);
+        for (T element : content) {
+            Long revision = revisionExtractor.apply(element);
+            if (revision == null) {
+                return null;
+            }
+            key.append(';').append(idExtractor.apply(element)).append(':').append(revision);
+        }
+        return "\"" + DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+}
@@ -0,0 +1,194 @@
+package com.claudiu.macovei.web.rest.util;
+
+import com.claudiu.macovei.repository.search.SearchAfterPage;
+import com.claudiu.macovei.web.rest.errors.BadRequestAlertException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Utility class for keyset (seek) pagination.
+ * <p>
+ * Keyset pages are requested with {@code ?after=<cursor>&size=N}: they are read with an {@code id > ?} query
+ * and never run a count query. The cursor is opaque to clients; an empty cursor starts from the beginning.
+ * The cursor of the next page is returned in the {@link #NEXT_CURSOR_HEADER} header and in a {@code next} Link header.
+ * <p>
+ * Search results use the same headers, with a cursor holding the Elasticsearch sort values of the last hit
+ * ({@code search_after}).
+ * <p>
+ * Change pages are requested with {@code ?sinceRevision=N&size=M}: the revision of their last change is returned in
+ * the {@link #NEXT_REVISION_HEADER} header and in a {@code next} Link header.
+ */
+public final class KeysetPaginationUtil {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    public static final String NEXT_REVISION_HEADER = "X-Next-Revision";
+
+    public static final String TOTAL_COUNT_RELATION_HEADER = "X-Total-Count-Relation";
+
+    private static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
+    private static final String AFTER_PARAM = "after";
+
+    private static final String SINCE_REVISION_PARAM = "sinceRevision";
+
+    private static final ObjectMapper CURSOR_MAPPER = new ObjectMapper();
+
+    private static final TypeReference<List<Object>> SORT_VALUES_TYPE = new TypeReference<>() {};
+
+    private KeysetPaginationUtil() {}
+
+    /**
+     * Decode a cursor into the id to start after.
+     *
+     * @param cursor the cursor sent by the client; an empty cursor starts from the beginning.
+     * @param entityName the name of the paginated entity, used in the error sent on an invalid cursor.
+     * @return the id after which the page starts.
+     * @throws BadRequestAlertException if the cursor is invalid.
+     */
+    public static long decodeCursor(String cursor, String entityName) {
+        if (cursor == null || cursor.isBlank()) {
+            // identifiers are generated by the database and are always positive
+            return 0L;
+        }
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException("Invalid pagination cursor", entityName, "cursorinvalid");
+        }
+    }
+
+    /**
+     * Encode the id of the last element of a page into the cursor of the next page.
+     *
+     * @param id the id of the last element of the page.
+     * @return the opaque cursor.
+     */
+    public static String encodeCursor(long id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Long.toString(id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Generate the pagination headers of a keyset page. There is no next page when the page isn't full.
+     *
+     * @param uriBuilder the URI builder of the current request.
+     * @param content the content of the page, sorted by id.
+     * @param size the requested page size.
+     * @param idExtractor the function returning the id of an element.
+     * @param <T> the type of the elements.
+     * @return the {@link HttpHeaders}.
+     */
+    public static <T> HttpHeaders generateKeysetHttpHeaders(
+        UriComponentsBuilder uriBuilder,
+        List<T> content,
+        int size,
+        Function<T, Long> idExtractor
+    ) {
+        HttpHeaders headers = new HttpHeaders();
+        if (!content.isEmpty() && content.size() >= size) {
+            addNextPageHeaders(headers, uriBuilder, encodeCursor(idExtractor.apply(content.get(content.size() - 1))), size);
+        }
+        return headers;
+    }
+
+    /**
+     * Decode a search cursor into the sort values to search after.
+     *
+     * @param cursor the cursor sent by the client; an empty cursor starts from the first hit.
+     * @param entityName the name of the searched entity, used in the error sent on an invalid cursor.
+     * @return the sort values of the last hit of the previous page, or {@code null} for the first page.
+     * @throws BadRequestAlertException if the cursor is invalid.
+     */
+    public static List<Object> decodeSearchAfter(String cursor, String entityName) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            return CURSOR_MAPPER.readValue(Base64.getUrlDecoder().decode(cursor), SORT_VALUES_TYPE);
+        } catch (IllegalArgumentException | IOException e) {
+            throw new BadRequestAlertException("Invalid pagination cursor", entityName, "cursorinvalid");
+        }
+    }
+
+    /**
+     * Encode the sort values of the last hit of a page into the cursor of the next page.
+     *
+     * @param sortValues the sort values of the last hit.
+     * @return the opaque cursor.
+     */
+    public static String encodeSearchAfter(List<Object> sortValues) {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(CURSOR_MAPPER.writeValueAsBytes(sortValues));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Generate the pagination headers of a {@code search_after} page: the total count of hits, which is a lower bound
+     * when {@link #TOTAL_COUNT_RELATION_HEADER} is {@code gte}, and the cursor of the next page if there is one.
+     *
+     * @param uriBuilder the URI builder of the current request.
+     * @param page the page of hits.
+     * @param size the requested page size.
+     * @return the {@link HttpHeaders}.
+     */
+    public static HttpHeaders generateSearchAfterHttpHeaders(UriComponentsBuilder uriBuilder, SearchAfterPage<?> page, int size) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(TOTAL_COUNT_HEADER, Long.toString(page.getTotalHits()));
+        headers.add(TOTAL_COUNT_RELATION_HEADER, page.isTotalHitsExact() ? "eq" : "gte");
+        if (page.getNextSearchAfter() != null) {
+            addNextPageHeaders(headers, uriBuilder, encodeSearchAfter(page.getNextSearchAfter()), size);
+        }
+        return headers;
+    }
+
+    /**
+     * Generate the pagination headers of a page of changes. There is no next page when the page isn't full.
+     *
+     * @param uriBuilder the URI builder of the current request.
+     * @param content the content of the page, sorted by revision.
+     * @param size the requested page size.
+     * @param revisionExtractor the function returning the revision of an element.
+     * @param <T> the type of the elements.
+     * @return the {@link HttpHeaders}.
+     */
+    public static <T> HttpHeaders generateRevisionHttpHeaders(
+        UriComponentsBuilder uriBuilder,
+        List<T> content,
+        int size,
+        Function<T, Long> revisionExtractor
+    ) {
+        HttpHeaders headers = new HttpHeaders();
+        if (!content.isEmpty() && content.size() >= size) {
+            long revision = revisionExtractor.apply(content.get(content.size() - 1));
+            headers.add(NEXT_REVISION_HEADER, Long.toString(revision));
+            String nextLink = uriBuilder
+                .replaceQueryParam("page")
+                .replaceQueryParam(SINCE_REVISION_PARAM, revision)
+                .replaceQueryParam("size", size)
+                .toUriString();
+            headers.add(HttpHeaders.LINK, "<" + nextLink + ">; rel=\"next\"");
+        }
+        return headers;
+    }
+
+    private static void addNextPageHeaders(HttpHeaders headers, UriComponentsBuilder uriBuilder, String cursor, int size) {
+        headers.add(NEXT_CURSOR_HEADER, cursor);
+        String nextLink = uriBuilder
+            .replaceQueryParam("page")
+            .replaceQueryParam(AFTER_PARAM, cursor)
+            .replaceQueryParam("size", size)
+            .toUriString();
+        headers.add(HttpHeaders.LINK, "<" + nextLink + ">; rel=\"next\"");
+    }
+}
@@ -0,0 +1,20 @@
+-- Give distinct revisions, above the current revision, to the rows written before revisions existed, so that
+-- reading the changes after revision 0 returns them. The revisions are derived from the ids: the credentials come
+-- first, then the service providers, then the identity providers; the counter is then moved past all of them.
+update credential
+set revision = (select revision from revision_counter where id = 1) + id
+where revision is null or revision = 0;
+
+update service_provider
+set revision = (select revision from revision_counter where id = 1) + (select coalesce(max(id), 0) from credential) + id
+where revision is null or revision = 0;
+
+update identity_provider
+set revision = (select revision from revision_counter where id = 1) + (select coalesce(max(id), 0) from credential)
+    + (select coalesce(max(id), 0) from service_provider) + id
+where revision is null or revision = 0;
+
+update revision_counter
+set revision = revision + (select coalesce(max(id), 0) from credential) + (select coalesce(max(id), 0) from service_provider)
+    + (select coalesce(max(id), 0) from identity_provider)
+where id = 1;
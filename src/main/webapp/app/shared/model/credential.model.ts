@@ -7,6 +7,7 @@ export interface ICredential {
   enabled?: boolean | null;
   username?: string | null;
   password?: string | null;
+  revision?: number | null;
   identityProvider?: IIdentityProvider | null;
   serviceProviders?: IServiceProvider[] | null;
 }
@@ -1,6 +1,7 @@
 export interface IIdentityProvider {
   id?: number;
   name?: string | null;
+  revision?: number | null;
 }
 
 export const defaultValue: Readonly<IIdentityProvider> = {};
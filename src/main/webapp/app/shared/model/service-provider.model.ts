@@ -3,6 +3,7 @@ import { ICredential } from 'app/shared/model/credential.model';
 export interface IServiceProvider {
   id?: number;
   name?: string | null;
+  revision?: number | null;
   credentials?: ICredential[] | null;
 }
 
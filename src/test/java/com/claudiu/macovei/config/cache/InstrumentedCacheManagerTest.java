@@ -0,0 +1,49 @@
+package com.claudiu.macovei.config.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class InstrumentedCacheManagerTest {
+
+    private Cache<Object, Object> remote;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private InstrumentedCacheManager cacheManager;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        remote = mock(Cache.class);
+        CacheManager delegate = mock(CacheManager.class);
+        when(delegate.getCache("region")).thenReturn(remote);
+        meterRegistry = new SimpleMeterRegistry();
+        cacheManager = new InstrumentedCacheManager(delegate, meterRegistry);
+    }
+
+    @Test
+    void callsAreTimedPerRegionAndOperation() {
+        when(remote.get("a")).thenReturn("1");
+        Cache<Object, Object> cache = cacheManager.getCache("region");
+
+        assertThat(cache.get("a")).isEqualTo("1");
+        cache.put("b", "2");
+        cache.put("c", "3");
+
+        assertThat(meterRegistry.get("cache.region.latency").tags("region", "region", "operation", "get").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.region.latency").tags("region", "region", "operation", "put").timer().count()).isEqualTo(2);
+        verify(remote).put("c", "3");
+    }
+
+    @Test
+    void cachesAreDecoratedOnce() {
+        assertThat(cacheManager.<Object, Object>getCache("region")).isSameAs(cacheManager.getCache("region"));
+        assertThat(cacheManager.<Object, Object>getCache("region").getCacheManager()).isSameAs(cacheManager);
+    }
+}
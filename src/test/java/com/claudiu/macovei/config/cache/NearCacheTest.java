@@ -0,0 +1,97 @@
+package com.claudiu.macovei.config.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.ArrayList;
+import java.util.List;
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class NearCacheTest {
+
+    private Cache<String, String> remote;
+
+    private List<String> published;
+
+    private NearCache<String, String> nearCache;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        remote = mock(Cache.class);
+        when(remote.getName()).thenReturn("region");
+        published = new ArrayList<>();
+        nearCache =
+            new NearCache<>(
+                remote,
+                mock(CacheManager.class),
+                Caffeine.newBuilder().maximumSize(10).build(),
+                (cacheName, key) -> published.add(cacheName + ":" + key)
+            );
+    }
+
+    @Test
+    void readsAreServedLocallyOnceLoaded() {
+        when(remote.get("a")).thenReturn("1");
+
+        assertThat(nearCache.get("a")).isEqualTo("1");
+        assertThat(nearCache.get("a")).isEqualTo("1");
+
+        verify(remote, times(1)).get("a");
+    }
+
+    @Test
+    void writesInvalidateLocallyAndRemotely() {
+        when(remote.get("a")).thenReturn("1", "2");
+        nearCache.get("a");
+
+        nearCache.put("a", "2");
+
+        verify(remote).put("a", "2");
+        assertThat(published).containsExactly("region:a");
+        assertThat(nearCache.get("a")).isEqualTo("2");
+        verify(remote, times(2)).get("a");
+    }
+
+    @Test
+    void remoteInvalidationsAreNotPublishedAgain() {
+        when(remote.get("a")).thenReturn("1");
+        nearCache.get("a");
+
+        nearCache.evictLocal("a");
+        nearCache.get("a");
+
+        assertThat(published).isEmpty();
+        verify(remote, times(2)).get("a");
+    }
+
+    @Test
+    void valueReadDuringAnInvalidationIsNotKept() {
+        when(remote.get("a"))
+            .thenAnswer(invocation -> {
+                nearCache.evictLocal("a");
+                return "stale";
+            })
+            .thenReturn("fresh");
+
+        assertThat(nearCache.get("a")).isEqualTo("stale");
+        assertThat(nearCache.get("a")).isEqualTo("fresh");
+    }
+
+    @Test
+    void clearDropsEverything() {
+        when(remote.get("a")).thenReturn("1");
+        nearCache.get("a");
+
+        nearCache.clear();
+        nearCache.get("a");
+
+        verify(remote).clear();
+        assertThat(published).containsExactly("region:null");
+        verify(remote, times(2)).get("a");
+    }
+}
@@ -0,0 +1,15 @@
+package com.claudiu.macovei.repository.search;
+
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configure a Mock version of {@link SearchIndexAdminRepository} to test the
+ * application without starting Elasticsearch.
+ */
+@Configuration
+public class SearchIndexAdminRepositoryMockConfiguration {
+
+    @MockBean
+    private SearchIndexAdminRepository mockSearchIndexAdminRepository;
+}
@@ -4,6 +4,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.claudiu.macovei.IntegrationTest;
@@ -11,9 +13,12 @@ import com.claudiu.macovei.security.AuthoritiesConstants;
 import com.claudiu.macovei.security.SecurityUtils;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentMatchers;
@@ -23,6 +28,7 @@ import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
 @IntegrationTest
@@ -205,4 +211,87 @@ class CustomClaimConverterIT {
             })
             .doesNotThrowAnyException();
     }
+
+    @Test
+    void testConvert_cachesUserInfoUntilTokenExpiry() {
+        // GIVEN
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("sub", "123");
+        claims.put("exp", Instant.now().plusSeconds(60).getEpochSecond());
+        Map<String, Object> expiredClaims = new HashMap<>();
+        expiredClaims.put("sub", "456");
+        expiredClaims.put("exp", Instant.now().minusSeconds(60).getEpochSecond());
+        // AND
+        ObjectNode user = mapper.createObjectNode();
+        user.put("preferred_username", USERNAME);
+        mockHttpGetUserInfo(user);
+
+        // WHEN
+        customClaimConverter.convert(claims);
+        customClaimConverter.convert(claims);
+        customClaimConverter.convert(expiredClaims);
+        customClaimConverter.convert(expiredClaims);
+
+        // THEN
+        verify(restTemplate, times(3))
+            .exchange(eq("https://api.jhipster.org/user"), eq(HttpMethod.GET), any(HttpEntity.class), ArgumentMatchers.<Class<ObjectNode>>any());
+    }
+
+    @Test
+    void testConvert_fallsBackToTokenClaimsWhenUserInfoFails() {
+        // GIVEN
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("sub", "123");
+        claims.put("preferred_username", USERNAME);
+        // AND
+        when(
+            restTemplate.exchange(
+                eq("https://api.jhipster.org/user"),
+                eq(HttpMethod.GET),
+                any(HttpEntity.class),
+                ArgumentMatchers.<Class<ObjectNode>>any()
+            )
+        )
+            .thenThrow(new ResourceAccessException("Read timed out"));
+        customClaimConverter.setCircuitBreaker(2, Duration.ofMinutes(1));
+
+        // WHEN
+        for (int i = 0; i < 3; i++) {
+            assertThat(customClaimConverter.convert(claims)).containsEntry("sub", "123").containsEntry("preferred_username", USERNAME);
+        }
+
+        // THEN the circuit is open after two failures
+        verify(restTemplate, times(2))
+            .exchange(eq("https://api.jhipster.org/user"), eq(HttpMethod.GET), any(HttpEntity.class), ArgumentMatchers.<Class<ObjectNode>>any());
+    }
+
+    @Test
+    void testConvert_withTokenClaimsFirst() {
+        // GIVEN
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("sub", "123");
+        claims.put("preferred_username", USERNAME);
+        claims.put("email", EMAIL);
+        claims.put(SecurityUtils.CLAIMS_NAMESPACE + "roles", Arrays.asList(AuthoritiesConstants.ADMIN, AuthoritiesConstants.USER));
+        Map<String, Object> incompleteClaims = new HashMap<>();
+        incompleteClaims.put("sub", "456");
+        // AND
+        ObjectNode user = mapper.createObjectNode();
+        user.put("preferred_username", "other");
+        mockHttpGetUserInfo(user);
+        customClaimConverter.setTokenClaimsFirst(true, Set.of("preferred_username"));
+
+        // WHEN
+        Map<String, Object> convertedClaims = customClaimConverter.convert(claims);
+        Map<String, Object> convertedIncompleteClaims = customClaimConverter.convert(incompleteClaims);
+
+        // THEN only the incomplete token needs the userinfo endpoint
+        assertThat(convertedClaims)
+            .containsEntry("preferred_username", USERNAME)
+            .containsEntry("email", EMAIL)
+            .containsEntry("roles", Arrays.asList(AuthoritiesConstants.ADMIN, AuthoritiesConstants.USER));
+        assertThat(convertedIncompleteClaims).containsEntry("preferred_username", "other");
+        verify(restTemplate, times(1))
+            .exchange(eq("https://api.jhipster.org/user"), eq(HttpMethod.GET), any(HttpEntity.class), ArgumentMatchers.<Class<ObjectNode>>any());
+    }
 }
@@ -0,0 +1,44 @@
+package com.claudiu.macovei.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.claudiu.macovei.IntegrationTest;
+import com.claudiu.macovei.repository.AuthorityRepository;
+import com.claudiu.macovei.security.AuthoritiesConstants;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for {@link AuthorityRegistry}.
+ */
+@IntegrationTest
+@Transactional
+class AuthorityRegistryIT {
+
+    private static final String NEW_AUTHORITY = "ROLE_AUDITOR";
+
+    @Autowired
+    private AuthorityRegistry authorityRegistry;
+
+    @Autowired
+    private AuthorityRepository authorityRepository;
+
+    @Test
+    void testGetAllIsImmutable() {
+        assertThat(authorityRegistry.getAll()).contains(AuthoritiesConstants.ADMIN, AuthoritiesConstants.USER);
+        assertThatThrownBy(() -> authorityRegistry.getAll().add(NEW_AUTHORITY)).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void testEnsureExistSavesOnlyMissingAuthorities() {
+        long count = authorityRepository.count();
+
+        authorityRegistry.ensureExist(List.of(AuthoritiesConstants.ADMIN, NEW_AUTHORITY));
+
+        assertThat(authorityRepository.count()).isEqualTo(count + 1);
+        assertThat(authorityRepository.findById(NEW_AUTHORITY)).isPresent();
+    }
+}
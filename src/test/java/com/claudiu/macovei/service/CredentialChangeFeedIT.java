@@ -0,0 +1,179 @@
+package com.claudiu.macovei.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.claudiu.macovei.IntegrationTest;
+import com.claudiu.macovei.domain.Credential;
+import com.claudiu.macovei.service.dto.CredentialChangeDTO;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Integration tests for {@link CredentialChangeFeed}.
+ * <p>
+ * The changes are only published once the writes commit, so these tests don't run in a test transaction.
+ */
+@IntegrationTest
+class CredentialChangeFeedIT {
+
+    @Autowired
+    private CredentialChangeFeed credentialChangeFeed;
+
+    @Autowired
+    private CredentialService credentialService;
+
+    @Test
+    void testCommittedChangesAreHandedOverInRevisionOrder() throws Exception {
+        BlockingQueue<CredentialChangeDTO> changes = new LinkedBlockingQueue<>();
+        CredentialChangeFeed.Subscription subscription = credentialChangeFeed.subscribe(null, collector(changes, new AtomicLong()));
+        Credential credential;
+        long updatedRevision;
+        CredentialChangeDTO created;
+        CredentialChangeDTO updated;
+        CredentialChangeDTO deleted;
+        try {
+            credential = credentialService.save(new Credential().profile("feed").enabled(true).username("feed").password("feed"));
+            credentialService.partialUpdate(new Credential().id(credential.getId()).username("updated"));
+            updatedRevision = credentialService.findRevision(credential.getId()).orElseThrow();
+            credentialService.delete(credential.getId());
+
+            // the changes are handed over on another thread, so the subscription is kept until they are received
+            created = nextChange(changes, credential.getId());
+            updated = nextChange(changes, credential.getId());
+            deleted = nextChange(changes, credential.getId());
+        } finally {
+            subscription.cancel();
+        }
+        assertThat(created.getType()).isEqualTo(CredentialChangeDTO.Type.CREATED);
+        assertThat(created.getCredential()).isNull();
+        assertThat(updated.getType()).isEqualTo(CredentialChangeDTO.Type.UPDATED);
+        assertThat(updated.getRevision()).isGreaterThan(created.getRevision());
+        assertThat(deleted.getType()).isEqualTo(CredentialChangeDTO.Type.DELETED);
+        assertThat(deleted.getCredential()).isNull();
+        assertThat(deleted.getRevision()).isGreaterThan(updated.getRevision());
+
+        // the changes have the revisions of the rows, as read after a revision
+        assertThat(updated.getRevision()).isEqualTo(updatedRevision);
+        assertThat(credentialService.findAllChangedAfter(updated.getRevision(), 100))
+            .filteredOn(change -> credential.getId().equals(change.getId()))
+            .extracting(CredentialChangeDTO::getRevision)
+            .containsExactly(deleted.getRevision());
+
+        // a subscriber resuming from the created revision is handed over the later changes first
+        BlockingQueue<CredentialChangeDTO> resumed = new LinkedBlockingQueue<>();
+        CredentialChangeFeed.Subscription resumedSubscription = credentialChangeFeed.subscribe(
+            created.getRevision(),
+            collector(resumed, new AtomicLong())
+        );
+        try {
+            assertThat(nextChange(resumed, credential.getId()).getRevision()).isEqualTo(updated.getRevision());
+            assertThat(nextChange(resumed, credential.getId()).getRevision()).isEqualTo(deleted.getRevision());
+        } finally {
+            resumedSubscription.cancel();
+        }
+    }
+
+    @Test
+    void testSubscriberIsResetWhenChangesAreNoLongerHeld() throws Exception {
+        AtomicLong reset = new AtomicLong(-1);
+        long revision = credentialChangeFeed.getRevision();
+        CredentialChangeFeed.Subscription subscription = credentialChangeFeed.subscribe(-1L, collector(new LinkedBlockingQueue<>(), reset));
+        try {
+            awaitReset(reset, revision);
+            assertThat(reset.get()).isBetween(revision, credentialChangeFeed.getRevision());
+        } finally {
+            subscription.cancel();
+        }
+    }
+
+    @Test
+    void testSlowSubscriberIsResetWithoutHoldingTheFeed() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingQueue<CredentialChangeDTO> slowChanges = new LinkedBlockingQueue<>();
+        AtomicLong slowReset = new AtomicLong(-1);
+        CredentialChangeFeed.Subscription slow = credentialChangeFeed.subscribe(
+            null,
+            new CredentialChangeFeed.Subscriber() {
+                @Override
+                public void onChanges(List<CredentialChangeDTO> received) {
+                    slowChanges.addAll(received);
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+                @Override
+                public void onReset(long revision) {
+                    slowReset.set(revision);
+                }
+            }
+        );
+        BlockingQueue<CredentialChangeDTO> changes = new LinkedBlockingQueue<>();
+        CredentialChangeFeed.Subscription subscription = credentialChangeFeed.subscribe(null, collector(changes, new AtomicLong()));
+        List<Long> ids = new ArrayList<>();
+        try {
+            // more changes than the queue of a subscriber holds, each in its own transaction
+            for (int i = 0; i < 12; i++) {
+                Credential credential = credentialService.save(
+                    new Credential().profile("slow").enabled(true).username("slow" + i).password("slow")
+                );
+                ids.add(credential.getId());
+                // the other subscribers are handed over the changes while the slow one is blocked
+                nextChange(changes, credential.getId());
+                if (i == 0) {
+                    // the slow subscriber is now blocked on the first change
+                    nextChange(slowChanges, credential.getId());
+                }
+            }
+            release.countDown();
+
+            long lastRevision = credentialService.findRevision(ids.get(ids.size() - 1)).orElseThrow();
+            awaitReset(slowReset, lastRevision);
+            assertThat(slowReset.get()).isEqualTo(lastRevision);
+        } finally {
+            release.countDown();
+            slow.cancel();
+            subscription.cancel();
+            ids.forEach(credentialService::delete);
+        }
+    }
+
+    private static CredentialChangeFeed.Subscriber collector(BlockingQueue<CredentialChangeDTO> changes, AtomicLong reset) {
+        return new CredentialChangeFeed.Subscriber() {
+            @Override
+            public void onChanges(List<CredentialChangeDTO> received) {
+                changes.addAll(received);
+            }
+
+            @Override
+            public void onReset(long revision) {
+                reset.set(revision);
+            }
+        };
+    }
+
+    private static void awaitReset(AtomicLong reset, long revision) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (reset.get() < revision && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+    }
+
+    private static CredentialChangeDTO nextChange(BlockingQueue<CredentialChangeDTO> changes, Long id) throws InterruptedException {
+        CredentialChangeDTO change;
+        do {
+            change = changes.poll(10, TimeUnit.SECONDS);
+            assertThat(change).as("change of Credential %s", id).isNotNull();
+        } while (!id.equals(change.getId()));
+        return change;
+    }
+}
@@ -0,0 +1,168 @@
+package com.claudiu.macovei.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.*;
+
+import com.claudiu.macovei.domain.Credential;
+import com.claudiu.macovei.repository.CredentialRepository;
+import com.claudiu.macovei.repository.search.CredentialSearchRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class CredentialSearchIndexerTest {
+
+    private CredentialRepository credentialRepository;
+
+    private CredentialSearchRepository credentialSearchRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private CredentialSearchIndexer indexer;
+
+    @BeforeEach
+    void setUp() {
+        credentialRepository = mock(CredentialRepository.class);
+        credentialSearchRepository = mock(CredentialSearchRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        indexer = new CredentialSearchIndexer(credentialRepository, credentialSearchRepository, Runnable::run, meterRegistry, 2);
+        indexer.setBulkSize(2);
+        indexer.setOfferTimeoutMs(0);
+        indexer.setRetryBackoffMs(0);
+    }
+
+    @Test
+    void shouldIndexInlineWhenNotAsync() {
+        indexer.setAsync(false);
+        Credential credential = new Credential().id(1L);
+
+        indexer.index(credential);
+        indexer.delete(2L);
+
+        verify(credentialSearchRepository).save(credential);
+        verify(credentialSearchRepository).deleteById(2L);
+        verifyNoInteractions(credentialRepository);
+    }
+
+    @Test
+    void shouldIndexCommittedStateInBulk() {
+        Credential credential = new Credential().id(1L);
+        when(credentialRepository.findAllWithEagerRelationshipsByIdIn(anyCollection())).thenReturn(Collections.singletonList(credential));
+
+        indexer.index(credential);
+        verifyNoInteractions(credentialRepository);
+        assertThat(indexer.getQueueSize()).isEqualTo(1);
+
+        indexer.delete(2L);
+
+        verify(credentialSearchRepository).saveAll(Collections.singletonList(credential));
+        verify(credentialSearchRepository).deleteAllById(Set.of(2L));
+        assertThat(indexer.getQueueSize()).isZero();
+        assertThat(meterRegistry.get("search.indexer.documents").tag("operation", "index").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldFlushPartialBulk() {
+        indexer.delete(3L);
+
+        indexer.flush();
+
+        verify(credentialSearchRepository).deleteAllById(Set.of(3L));
+        assertThat(indexer.getLagMillis()).isZero();
+    }
+
+    @Test
+    void shouldRequeueAfterFailedAttempts() {
+        indexer.setMaxAttempts(2);
+        when(credentialRepository.findAllWithEagerRelationshipsByIdIn(anyCollection())).thenThrow(new IllegalStateException("down"));
+
+        indexer.delete(4L);
+        indexer.flush();
+
+        verify(credentialRepository, times(2)).findAllWithEagerRelationshipsByIdIn(anyCollection());
+        verify(credentialSearchRepository, never()).deleteAllById(anyIterable());
+        assertThat(indexer.getQueueSize()).isEqualTo(1);
+        assertThat(meterRegistry.get("search.indexer.failures").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldIndexOnCallingThreadWhenQueueIsFull() {
+        indexer.setBulkSize(10);
+        List<Long> ids = Arrays.asList(5L, 6L, 7L);
+
+        ids.forEach(indexer::delete);
+
+        verify(credentialSearchRepository).deleteAllById(Set.of(7L));
+        assertThat(indexer.getQueueSize()).isEqualTo(2);
+        assertThat(meterRegistry.get("search.indexer.overflow").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldQueueOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            indexer.delete(8L);
+            indexer.delete(9L);
+            assertThat(indexer.getQueueSize()).isZero();
+
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            synchronizations.get(0).afterCommit();
+            assertThat(indexer.getQueueSize()).isEqualTo(1);
+            // a rolled back transaction never calls afterCommit, so its second change is never indexed
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        indexer.flush();
+
+        verify(credentialSearchRepository).deleteAllById(Set.of(8L));
+        verifyNoMoreInteractions(credentialSearchRepository);
+    }
+
+    @Test
+    void shouldRetryFailedBulk() {
+        when(credentialRepository.findAllWithEagerRelationshipsByIdIn(anyCollection()))
+            .thenThrow(new IllegalStateException("down"))
+            .thenReturn(Collections.emptyList());
+
+        indexer.delete(10L);
+        indexer.flush();
+
+        verify(credentialSearchRepository).deleteAllById(Set.of(10L));
+        assertThat(indexer.getQueueSize()).isZero();
+        assertThat(meterRegistry.get("search.indexer.failures").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldDropChangesWhichNoLongerFitInTheQueue() {
+        indexer.setMaxAttempts(1);
+        indexer.setBulkSize(10);
+        when(credentialRepository.findAllWithEagerRelationshipsByIdIn(anyCollection())).thenThrow(new IllegalStateException("down"));
+
+        Arrays.asList(11L, 12L, 13L).forEach(indexer::delete);
+
+        // the queue holds 2 changes, the third one failed on the calling thread and found no room left
+        assertThat(indexer.getQueueSize()).isEqualTo(2);
+        assertThat(meterRegistry.get("search.indexer.dropped").counter().count()).isEqualTo(1);
+        verify(credentialSearchRepository, never()).deleteAllById(anyIterable());
+    }
+
+    @Test
+    void shouldDrainQueueOnShutdown() {
+        indexer.setBulkSize(10);
+        indexer.delete(14L);
+
+        indexer.shutdown();
+
+        verify(credentialSearchRepository).deleteAllById(Set.of(14L));
+        assertThat(indexer.getQueueSize()).isZero();
+    }
+}
@@ -1,6 +1,7 @@
 package com.claudiu.macovei.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -157,6 +158,24 @@ class UserServiceIT {
         assertThat(userDTO.getLangKey()).isEqualTo("en");
     }
 
+    @Test
+    @Transactional
+    void testUserIsOnlyWrittenWhenChanged() {
+        user.setId(DEFAULT_LOGIN);
+        user.setLangKey(Constants.DEFAULT_LANGUAGE);
+        userRepository.saveAndFlush(user);
+
+        userService.getUserFromAuthentication(createMockOAuth2AuthenticationToken(userDetails));
+
+        verify(mockUserSearchRepository, never()).save(any(User.class));
+
+        userDetails.put("given_name", "jane");
+        userService.getUserFromAuthentication(createMockOAuth2AuthenticationToken(userDetails));
+
+        verify(mockUserSearchRepository, times(1)).save(any(User.class));
+        assertThat(userRepository.findOneByLogin(DEFAULT_LOGIN)).get().extracting(User::getFirstName).isEqualTo("jane");
+    }
+
     private OAuth2AuthenticationToken createMockOAuth2AuthenticationToken(Map<String, Object> userDetails) {
         Collection<GrantedAuthority> authorities = Collections.singletonList(new SimpleGrantedAuthority(AuthoritiesConstants.ANONYMOUS));
         UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken = new UsernamePasswordAuthenticationToken(
@@ -0,0 +1,122 @@
+package com.claudiu.macovei.web.filter;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import javax.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.client.web.OAuth2AuthorizedClientRepository;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+
+class OAuth2RefreshTokensWebFilterTest {
+
+    private static final ClientRegistration REGISTRATION = ClientRegistration
+        .withRegistrationId("oidc")
+        .clientId("web_app")
+        .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+        .redirectUri("{baseUrl}/login/oauth2/code/{registrationId}")
+        .authorizationUri("https://idp/authorize")
+        .tokenUri("https://idp/token")
+        .build();
+
+    private OAuth2AuthorizedClientManager clientManager;
+
+    private OAuth2AuthorizedClientRepository authorizedClientRepository;
+
+    private OAuth2AuthenticationToken authentication;
+
+    private FilterChain filterChain;
+
+    private OAuth2RefreshTokensWebFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        clientManager = mock(OAuth2AuthorizedClientManager.class);
+        authorizedClientRepository = mock(OAuth2AuthorizedClientRepository.class);
+        filterChain = mock(FilterChain.class);
+        filter =
+            new OAuth2RefreshTokensWebFilter(
+                clientManager,
+                authorizedClientRepository,
+                mock(ClientRegistrationRepository.class),
+                Duration.ofSeconds(60),
+                Duration.ofSeconds(5)
+            );
+        DefaultOAuth2User user = new DefaultOAuth2User(List.of(new SimpleGrantedAuthority("ROLE_USER")), Map.of("sub", "123"), "sub");
+        authentication = new OAuth2AuthenticationToken(user, user.getAuthorities(), "oidc");
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private OAuth2AuthorizedClient authorizedClient(Instant expiresAt) {
+        OAuth2AccessToken accessToken = new OAuth2AccessToken(
+            OAuth2AccessToken.TokenType.BEARER,
+            "token",
+            expiresAt.minusSeconds(300),
+            expiresAt
+        );
+        return new OAuth2AuthorizedClient(REGISTRATION, "123", accessToken);
+    }
+
+    @Test
+    void freshTokensAreNotRefreshed() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/credentials");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        when(authorizedClientRepository.loadAuthorizedClient("oidc", authentication, request))
+            .thenReturn(authorizedClient(Instant.now().plusSeconds(3600)));
+
+        filter.doFilter(request, response, filterChain);
+
+        verify(clientManager, never()).authorize(any());
+        verify(authorizedClientRepository, never()).saveAuthorizedClient(any(), any(), any(), any());
+        verify(filterChain).doFilter(request, response);
+    }
+
+    @Test
+    void tokensExpiringWithinTheClockSkewAreRefreshed() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/credentials");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        when(authorizedClientRepository.loadAuthorizedClient("oidc", authentication, request))
+            .thenReturn(authorizedClient(Instant.now().plusSeconds(30)));
+        when(clientManager.authorize(any(OAuth2AuthorizeRequest.class))).thenReturn(authorizedClient(Instant.now().plusSeconds(3600)));
+
+        filter.doFilter(request, response, filterChain);
+
+        verify(clientManager).authorize(any(OAuth2AuthorizeRequest.class));
+        verify(filterChain).doFilter(request, response);
+    }
+
+    @Test
+    void staticAssetsAreNotFiltered() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/main.js");
+        request.setServletPath("/main.js");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, filterChain);
+
+        verifyNoInteractions(authorizedClientRepository, clientManager);
+        verify(filterChain).doFilter(request, response);
+    }
+}
@@ -1,6 +1,8 @@
 package com.claudiu.macovei.web.rest;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasItem;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
@@ -9,15 +11,28 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import com.claudiu.macovei.IntegrationTest;
 import com.claudiu.macovei.domain.Credential;
+import com.claudiu.macovei.domain.IdentityProvider;
+import com.claudiu.macovei.domain.ServiceProvider;
 import com.claudiu.macovei.repository.CredentialRepository;
+import com.claudiu.macovei.repository.IdentityProviderRepository;
+import com.claudiu.macovei.repository.ServiceProviderRepository;
+import com.claudiu.macovei.repository.search.CredentialSearchCriteria;
 import com.claudiu.macovei.repository.search.CredentialSearchRepository;
+import com.claudiu.macovei.repository.search.CredentialSearchSummary;
+import com.claudiu.macovei.repository.search.SearchAfterPage;
+import com.claudiu.macovei.service.CredentialResolutionIndex;
 import com.claudiu.macovei.service.CredentialService;
+import com.claudiu.macovei.service.IdentityProviderService;
+import com.claudiu.macovei.web.rest.errors.ErrorConstants;
+import com.claudiu.macovei.web.rest.util.KeysetPaginationUtil;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicLong;
 import javax.persistence.EntityManager;
+import javax.sql.DataSource;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -25,9 +40,16 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
@@ -63,6 +85,15 @@ class CredentialResourceIT {
     @Autowired
     private CredentialRepository credentialRepository;
 
+    @Autowired
+    private ServiceProviderRepository serviceProviderRepository;
+
+    @Autowired
+    private IdentityProviderRepository identityProviderRepository;
+
+    @Autowired
+    private IdentityProviderService identityProviderService;
+
     @Mock
     private CredentialRepository credentialRepositoryMock;
 
@@ -77,9 +108,15 @@ class CredentialResourceIT {
     @Autowired
     private CredentialSearchRepository mockCredentialSearchRepository;
 
+    @Autowired
+    private CredentialResolutionIndex credentialResolutionIndex;
+
     @Autowired
     private EntityManager em;
 
+    @Autowired
+    private DataSource dataSource;
+
     @Autowired
     private MockMvc restCredentialMockMvc;
 
@@ -173,6 +210,107 @@ class CredentialResourceIT {
         verify(mockCredentialSearchRepository, times(0)).save(credential);
     }
 
+    @Test
+    @Transactional
+    void bulkSaveCredentials() throws Exception {
+        // Initialize the database
+        credentialRepository.saveAndFlush(credential);
+        int databaseSizeBeforeBulk = credentialRepository.findAll().size();
+
+        Credential updatedCredential = createUpdatedEntity(em).id(credential.getId());
+        Credential newCredential = createEntity(em);
+        Credential nonExistingCredential = createEntity(em).id(count.incrementAndGet());
+
+        restCredentialMockMvc
+            .perform(
+                post(ENTITY_API_URL + "/_bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(List.of(newCredential, updatedCredential, nonExistingCredential)))
+            )
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(jsonPath("$.[0].index").value(0))
+            .andExpect(jsonPath("$.[0].status").value("CREATED"))
+            .andExpect(jsonPath("$.[1].id").value(credential.getId().intValue()))
+            .andExpect(jsonPath("$.[1].status").value("UPDATED"))
+            .andExpect(jsonPath("$.[2].index").value(2))
+            .andExpect(jsonPath("$.[2].status").value("FAILED"));
+
+        // Validate the Credentials in the database
+        assertThat(credentialRepository.findAll()).hasSize(databaseSizeBeforeBulk + 1);
+        Credential testCredential = credentialRepository.findById(credential.getId()).get();
+        assertThat(testCredential.getProfile()).isEqualTo(UPDATED_PROFILE);
+        assertThat(testCredential.getPassword()).isEqualTo(UPDATED_PASSWORD);
+
+        // Validate the Credentials in Elasticsearch, with a single request
+        verify(mockCredentialSearchRepository, times(1)).saveAll(anyIterable());
+    }
+
+    @Test
+    @Transactional
+    void bulkSaveCredentialsWithInvalidItem() throws Exception {
+        int databaseSizeBeforeBulk = credentialRepository.findAll().size();
+        String body = "[" + new String(TestUtil.convertObjectToJsonBytes(credential)) + ", 42, {}]";
+
+        restCredentialMockMvc
+            .perform(post(ENTITY_API_URL + "/_bulk").with(csrf()).contentType(MediaType.APPLICATION_JSON).content(body))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(2))
+            .andExpect(jsonPath("$.[0].index").value(0))
+            .andExpect(jsonPath("$.[0].status").value("CREATED"))
+            .andExpect(jsonPath("$.[1].index").value(1))
+            .andExpect(jsonPath("$.[1].status").value("FAILED"))
+            .andExpect(jsonPath("$.[1].message").value(containsString("not read")));
+
+        // Validate the Credentials in the database: the item before the invalid one is saved, the one after isn't
+        assertThat(credentialRepository.findAll()).hasSize(databaseSizeBeforeBulk + 1);
+    }
+
+    @Test
+    @Transactional
+    void bulkSaveCredentialsWithInvalidBody() throws Exception {
+        restCredentialMockMvc
+            .perform(
+                post(ENTITY_API_URL + "/_bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(credential))
+            )
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void bulkSaveCredentialsWithUnknownServiceProvider() throws Exception {
+        // Outside of a test transaction, as each chunk is committed
+        int databaseSizeBeforeBulk = credentialRepository.findAll().size();
+        Credential invalidCredential = createEntity(em);
+        invalidCredential.addServiceProvider(new ServiceProvider().id(Long.MAX_VALUE));
+
+        restCredentialMockMvc
+            .perform(
+                post(ENTITY_API_URL + "/_bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(List.of(credential, invalidCredential)))
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(2))
+            .andExpect(jsonPath("$.[0].index").value(0))
+            .andExpect(jsonPath("$.[0].status").value("CREATED"))
+            .andExpect(jsonPath("$.[1].index").value(1))
+            .andExpect(jsonPath("$.[1].status").value("FAILED"))
+            .andExpect(jsonPath("$.[1].message").value(ErrorConstants.ERR_DATA_INTEGRITY));
+
+        // Validate the Credentials in the database: the chunk is saved again item by item, so the valid one is saved
+        List<Credential> credentialList = credentialRepository.findAll();
+        try {
+            assertThat(credentialList).hasSize(databaseSizeBeforeBulk + 1);
+        } finally {
+            credentialRepository.deleteById(credentialList.get(credentialList.size() - 1).getId());
+        }
+    }
+
     @Test
     @Transactional
     void getAllCredentials() throws Exception {
@@ -191,6 +329,65 @@ class CredentialResourceIT {
             .andExpect(jsonPath("$.[*].password").value(hasItem(DEFAULT_PASSWORD)));
     }
 
+    @Test
+    @Transactional
+    void getAllCredentialsWithCursor() throws Exception {
+        // Initialize the database
+        credentialRepository.saveAndFlush(credential);
+        Credential otherCredential = credentialRepository.saveAndFlush(createUpdatedEntity(em));
+        String cursor = KeysetPaginationUtil.encodeCursor(credential.getId() - 1);
+
+        // Get the first keyset page
+        restCredentialMockMvc
+            .perform(get(ENTITY_API_URL + "?after=" + cursor + "&size=1"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andExpect(header().string(KeysetPaginationUtil.NEXT_CURSOR_HEADER, KeysetPaginationUtil.encodeCursor(credential.getId())))
+            .andExpect(jsonPath("$.length()").value(1))
+            .andExpect(jsonPath("$.[0].id").value(credential.getId().intValue()));
+
+        // Get the next keyset page
+        restCredentialMockMvc
+            .perform(get(ENTITY_API_URL + "?after=" + KeysetPaginationUtil.encodeCursor(credential.getId()) + "&size=1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].id").value(otherCredential.getId().intValue()));
+    }
+
+    @Test
+    @Transactional
+    void getAllCredentialsWithInvalidCursor() throws Exception {
+        restCredentialMockMvc.perform(get(ENTITY_API_URL + "?after=not-a-cursor")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    void getAllCredentialsWithEagerRelationshipsPaged() throws Exception {
+        // Initialize the database
+        ServiceProvider serviceProvider = serviceProviderRepository.saveAndFlush(ServiceProviderResourceIT.createEntity(em));
+        credential.addServiceProvider(serviceProvider);
+        credentialRepository.saveAndFlush(credential);
+        Credential otherCredential = createUpdatedEntity(em);
+        otherCredential.addServiceProvider(serviceProvider);
+        credentialRepository.saveAndFlush(otherCredential);
+        em.clear();
+
+        // The page is cut on credentials, not on joined rows
+        restCredentialMockMvc
+            .perform(get(ENTITY_API_URL + "?eagerload=true&sort=id,desc&size=1"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", String.valueOf(credentialRepository.count())))
+            .andExpect(jsonPath("$.length()").value(1))
+            .andExpect(jsonPath("$.[0].id").value(otherCredential.getId().intValue()))
+            .andExpect(jsonPath("$.[0].serviceProviders.[0].id").value(serviceProvider.getId().intValue()));
+
+        restCredentialMockMvc
+            .perform(get(ENTITY_API_URL + "?eagerload=true&after=" + KeysetPaginationUtil.encodeCursor(credential.getId() - 1) + "&size=1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].id").value(credential.getId().intValue()))
+            .andExpect(jsonPath("$.[0].serviceProviders.[0].id").value(serviceProvider.getId().intValue()));
+    }
+
     @SuppressWarnings({ "unchecked" })
     void getAllCredentialsWithEagerRelationshipsIsEnabled() throws Exception {
         when(credentialServiceMock.findAllWithEagerRelationships(any())).thenReturn(new PageImpl(new ArrayList<>()));
@@ -209,6 +406,26 @@ class CredentialResourceIT {
         verify(credentialServiceMock, times(1)).findAllWithEagerRelationships(any());
     }
 
+    @Test
+    void exportCredentials() throws Exception {
+        // Initialize the database outside of a test transaction, as the export reads from its own connections
+        ServiceProvider serviceProvider = serviceProviderRepository.saveAndFlush(ServiceProviderResourceIT.createEntity(em));
+        credential.addServiceProvider(serviceProvider);
+        credentialRepository.saveAndFlush(credential);
+
+        try {
+            restCredentialMockMvc
+                .perform(get(ENTITY_API_URL + "/_export"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andExpect(content().string(containsString("\"id\":" + credential.getId() + ",")))
+                .andExpect(content().string(containsString("\"name\":\"" + serviceProvider.getName() + "\"")));
+        } finally {
+            credentialRepository.deleteById(credential.getId());
+            serviceProviderRepository.deleteById(serviceProvider.getId());
+        }
+    }
+
     @Test
     @Transactional
     void getCredential() throws Exception {
@@ -227,6 +444,244 @@ class CredentialResourceIT {
             .andExpect(jsonPath("$.password").value(DEFAULT_PASSWORD));
     }
 
+    @Test
+    @Transactional
+    void getCredentialNotModified() throws Exception {
+        // Initialize the database
+        credentialRepository.saveAndFlush(credential.revision(42L));
+
+        // Get the credential
+        restCredentialMockMvc
+            .perform(get(ENTITY_API_URL_ID, credential.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"42\""))
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("no-cache")));
+
+        // Revalidate the credential
+        restCredentialMockMvc
+            .perform(get(ENTITY_API_URL_ID, credential.getId()).header(HttpHeaders.IF_NONE_MATCH, "\"42\""))
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""));
+        restCredentialMockMvc
+            .perform(get(ENTITY_API_URL_ID, credential.getId()).header(HttpHeaders.IF_NONE_MATCH, "\"41\""))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.id").value(credential.getId().intValue()));
+    }
+
+    @Test
+    @Transactional
+    void getCredentialModifiedSinceResolutionIndexLoad() throws Exception {
+        // Initialize the database and the index
+        credentialRepository.saveAndFlush(credential.enabled(true).revision(42L));
+        credentialResolutionIndex.invalidate();
+        credentialResolutionIndex.resolve("", "");
+
+        try {
+            // the index isn't refreshed by repository writes, so it still holds the previous revision
+            credentialRepository.saveAndFlush(credential.revision(43L));
+            restCredentialMockMvc
+                .perform(get(ENTITY_API_URL_ID, credential.getId()).header(HttpHeaders.IF_NONE_MATCH, "\"42\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"43\""))
+                .andExpect(jsonPath("$.revision").value(43));
+            restCredentialMockMvc
+                .perform(get(ENTITY_API_URL_ID, credential.getId()).header(HttpHeaders.IF_NONE_MATCH, "\"43\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"43\""));
+        } finally {
+            // the test transaction is rolled back
+            credentialResolutionIndex.invalidate();
+        }
+    }
+
+    @Test
+    @Transactional
+    void getAllCredentialsNotModified() throws Exception {
+        // Initialize the database
+        credentialRepository.saveAndFlush(credential.revision(42L));
+        String url = ENTITY_API_URL + "?size=1&after=" + KeysetPaginationUtil.encodeCursor(credential.getId() - 1);
+
+        // Get the page
+        String eTag = restCredentialMockMvc
+            .perform(get(url))
+            .andExpect(status().isOk())
+            .andExpect(header().exists(HttpHeaders.ETAG))
+            .andReturn()
+            .getResponse()
+            .getHeader(HttpHeaders.ETAG);
+
+        // Revalidate the page, then change its credential
+        restCredentialMockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, eTag)).andExpect(status().isNotModified());
+        credentialRepository.saveAndFlush(credential.revision(43L));
+        restCredentialMockMvc
+            .perform(get(url).header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].id").value(credential.getId().intValue()));
+    }
+
+    @Test
+    @Transactional
+    void resolveCredentials() throws Exception {
+        // Initialize the database
+        ServiceProvider serviceProvider = serviceProviderRepository.saveAndFlush(
+            ServiceProviderResourceIT.createEntity(em).name("resolve-" + count.incrementAndGet())
+        );
+        credential.enabled(true).addServiceProvider(serviceProvider);
+        credentialRepository.saveAndFlush(credential);
+        Credential disabledCredential = createEntity(em).enabled(false);
+        disabledCredential.addServiceProvider(serviceProvider);
+        credentialRepository.saveAndFlush(disabledCredential);
+        // the index is only refreshed after commit, and is loaded again from the test transaction
+        credentialResolutionIndex.invalidate();
+
+        try {
+            restCredentialMockMvc
+                .perform(get(ENTITY_API_URL + "/resolve?serviceProvider=" + serviceProvider.getName() + "&profile=" + DEFAULT_PROFILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$.[0].id").value(credential.getId().intValue()))
+                .andExpect(jsonPath("$.[0].username").value(DEFAULT_USERNAME))
+                .andExpect(jsonPath("$.[0].serviceProviders.[0].name").value(serviceProvider.getName()));
+
+            restCredentialMockMvc
+                .perform(get(ENTITY_API_URL + "/resolve?serviceProvider=" + serviceProvider.getName() + "&profile=" + UPDATED_PROFILE))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+        } finally {
+            // the test transaction is rolled back
+            credentialResolutionIndex.invalidate();
+        }
+    }
+
+    @Test
+    void resolveCredentialsAfterIdentityProviderRename() throws Exception {
+        // Initialize the database outside of a test transaction, as the index is only invalidated after commit
+        ServiceProvider serviceProvider = serviceProviderRepository.saveAndFlush(
+            ServiceProviderResourceIT.createEntity(em).name("resolve-" + count.incrementAndGet())
+        );
+        IdentityProvider identityProvider = identityProviderRepository.saveAndFlush(IdentityProviderResourceIT.createEntity(em));
+        credential.enabled(true).identityProvider(identityProvider).addServiceProvider(serviceProvider);
+        credentialRepository.saveAndFlush(credential);
+        String url = ENTITY_API_URL + "/resolve?serviceProvider=" + serviceProvider.getName() + "&profile=" + DEFAULT_PROFILE;
+        credentialResolutionIndex.invalidate();
+
+        try {
+            restCredentialMockMvc
+                .perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[0].identityProvider.name").value(identityProvider.getName()));
+
+            identityProviderService.partialUpdate(new IdentityProvider().id(identityProvider.getId()).name("renamed"));
+
+            // the index is rebuilt in the background, and the previous snapshot is read meanwhile
+            long deadline = System.currentTimeMillis() + 10000;
+            while (!"renamed".equals(resolvedIdentityProviderName(serviceProvider)) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            restCredentialMockMvc
+                .perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[0].identityProvider.name").value("renamed"));
+        } finally {
+            credentialRepository.deleteById(credential.getId());
+            serviceProviderRepository.deleteById(serviceProvider.getId());
+            identityProviderRepository.deleteById(identityProvider.getId());
+            credentialResolutionIndex.invalidate();
+        }
+    }
+
+    private String resolvedIdentityProviderName(ServiceProvider serviceProvider) {
+        return credentialResolutionIndex.resolve(serviceProvider.getName(), DEFAULT_PROFILE).get(0).getIdentityProvider().getName();
+    }
+
+    @Test
+    void getCredentialChangesSinceRevision() throws Exception {
+        // Create a credential, then create and delete another one, outside of a test transaction as revisions are
+        // given on commit
+        restCredentialMockMvc
+            .perform(
+                post(ENTITY_API_URL)
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(credential))
+            )
+            .andExpect(status().isCreated());
+        List<Credential> credentialList = credentialRepository.findAll();
+        Credential createdCredential = credentialList.get(credentialList.size() - 1);
+        assertThat(createdCredential.getRevision()).isNotNull();
+        Credential deletedCredential = credentialRepository.saveAndFlush(createEntity(em));
+
+        try {
+            restCredentialMockMvc
+                .perform(delete(ENTITY_API_URL_ID, deletedCredential.getId()).with(csrf()).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNoContent());
+
+            // Get the changes since the revision before the creation
+            restCredentialMockMvc
+                .perform(get(ENTITY_API_URL + "?sinceRevision=" + (createdCredential.getRevision() - 1)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$.[0].type").value("UPDATED"))
+                .andExpect(jsonPath("$.[0].id").value(createdCredential.getId().intValue()))
+                .andExpect(jsonPath("$.[0].revision").value(createdCredential.getRevision().intValue()))
+                .andExpect(jsonPath("$.[0].credential.username").value(DEFAULT_USERNAME))
+                .andExpect(jsonPath("$.[1].type").value("DELETED"))
+                .andExpect(jsonPath("$.[1].id").value(deletedCredential.getId().intValue()))
+                .andExpect(jsonPath("$.[1].credential").doesNotExist());
+
+            // A full page links to the next one
+            restCredentialMockMvc
+                .perform(get(ENTITY_API_URL + "?sinceRevision=" + (createdCredential.getRevision() - 1) + "&size=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(header().string(KeysetPaginationUtil.NEXT_REVISION_HEADER, createdCredential.getRevision().toString()));
+        } finally {
+            credentialRepository.deleteById(createdCredential.getId());
+        }
+    }
+
+    @Test
+    @Transactional
+    void getCredentialChangesSinceRevisionAfterBackfill() throws Exception {
+        // Initialize the database with rows written before revisions existed
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        long revisionBefore = jdbcTemplate.queryForObject("select revision from revision_counter where id = 1", Long.class);
+        credentialRepository.saveAndFlush(credential.revision(0L));
+        ServiceProvider serviceProvider = serviceProviderRepository.saveAndFlush(ServiceProviderResourceIT.createEntity(em).revision(0L));
+        IdentityProvider identityProvider = identityProviderRepository.saveAndFlush(
+            IdentityProviderResourceIT.createEntity(em).revision(0L)
+        );
+
+        // Run the backfill of the migration, on the connection of the test transaction
+        ScriptUtils.executeSqlScript(
+            DataSourceUtils.getConnection(dataSource),
+            new ClassPathResource("config/liquibase/changelog/20220301120000_backfill_revisions.sql")
+        );
+        em.clear();
+
+        // Validate the revisions in the database
+        long credentialRevision = findRevision(jdbcTemplate, "credential", credential.getId());
+        long serviceProviderRevision = findRevision(jdbcTemplate, "service_provider", serviceProvider.getId());
+        long identityProviderRevision = findRevision(jdbcTemplate, "identity_provider", identityProvider.getId());
+        long revisionAfter = jdbcTemplate.queryForObject("select revision from revision_counter where id = 1", Long.class);
+        assertThat(List.of(credentialRevision, serviceProviderRevision, identityProviderRevision))
+            .doesNotHaveDuplicates()
+            .allMatch(revision -> revision > revisionBefore && revision <= revisionAfter);
+
+        // The credential is read as a change again
+        restCredentialMockMvc
+            .perform(get(ENTITY_API_URL + "?sinceRevision=" + (credentialRevision - 1) + "&size=1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].id").value(credential.getId().intValue()))
+            .andExpect(jsonPath("$.[0].revision").value(credentialRevision));
+    }
+
+    private static long findRevision(JdbcTemplate jdbcTemplate, String table, Long id) {
+        return jdbcTemplate.queryForObject("select revision from " + table + " where id = ?", Long.class, id);
+    }
+
     @Test
     @Transactional
     void getNonExistingCredential() throws Exception {
@@ -294,6 +749,138 @@ class CredentialResourceIT {
         verify(mockCredentialSearchRepository, times(0)).save(credential);
     }
 
+    @Test
+    @Transactional
+    void putChangedCredential() throws Exception {
+        // Initialize the database
+        credentialRepository.saveAndFlush(credential.revision(42L));
+
+        int databaseSizeBeforeUpdate = credentialRepository.findAll().size();
+
+        // Update the credential from a previous revision
+        Credential updatedCredential = createUpdatedEntity(em).id(credential.getId()).revision(41L);
+
+        restCredentialMockMvc
+            .perform(
+                put(ENTITY_API_URL_ID, updatedCredential.getId())
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(updatedCredential))
+            )
+            .andExpect(status().isConflict());
+
+        // Validate the Credential in the database
+        em.clear();
+        List<Credential> credentialList = credentialRepository.findAll();
+        assertThat(credentialList).hasSize(databaseSizeBeforeUpdate);
+        Credential testCredential = credentialRepository.findById(credential.getId()).get();
+        assertThat(testCredential.getProfile()).isEqualTo(DEFAULT_PROFILE);
+        assertThat(testCredential.getRevision()).isEqualTo(42L);
+
+        // Validate the Credential in Elasticsearch
+        verify(mockCredentialSearchRepository, times(0)).save(updatedCredential);
+    }
+
+    @Test
+    @Transactional
+    void putCredentialAnswersPersistedState() throws Exception {
+        // Initialize the database
+        ServiceProvider serviceProvider = serviceProviderRepository.saveAndFlush(
+            ServiceProviderResourceIT.createEntity(em).name("put-" + count.incrementAndGet())
+        );
+        credentialRepository.saveAndFlush(credential);
+
+        // Update the credential with a service provider given by id only
+        Credential updatedCredential = createUpdatedEntity(em).id(credential.getId());
+        updatedCredential.addServiceProvider(new ServiceProvider().id(serviceProvider.getId()));
+
+        restCredentialMockMvc
+            .perform(
+                put(ENTITY_API_URL_ID, updatedCredential.getId())
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(updatedCredential))
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.profile").value(UPDATED_PROFILE))
+            .andExpect(jsonPath("$.serviceProviders.[0].name").value(serviceProvider.getName()));
+
+        // Validate the Credential in Elasticsearch
+        verify(mockCredentialSearchRepository).save(argThat((Credential saved) -> saved.getServiceProviders().contains(serviceProvider)));
+    }
+
+    @Test
+    @Transactional
+    void putCredentialWithUnknownServiceProvider() throws Exception {
+        // Initialize the database
+        credentialRepository.saveAndFlush(credential);
+
+        // Update the credential with a service provider which doesn't exist
+        Credential updatedCredential = createUpdatedEntity(em).id(credential.getId());
+        updatedCredential.addServiceProvider(new ServiceProvider().id(Long.MAX_VALUE));
+
+        restCredentialMockMvc
+            .perform(
+                put(ENTITY_API_URL_ID, updatedCredential.getId())
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(updatedCredential))
+            )
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("error.relationshipnotfound"));
+
+        // Validate the Credential in the database
+        em.clear();
+        Credential testCredential = credentialRepository.findById(credential.getId()).orElseThrow();
+        assertThat(testCredential.getProfile()).isEqualTo(DEFAULT_PROFILE);
+
+        // Validate the Credential in Elasticsearch
+        verify(mockCredentialSearchRepository, times(0)).save(any(Credential.class));
+    }
+
+    @Test
+    void putCredentialWithIfMatch() throws Exception {
+        // Initialize the database outside of a test transaction, as revisions are given on commit; revision 0 is
+        // never given
+        credentialRepository.saveAndFlush(credential.revision(0L));
+
+        try {
+            // Update the credential from its current revision, sent as the ETag it was read with
+            Credential updatedCredential = createUpdatedEntity(em).id(credential.getId());
+
+            restCredentialMockMvc
+                .perform(
+                    put(ENTITY_API_URL_ID, updatedCredential.getId())
+                        .with(csrf())
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(TestUtil.convertObjectToJsonBytes(updatedCredential))
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.revision").value(greaterThan(0)))
+                .andExpect(header().exists(HttpHeaders.ETAG));
+
+            // The same revision is no longer current
+            restCredentialMockMvc
+                .perform(
+                    patch(ENTITY_API_URL_ID, updatedCredential.getId())
+                        .with(csrf())
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType("application/merge-patch+json")
+                        .content(TestUtil.convertObjectToJsonBytes(new Credential().id(credential.getId()).username(DEFAULT_USERNAME)))
+                )
+                .andExpect(status().isConflict());
+
+            // Validate the Credential in the database
+            Credential testCredential = credentialRepository.findById(credential.getId()).get();
+            assertThat(testCredential.getProfile()).isEqualTo(UPDATED_PROFILE);
+            assertThat(testCredential.getUsername()).isEqualTo(UPDATED_USERNAME);
+            assertThat(testCredential.getRevision()).isPositive();
+        } finally {
+            credentialRepository.deleteById(credential.getId());
+        }
+    }
+
     @Test
     @Transactional
     void putWithIdMismatchCredential() throws Exception {
@@ -521,4 +1108,95 @@ class CredentialResourceIT {
             .andExpect(jsonPath("$.[*].username").value(hasItem(DEFAULT_USERNAME)))
             .andExpect(jsonPath("$.[*].password").value(hasItem(DEFAULT_PASSWORD)));
     }
+
+    @Test
+    @Transactional
+    void searchCredentialWithCursor() throws Exception {
+        // Configure the mock search repository
+        // Initialize the database
+        credentialRepository.saveAndFlush(credential);
+        List<Object> sortValues = Arrays.asList(DEFAULT_USERNAME, credential.getId().intValue());
+        when(mockCredentialSearchRepository.search(eq("id:" + credential.getId()), any(Sort.class), isNull(), eq(1)))
+            .thenReturn(new SearchAfterPage<>(Collections.singletonList(credential), 12000, false, sortValues));
+        when(mockCredentialSearchRepository.search(eq("id:" + credential.getId()), any(Sort.class), eq(sortValues), eq(1)))
+            .thenReturn(new SearchAfterPage<>(Collections.emptyList(), 12000, false, null));
+
+        // Search the first page
+        String cursor = KeysetPaginationUtil.encodeSearchAfter(sortValues);
+        restCredentialMockMvc
+            .perform(get(ENTITY_SEARCH_API_URL + "?query=id:" + credential.getId() + "&after=&size=1&sort=username,asc"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "12000"))
+            .andExpect(header().string(KeysetPaginationUtil.TOTAL_COUNT_RELATION_HEADER, "gte"))
+            .andExpect(header().string(KeysetPaginationUtil.NEXT_CURSOR_HEADER, cursor))
+            .andExpect(jsonPath("$.[*].id").value(hasItem(credential.getId().intValue())));
+
+        // Search the next page with the cursor
+        restCredentialMockMvc
+            .perform(get(ENTITY_SEARCH_API_URL + "?query=id:" + credential.getId() + "&after=" + cursor + "&size=1&sort=username,asc"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(KeysetPaginationUtil.NEXT_CURSOR_HEADER))
+            .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    @Transactional
+    void searchCredentialWithCriteria() throws Exception {
+        // Configure the mock search repository
+        // Initialize the database
+        credentialRepository.saveAndFlush(credential);
+        when(
+            mockCredentialSearchRepository.search(
+                argThat(
+                    (CredentialSearchCriteria criteria) ->
+                        DEFAULT_PROFILE.equals(criteria.getProfile()) &&
+                        DEFAULT_ENABLED.equals(criteria.getEnabled()) &&
+                        "AAA".equals(criteria.getUsernamePrefix()) &&
+                        criteria.getQuery() == null
+                ),
+                any(Pageable.class)
+            )
+        )
+            .thenReturn(new PageImpl<>(Collections.singletonList(credential), PageRequest.of(0, 1), 1));
+
+        // Search the credential with filters only
+        restCredentialMockMvc
+            .perform(get(ENTITY_SEARCH_API_URL + "?profile=" + DEFAULT_PROFILE + "&enabled=" + DEFAULT_ENABLED + "&usernamePrefix=AAA"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(hasItem(credential.getId().intValue())));
+    }
+
+    @Test
+    @Transactional
+    void searchCredentialWithoutQueryOrCriteria() throws Exception {
+        restCredentialMockMvc.perform(get(ENTITY_SEARCH_API_URL)).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    void searchCredentialSummaries() throws Exception {
+        // Configure the mock search repository
+        // Initialize the database
+        credentialRepository.saveAndFlush(credential);
+        CredentialSearchSummary summary = new CredentialSearchSummary(
+            credential.getId(),
+            DEFAULT_PROFILE,
+            DEFAULT_ENABLED,
+            DEFAULT_USERNAME,
+            null,
+            null
+        );
+        when(mockCredentialSearchRepository.searchSummaries("username:" + DEFAULT_USERNAME, PageRequest.of(0, 20)))
+            .thenReturn(new PageImpl<>(Collections.singletonList(summary), PageRequest.of(0, 20), 1));
+
+        // Search the credential summaries
+        restCredentialMockMvc
+            .perform(get(ENTITY_SEARCH_API_URL + "/summary?query=username:" + DEFAULT_USERNAME))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(header().string("X-Total-Count", "1"))
+            .andExpect(jsonPath("$.[*].id").value(hasItem(credential.getId().intValue())))
+            .andExpect(jsonPath("$.[*].username").value(hasItem(DEFAULT_USERNAME)))
+            .andExpect(jsonPath("$.[0].password").doesNotExist());
+    }
 }
@@ -0,0 +1,154 @@
+package com.claudiu.macovei.web.rest;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.claudiu.macovei.IntegrationTest;
+import com.claudiu.macovei.domain.Credential;
+import com.claudiu.macovei.domain.IdentityProvider;
+import com.claudiu.macovei.domain.ServiceProvider;
+import com.claudiu.macovei.domain.User;
+import com.claudiu.macovei.repository.CredentialRepository;
+import com.claudiu.macovei.repository.ServiceProviderRepository;
+import com.claudiu.macovei.repository.search.SearchIndexAdminRepository;
+import com.claudiu.macovei.security.AuthoritiesConstants;
+import com.claudiu.macovei.service.IdentityProviderService;
+import com.claudiu.macovei.service.SearchReindexService;
+import com.claudiu.macovei.service.ServiceProviderService;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Integration tests for the {@link SearchReindexResource} REST controller.
+ */
+@IntegrationTest
+@AutoConfigureMockMvc
+@WithMockUser(authorities = AuthoritiesConstants.ADMIN)
+class SearchReindexResourceIT {
+
+    private static final String ENTITY_API_URL = "/api/admin/search/reindex";
+
+    @Autowired
+    private SearchIndexAdminRepository mockSearchIndexAdminRepository;
+
+    @Autowired
+    private SearchReindexService searchReindexService;
+
+    @Autowired
+    private CredentialRepository credentialRepository;
+
+    @Autowired
+    private ServiceProviderService serviceProviderService;
+
+    @Autowired
+    private ServiceProviderRepository serviceProviderRepository;
+
+    @Autowired
+    private IdentityProviderService identityProviderService;
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private MockMvc restMockMvc;
+
+    @Test
+    void reindexAllIndices() throws Exception {
+        when(mockSearchIndexAdminRepository.createVersionedIndex(any(), anyString()))
+            .thenAnswer(invocation -> ((Class<?>) invocation.getArgument(0)).getSimpleName().toLowerCase() + "_test");
+        // Initialize the database outside of a test transaction, as the reindex reads from its own threads
+        Credential credential = credentialRepository.saveAndFlush(CredentialResourceIT.createEntity(em));
+
+        try {
+            restMockMvc.perform(post(ENTITY_API_URL).with(csrf())).andExpect(status().isAccepted());
+            awaitReindex();
+
+            restMockMvc
+                .perform(get(ENTITY_API_URL))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.running").value(false))
+                .andExpect(jsonPath("$.error").doesNotExist())
+                .andExpect(jsonPath("$.indices.length()").value(4))
+                .andExpect(jsonPath("$.indices.[0].indexName").value("credential_test"))
+                .andExpect(jsonPath("$.indices.[0].completed").value(true));
+
+            verify(mockSearchIndexAdminRepository).bulkIndex(argThat(chunk -> chunk.contains(credential)), eq("credential_test"));
+            verify(mockSearchIndexAdminRepository).switchAlias(Credential.class, "credential_test");
+            verify(mockSearchIndexAdminRepository).switchAlias(ServiceProvider.class, "serviceprovider_test");
+            verify(mockSearchIndexAdminRepository).switchAlias(IdentityProvider.class, "identityprovider_test");
+            verify(mockSearchIndexAdminRepository).switchAlias(User.class, "user_test");
+        } finally {
+            credentialRepository.deleteById(credential.getId());
+        }
+    }
+
+    @Test
+    void reindexFailureKeepsCurrentIndex() throws Exception {
+        when(mockSearchIndexAdminRepository.createVersionedIndex(any(), anyString())).thenReturn("failing_test");
+        doThrow(new IllegalStateException("Bulk rejected")).when(mockSearchIndexAdminRepository).switchAlias(any(), eq("failing_test"));
+
+        restMockMvc.perform(post(ENTITY_API_URL).with(csrf())).andExpect(status().isAccepted());
+        awaitReindex();
+
+        restMockMvc
+            .perform(get(ENTITY_API_URL))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.error").value("Bulk rejected"));
+        verify(mockSearchIndexAdminRepository).deleteIndex("failing_test");
+    }
+
+    @Test
+    void reindexReplaysWritesToThePreviousIndex() throws Exception {
+        when(mockSearchIndexAdminRepository.createVersionedIndex(any(), anyString()))
+            .thenAnswer(invocation -> ((Class<?>) invocation.getArgument(0)).getSimpleName().toLowerCase() + "_test");
+        // Writes made while the new indices are loaded, which go to the previous indices
+        AtomicReference<ServiceProvider> savedServiceProvider = new AtomicReference<>();
+        doAnswer(invocation -> {
+                savedServiceProvider.set(serviceProviderService.save(ServiceProviderResourceIT.createEntity(em)));
+                return null;
+            })
+            .when(mockSearchIndexAdminRepository)
+            .switchAlias(eq(ServiceProvider.class), anyString());
+        AtomicReference<Long> deletedIdentityProviderId = new AtomicReference<>();
+        doAnswer(invocation -> {
+                IdentityProvider identityProvider = identityProviderService.save(IdentityProviderResourceIT.createEntity(em));
+                identityProviderService.delete(identityProvider.getId());
+                deletedIdentityProviderId.set(identityProvider.getId());
+                return null;
+            })
+            .when(mockSearchIndexAdminRepository)
+            .switchAlias(eq(IdentityProvider.class), anyString());
+
+        try {
+            restMockMvc.perform(post(ENTITY_API_URL).with(csrf())).andExpect(status().isAccepted());
+            awaitReindex();
+
+            restMockMvc.perform(get(ENTITY_API_URL)).andExpect(status().isOk()).andExpect(jsonPath("$.error").doesNotExist());
+            verify(mockSearchIndexAdminRepository)
+                .bulkIndex(argThat(chunk -> chunk.contains(savedServiceProvider.get())), eq("serviceprovider_test"));
+            verify(mockSearchIndexAdminRepository).deleteAll(Set.of(deletedIdentityProviderId.get()), "identityprovider_test");
+        } finally {
+            if (savedServiceProvider.get() != null) {
+                serviceProviderRepository.deleteById(savedServiceProvider.get().getId());
+            }
+        }
+    }
+
+    private void awaitReindex() throws InterruptedException {
+        for (int i = 0; i < 100 && searchReindexService.getStatus().isRunning(); i++) {
+            Thread.sleep(100);
+        }
+    }
+}